@@ -33,6 +33,7 @@ package bitzguild.ts.datetime;
 import bitzguild.ts.datetime.format.DaysAndMonthsForEnglish;
 import bitzguild.ts.datetime.format.CompactDateTimeFormat;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -81,6 +82,8 @@ public abstract class AbstractDateTime extends DateUtil implements DateTime, jav
 	public static DateTimePredicate DefaultHolidays = new USHolidays();
     public static DateTimeFormat DefaultParserRenderer = new CompactDateTimeFormat();
     public static DaysAndMonths DefaultDayMonthNames = new DaysAndMonthsForEnglish();
+    public static DateTimeClock DefaultClock = new AnchoredDateTimeClock();
+    private static volatile ZoneOffsetTable DefaultZone;
 
     // --------------------------------------------
     // Static Accessors
@@ -105,6 +108,55 @@ public abstract class AbstractDateTime extends DateUtil implements DateTime, jav
         return DefaultParserRenderer;
     }
 
+    /**
+     * Set clock used by now()
+     *
+     * @param clock DateTimeClock
+     * @return prior DateTimeClock
+     */
+    public static DateTimeClock defaultClock(DateTimeClock clock) {
+        DateTimeClock prior = DefaultClock;
+        DefaultClock = clock;
+        return prior;
+    }
+
+    /**
+     * @return DateTimeClock used by now()
+     */
+    public static DateTimeClock getDefaultClock() {
+        return DefaultClock;
+    }
+
+    /**
+     * Set zone used by toJavaDate() and setFromJavaDate(). Null builds
+     * the zone again from TimeZone.getDefault() on next use.
+     *
+     * @param zone ZoneOffsetTable, or null
+     * @return prior ZoneOffsetTable
+     */
+    public static ZoneOffsetTable defaultZone(ZoneOffsetTable zone) {
+        ZoneOffsetTable prior = DefaultZone;
+        DefaultZone = zone;
+        return prior;
+    }
+
+    /**
+     * Answer zone used by toJavaDate() and setFromJavaDate(). It is a
+     * snapshot of TimeZone.getDefault() built on first use, which samples
+     * the zone every six hours from 1970 to 2100, about 190,000
+     * getOffset() calls, and is then kept. Later calls to
+     * TimeZone.setDefault() are not seen until defaultZone() is given a
+     * new table, or null. Racing first calls may each build a table; the
+     * tables are equal and the last one is kept.
+     *
+     * @return ZoneOffsetTable
+     */
+    public static ZoneOffsetTable getDefaultZone() {
+        ZoneOffsetTable zone = DefaultZone;
+        if (zone == null) DefaultZone = zone = new ZoneOffsetTable(java.util.TimeZone.getDefault());
+        return zone;
+    }
+
 
     /**
      *
@@ -609,8 +661,13 @@ public abstract class AbstractDateTime extends DateUtil implements DateTime, jav
 
     protected int _subMillisWithBalance(int millis) {
         int millisLeft = _time + millis;
-        int balanceDays = (millisLeft / MillisInDay)-1;
-        _time = MillisInDay + (millisLeft % MillisInDay);
+        int balanceDays = (millisLeft / MillisInDay);
+        int balanceTime = (millisLeft % MillisInDay);
+        if (balanceTime < 0) {
+            balanceTime += MillisInDay;
+            balanceDays -= 1;
+        }
+        _time = balanceTime;
         return balanceDays;
     }
 
@@ -1274,26 +1331,14 @@ public abstract class AbstractDateTime extends DateUtil implements DateTime, jav
 
 	/**
 	 * <p>
-	 * Converts PSC Date to native Java Date.
+	 * Converts PSC Date to native Java Date, reading this
+	 * datetime as local time in the default zone.
 	 * </p>
 	 *
 	 * @return java.util.Date date
 	 */
 	public java.util.Date toJavaDate() {
-		java.util.Calendar calendar = java.util.Calendar.getInstance();
-		if (_time > 0) {
-	        int hours = _time / MillisInHour;
-	        int balanceHours = (_time % MillisInHour) ;
-	        int minutes = balanceHours / MillisInMinute;
-	        int balanceMinutes = balanceHours % MillisInMinute;
-	        int seconds = balanceMinutes / MillisInSecond;
-	        int millis = balanceMinutes % MillisInSecond;
-	        calendar.set(this.year(), this.month()-1, this.day(),hours,minutes,seconds);
-	        calendar.set(java.util.Calendar.MILLISECOND, millis);
-		} else {
-			calendar.set(this.year(), this.month()-1, this.day());
-		}
-		return calendar.getTime();
+		return new java.util.Date(getDefaultZone().localRepToUtc(rep()));
 	}
 
     // ------------------------------------------------------------------------------------
@@ -1313,12 +1358,57 @@ public abstract class AbstractDateTime extends DateUtil implements DateTime, jav
 
 
 	/**
-	 * Efficient alternative for toString().
+	 * Alternative for toString() when a StringBuffer is required.
+	 * Prefer toBuilder(), which does not lock on each append.
 	 */
 	public StringBuffer toBuffer(StringBuffer strb) {
         return toBuffer(strb, DefaultParserRenderer);
 	}
 
+    /**
+     * Render onto unsynchronized builder with given format
+     *
+     * @param strb StringBuilder
+     * @param format DateTimeFormat
+     * @return StringBuilder
+     */
+    public StringBuilder toBuilder(StringBuilder strb, DateTimeFormat format) {
+        return format.renderToBuilder(this, strb);
+    }
+
+    /**
+     * Efficient alternative for toString().
+     *
+     * @param strb StringBuilder
+     * @return StringBuilder
+     */
+    public StringBuilder toBuilder(StringBuilder strb) {
+        return toBuilder(strb, DefaultParserRenderer);
+    }
+
+    /**
+     * Render onto any Appendable (e.g. Writer) with given format
+     *
+     * @param out Appendable
+     * @param format DateTimeFormat
+     * @return given Appendable
+     * @throws IOException from the Appendable
+     */
+    public <A extends Appendable> A appendTo(A out, DateTimeFormat format) throws IOException {
+        return format.renderToAppendable(this, out);
+    }
+
+    /**
+     * Render onto any Appendable (e.g. Writer) with default format
+     *
+     * @param out Appendable
+     * @return given Appendable
+     * @throws IOException from the Appendable
+     */
+    public <A extends Appendable> A appendTo(A out) throws IOException {
+        return appendTo(out, DefaultParserRenderer);
+    }
+
 	/**
 	 * Formatted Date object. Useful for debugging.
 	 * See formatting functions for more precise output (NOT YET IMPLEMENTED).
@@ -1328,9 +1418,7 @@ public abstract class AbstractDateTime extends DateUtil implements DateTime, jav
 	 * @return String formatted date
 	 */
 	public String toString() {
-		StringBuffer strb = new StringBuffer();
-		toBuffer(strb);
-		return strb.toString();
+		return toBuilder(new StringBuilder()).toString();
 	}
 
 }
\ No newline at end of file
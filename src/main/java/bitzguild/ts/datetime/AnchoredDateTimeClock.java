@@ -0,0 +1,140 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.TimeZone;
+
+/**
+ * <p>
+ * Clock that caches an anchor for the current local day: the epoch millis
+ * of midnight and its rep. Within the anchor window a rep is the anchor
+ * rep plus elapsed millis, one subtraction and one addition, with no
+ * allocation. The anchor is rebuilt only when the time leaves the window.
+ * </p>
+ * <p>
+ * On days when the zone changes offset, such as daylight saving
+ * transitions, the window shrinks to the current minute, so the new offset
+ * is picked up at the minute it takes effect. The anchor is immutable and
+ * published through a volatile field, so one clock can be shared by
+ * threads.
+ * </p>
+ */
+public class AnchoredDateTimeClock implements DateTimeClock {
+
+    /**
+     * Immutable anchor window [start, end) in epoch millis
+     */
+    protected static final class Anchor {
+        final long  start;
+        final long  end;
+        final long  rep;
+
+        Anchor(long start, long end, long rep) {
+            this.start = start;
+            this.end = end;
+            this.rep = rep;
+        }
+    }
+
+    protected final TimeZone        _zone;
+    protected final DateTimeClock   _source;
+    protected volatile Anchor       _anchor;
+
+    /**
+     * Default Constructor, system time in the default time zone
+     */
+    public AnchoredDateTimeClock() {
+        this(TimeZone.getDefault());
+    }
+
+    /**
+     * Zone Constructor, system time in the given zone
+     *
+     * @param zone TimeZone for local reps
+     */
+    public AnchoredDateTimeClock(TimeZone zone) {
+        this(zone, null);
+    }
+
+    /**
+     * Zone and Source Constructor
+     *
+     * @param zone TimeZone for local reps
+     * @param source supplies epoch millis, or null for System.currentTimeMillis()
+     */
+    public AnchoredDateTimeClock(TimeZone zone, DateTimeClock source) {
+        _zone = (TimeZone)zone.clone();
+        _source = source;
+        _anchor = new Anchor(0, 0, 0);
+    }
+
+    public long currentTimeMillis() {
+        return (_source == null) ? System.currentTimeMillis() : _source.currentTimeMillis();
+    }
+
+    /**
+     * Answer local rep for epoch millis, using the cached anchor
+     * when millis lies in its window
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return long rep
+     */
+    public long repAt(long epochMillis) {
+        Anchor anchor = _anchor;
+        if (epochMillis < anchor.start || epochMillis >= anchor.end) _anchor = anchor = _anchorFor(epochMillis);
+        return anchor.rep + (epochMillis - anchor.start);
+    }
+
+    /**
+     * Answer zone of local reps
+     *
+     * @return TimeZone copy
+     */
+    public TimeZone zone() {
+        return (TimeZone)_zone.clone();
+    }
+
+    /**
+     * Build anchor covering the local day of the given instant, or
+     * only its minute when the offset changes during that day
+     */
+    protected Anchor _anchorFor(long epochMillis) {
+        int offset = _zone.getOffset(epochMillis);
+        long local = epochMillis + offset;
+        long start = RepUtil.floorDiv(local, DateTime.MillisInDay) * DateTime.MillisInDay - offset;
+        long end = start + DateTime.MillisInDay;
+        if (_zone.getOffset(start) != offset || _zone.getOffset(end - 1) != offset) {
+            start = RepUtil.floorDiv(epochMillis, DateTime.MillisInMinute) * DateTime.MillisInMinute;
+            end = start + DateTime.MillisInMinute;
+        }
+        return new Anchor(start, end, RepUtil.fromEpochMillis(start, offset));
+    }
+}
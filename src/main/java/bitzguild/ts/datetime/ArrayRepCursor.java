@@ -0,0 +1,73 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * RepCursor over a slice of a <code>long[]</code> rep column.
+ * The array is not copied, so the cursor sees later changes
+ * to the underlying column.
+ */
+public class ArrayRepCursor implements RepCursor {
+
+    protected long[]    _reps;
+    protected int       _index;
+    protected int       _limit;
+
+    /**
+     * Whole Array Constructor
+     *
+     * @param reps sorted rep column
+     */
+    public ArrayRepCursor(long[] reps) {
+        this(reps, 0, reps.length);
+    }
+
+    /**
+     * Slice Constructor
+     *
+     * @param reps sorted rep column
+     * @param offset index of first rep
+     * @param length number of reps
+     */
+    public ArrayRepCursor(long[] reps, int offset, int length) {
+        _reps = reps;
+        _index = offset - 1;
+        _limit = offset + length;
+    }
+
+    public boolean next() {
+        return ++_index < _limit;
+    }
+
+    public long rep() {
+        return _reps[_index];
+    }
+}
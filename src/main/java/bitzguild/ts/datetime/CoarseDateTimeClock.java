@@ -0,0 +1,243 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * <p>
+ * Clock updated by a single daemon thread at a fixed resolution. Readers
+ * get the last published time for the cost of a volatile read of the
+ * current Sample and a field read through it, which suits stamping millions of messages per second where millisecond
+ * accuracy is enough. Each update samples the source once and publishes
+ * the millis and rep together as one immutable Sample, so
+ * currentTimeMillis() and nowRep() read from the same sample agree.
+ * </p>
+ * <pre>
+ *     CoarseDateTimeClock clock = new CoarseDateTimeClock(1).start();
+ *     ...
+ *     long stamp = clock.nowRep();
+ *     ...
+ *     clock.stop();
+ * </pre>
+ * <p>
+ * Before start, and after stop, the clock answers the last published
+ * time. <code>tick()</code> publishes on the calling thread, so replays
+ * can drive the clock from a ManualDateTimeClock without a thread. The
+ * update thread is the only writer while started, so tick() is refused
+ * until the clock is stopped.
+ * </p>
+ *
+ * @see ManualDateTimeClock
+ */
+public class CoarseDateTimeClock implements DateTimeClock, AutoCloseable {
+
+    public static final long DefaultResolution = 1;
+
+    protected final DateTimeClock   _source;
+    protected final long            _resolution;
+    protected final Published       _published = new Published();
+    protected Thread                _thread;
+
+    /**
+     * Immutable time of one update
+     */
+    public static final class Sample {
+        public final long   millis;
+        public final long   rep;
+
+        Sample(long millis, long rep) {
+            this.millis = millis;
+            this.rep = rep;
+        }
+    }
+
+    /**
+     * Padding laid out before the published field. HotSpot places
+     * superclass fields first but groups a class's own longs ahead of its
+     * references, so padding only brackets the field from separate classes.
+     */
+    static class PublishedPadding {
+        long p0, p1, p2, p3, p4, p5, p6;
+    }
+
+    /**
+     * Published sample field
+     */
+    static class PublishedSample extends PublishedPadding {
+        volatile Sample sample;
+    }
+
+    /**
+     * Published sample, padded on both sides so the hot field does not
+     * share a cache line with neighbouring writes
+     */
+    protected static final class Published extends PublishedSample {
+        long q0, q1, q2, q3, q4, q5, q6;
+    }
+
+    /**
+     * Default Constructor, 1ms resolution over the default clock
+     */
+    public CoarseDateTimeClock() {
+        this(DefaultResolution);
+    }
+
+    /**
+     * Resolution Constructor, over an anchored clock in the default zone
+     *
+     * @param resolution milliseconds between updates
+     */
+    public CoarseDateTimeClock(long resolution) {
+        this(new AnchoredDateTimeClock(), resolution);
+    }
+
+    /**
+     * Source and Resolution Constructor
+     *
+     * @param source clock sampled by the update thread
+     * @param resolution milliseconds between updates
+     */
+    public CoarseDateTimeClock(DateTimeClock source, long resolution) {
+        if (resolution < 1) throw new IllegalArgumentException("Resolution must be at least 1ms, not " + resolution);
+        _source = source;
+        _resolution = resolution;
+        _publish();
+    }
+
+    public long currentTimeMillis() {
+        return _published.sample.millis;
+    }
+
+    public long nowRep() {
+        return _published.sample.rep;
+    }
+
+    public long repAt(long epochMillis) {
+        return _source.repAt(epochMillis);
+    }
+
+    /**
+     * Answer last published millis and rep together
+     *
+     * @return Sample
+     */
+    public Sample sample() {
+        return _published.sample;
+    }
+
+    /**
+     * @return milliseconds between updates
+     */
+    public long resolution() {
+        return _resolution;
+    }
+
+    /**
+     * Publish the source's current time. Only for a clock that is not
+     * started, since the update thread must be the single writer.
+     *
+     * @throws IllegalStateException while the update thread runs
+     */
+    public void tick() {
+        if (isRunning()) throw new IllegalStateException("tick() while CoarseDateTimeClock is started");
+        _publish();
+    }
+
+    /**
+     * Sample source once and publish millis and rep together
+     */
+    protected void _publish() {
+        long millis = _source.currentTimeMillis();
+        _published.sample = new Sample(millis, _source.repAt(millis));
+    }
+
+    // -----------------------------------------------------------
+    // Lifecycle
+    // -----------------------------------------------------------
+
+    /**
+     * Start update thread, if not already running
+     *
+     * @return this clock
+     */
+    public synchronized CoarseDateTimeClock start() {
+        if (_thread == null) {
+            _publish();
+            _thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while(!Thread.currentThread().isInterrupted()) {
+                            Thread.sleep(_resolution);
+                            _publish();
+                        }
+                    } catch(InterruptedException e) {
+                        // stopped
+                    }
+                }
+            }, "CoarseDateTimeClock");
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+        return this;
+    }
+
+    /**
+     * Stop update thread and wait for it to finish
+     */
+    public void stop() {
+        Thread thread;
+        synchronized(this) {
+            thread = _thread;
+            _thread = null;
+        }
+        if (thread == null) return;
+        thread.interrupt();
+        boolean interrupted = false;
+        while(thread.isAlive()) {
+            try {
+                thread.join();
+            } catch(InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * @return true while update thread runs
+     */
+    public synchronized boolean isRunning() {
+        return _thread != null;
+    }
+
+    public void close() {
+        stop();
+    }
+}
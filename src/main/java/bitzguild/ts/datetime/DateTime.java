@@ -61,7 +61,7 @@ import java.util.Date;
  * to use in real-time situations.
  * </p>
  * <ul>
- *     <li>There is no planned support for time zones</li>
+ *     <li>Datetimes are zone-less local times; ZoneOffsetTable converts UTC columns to local reps</li>
  *     <li>There is minimal support for localization</li>
  *     <li>Does not support missing 10 days in 1582 (slows normal cases, handle in subclass)</li>
  *     <li>Does not support switch from 100/400 leap year rule prior to 1600 (special case)</li>
@@ -257,5 +257,26 @@ public interface DateTime extends DateTimeNames, DateTimeModifiers, DateTimeBusi
      */
     public Date toJavaDate();
 
+    /**
+     * Answer milliseconds since 1970-01-01T00:00 UTC, reading this
+     * datetime as UTC
+     *
+     * @return long epoch millis
+     */
+    public default long toEpochMillis() {
+        return RepUtil.toEpochMillis(rep());
+    }
+
+    /**
+     * Answer milliseconds since 1970-01-01T00:00 UTC, reading this
+     * datetime as local time at a fixed offset
+     *
+     * @param offsetMillis local offset from UTC
+     * @return long epoch millis
+     */
+    public default long toEpochMillis(int offsetMillis) {
+        return RepUtil.toEpochMillis(rep(), offsetMillis);
+    }
+
 
 }
@@ -0,0 +1,105 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.text.ParsePosition;
+
+/**
+ * <p>
+ * Parsing API for ASCII timestamps held as bytes, such as feed messages read
+ * into NIO buffers. Values are read in place and answered as reps, so no
+ * String decoding or DateTime creation is needed per value.
+ * </p>
+ * <p>
+ * Parsing starts at <code>position.getIndex()</code> and stops at the end of
+ * the timestamp or at <code>limit</code>. On success the position index is
+ * moved past the consumed bytes, ready for the next field. Buffer parsing
+ * uses absolute indexes and leaves the buffer position untouched.
+ * </p>
+ * <pre>
+ *     ParsePosition pos = new ParsePosition(0);
+ *     long rep = parser.parseRep(message, pos, message.length);
+ *     int consumed = pos.getIndex();
+ * </pre>
+ * <p>
+ * The <code>tryParseRep</code> variants never throw: malformed input answers
+ * <code>RepUtil.InvalidRep</code>, sets the position error index and leaves
+ * the index where it was.
+ * </p>
+ *
+ * @see DateTimeRepParser
+ */
+public interface DateTimeByteParser {
+
+    /**
+     * Parse timestamp from byte array
+     *
+     * @param bytes ASCII bytes
+     * @param position start index in, end index out
+     * @param limit index past last readable byte
+     * @return long datetime rep
+     * @throws ParseException with error offset on malformed input
+     */
+    long parseRep(byte[] bytes, ParsePosition position, int limit) throws ParseException;
+
+    /**
+     * Parse timestamp from byte buffer
+     *
+     * @param buffer ASCII bytes
+     * @param position start index in, end index out
+     * @param limit index past last readable byte
+     * @return long datetime rep
+     * @throws ParseException with error offset on malformed input
+     */
+    long parseRep(ByteBuffer buffer, ParsePosition position, int limit) throws ParseException;
+
+    /**
+     * Parse timestamp from byte array without throwing
+     *
+     * @param bytes ASCII bytes
+     * @param position start index in, end index out, error index on failure
+     * @param limit index past last readable byte
+     * @return long datetime rep, or RepUtil.InvalidRep
+     */
+    long tryParseRep(byte[] bytes, ParsePosition position, int limit);
+
+    /**
+     * Parse timestamp from byte buffer without throwing
+     *
+     * @param buffer ASCII bytes
+     * @param position start index in, end index out, error index on failure
+     * @param limit index past last readable byte
+     * @return long datetime rep, or RepUtil.InvalidRep
+     */
+    long tryParseRep(ByteBuffer buffer, ParsePosition position, int limit);
+}
@@ -0,0 +1,93 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Rendering API that writes datetime reps as ASCII bytes, for bulk output
+ * such as CSV or log lines. Digits are written straight into the target at
+ * the given index and the index past the last byte written is answered,
+ * so fields can be chained without intermediate strings or locking.
+ * </p>
+ * <pre>
+ *     int at = renderer.renderRep(rep, line, 0);
+ *     line[at++] = ',';
+ * </pre>
+ * Callers are responsible for room in the target; see <code>maxLength()</code>.
+ *
+ * @see DateTimeByteParser
+ */
+public interface DateTimeByteRenderer {
+
+    /**
+     * Write rep into byte array
+     *
+     * @param rep datetime long rep
+     * @param bytes target
+     * @param offset index of first byte to write
+     * @return int index past last byte written
+     */
+    int renderRep(long rep, byte[] bytes, int offset);
+
+    /**
+     * Write rep into byte buffer using absolute puts; the buffer
+     * position is left untouched.
+     *
+     * @param rep datetime long rep
+     * @param buffer target
+     * @param index index of first byte to write
+     * @return int index past last byte written
+     */
+    int renderRep(long rep, ByteBuffer buffer, int index);
+
+    /**
+     * Write a rep column, each rep followed by the delimiter. Formats that
+     * cache rendered dates render each date once per run of equal days.
+     *
+     * @param reps rep column
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param delimiter byte written after each rep, e.g. '\n'
+     * @param bytes target, with room for count * (maxLength() + 1) bytes
+     * @param at index of first byte to write
+     * @return int index past last byte written
+     */
+    int renderColumn(long[] reps, int offset, int count, byte delimiter, byte[] bytes, int at);
+
+    /**
+     * Answer largest number of bytes written for any rep in years 1000 .. 9999
+     *
+     * @return int
+     */
+    int maxLength();
+}
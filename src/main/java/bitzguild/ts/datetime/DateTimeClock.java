@@ -0,0 +1,70 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * <p>
+ * Source of the current time as a datetime rep. Timestamping inbound
+ * messages only needs the rep, so clocks answer it directly, without
+ * creating DateTime objects or Calendars.
+ * </p>
+ * <pre>
+ *     long stamp = clock.nowRep();
+ * </pre>
+ *
+ * @see AnchoredDateTimeClock
+ */
+public interface DateTimeClock {
+
+    /**
+     * Answer milliseconds since 1970-01-01T00:00 UTC
+     *
+     * @return long epoch millis
+     */
+    long currentTimeMillis();
+
+    /**
+     * Answer the current local time as a rep
+     *
+     * @return long rep
+     */
+    default long nowRep() {
+        return repAt(currentTimeMillis());
+    }
+
+    /**
+     * Answer local rep of the given instant, in this clock's zone
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return long rep
+     */
+    long repAt(long epochMillis);
+}
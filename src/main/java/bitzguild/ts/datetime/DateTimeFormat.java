@@ -30,6 +30,7 @@
 
 package bitzguild.ts.datetime;
 
+import java.io.IOException;
 import java.text.ParseException;
 
 /**
@@ -44,10 +45,17 @@ import java.text.ParseException;
  * the mutable state is up to the consumer.
  * </p>
  * <p>
- * The format is designed to work with StringBuffer to avoid String creation
- * where possible. StringBuffer is the only Java buffer to support number output
- * rendering (e.g. DecimalFormat), and as of Java 1.7, the  StringBuffer/Format
- * combination is significantly faster than StringBuilder/String format.
+ * Rendering appends to a caller supplied buffer to avoid String creation
+ * where possible. <code>renderToBuilder</code> is the preferred path; it is
+ * unsynchronized and pays no lock per append. <code>renderToAppendable</code>
+ * writes to any Appendable, such as a Writer, without an intermediate copy.
+ * <code>renderToBuffer</code> remains for callers that combine output with
+ * java.text Formats, which only accept StringBuffer.
+ * </p>
+ * <p>
+ * Implementations only need <code>renderToBuffer</code>; the builder and
+ * Appendable entry points default to rendering through it.
+ * AbstractDateTimeFormat overrides all three with direct rendering.
  * </p>
  */
 public interface DateTimeFormat {
@@ -66,6 +74,37 @@ public interface DateTimeFormat {
      */
     StringBuffer renderToBuffer(DateTime date, StringBuffer sb);
 
+    /**
+     * Render date onto unsynchronized builder. The default renders
+     * through a temporary StringBuffer; formats should override it.
+     *
+     * @param date DateTime
+     * @param sb StringBuilder
+     * @return StringBuilder
+     */
+    default StringBuilder renderToBuilder(DateTime date, StringBuilder sb) {
+        return sb.append(renderToBuffer(date, new StringBuffer()));
+    }
+
+    /**
+     * Render date onto any Appendable
+     *
+     * @param date DateTime
+     * @param out Appendable, e.g. Writer or CharBuffer
+     * @return given Appendable
+     * @throws IOException from the Appendable
+     */
+    default <A extends Appendable> A renderToAppendable(DateTime date, A out) throws IOException {
+        if (out instanceof StringBuffer) {
+            renderToBuffer(date, (StringBuffer)out);
+        } else if (out instanceof StringBuilder) {
+            renderToBuilder(date, (StringBuilder)out);
+        } else {
+            out.append(renderToBuffer(date, new StringBuffer()));
+        }
+        return out;
+    }
+
     /**
      *
      * @return
@@ -30,6 +30,7 @@
 
 package bitzguild.ts.datetime;
 
+import java.io.IOException;
 
 /**
  * Non-mutable representation of date time range, having lower
@@ -37,10 +38,14 @@ package bitzguild.ts.datetime;
  * arithmetic on ranges.
  * 
  * There is mutable output side-effect in the 'intersection' method.
+ * Range modifiers work directly on the bound reps; see
+ * MutableDateTimeRange for a variant that modifies in place.
  * 
  * @author ksvenberg
  */
-public class DateTimeRange {
+public class DateTimeRange implements java.io.Serializable {
+
+	public static final long serialVersionUID = 1L;
 	
 	/**
 	 * Create new range from _date, up to but not including end _date
@@ -72,9 +77,7 @@ public class DateTimeRange {
 	 * @return DateTimeRange
 	 */
 	public static DateTimeRange fromUpTo(DateTime dtLower, DateTime dtUpper)  {
-        MutableDateTime dtTmp = new MutableDateTime(dtUpper);
-        dtTmp.addMillis(1);
-		return new DateTimeRange(dtLower,dtTmp);
+		return new DateTimeRange(dtLower.rep(), RepUtil.addMillis(dtUpper.rep(), 1));
 	}
 	
 	/**
@@ -85,9 +88,7 @@ public class DateTimeRange {
 	 * @return DateTimeRange
 	 */
 	public static DateTimeRange fromUpTo(long lower, long upper)  {
-        MutableDateTime dtTmp = new MutableDateTime(upper);
-        dtTmp.addMillis(1);
-		return new DateTimeRange(new MutableDateTime(lower),dtTmp);
+		return new DateTimeRange(lower, RepUtil.addMillis(upper, 1));
 	}
 	
 	
@@ -136,17 +137,60 @@ public class DateTimeRange {
      * @param lower long
      * @param upper long
      */
-    private void _assignRange(long lower, long upper) {
+    protected void _assignRange(long lower, long upper) {
         _lowerBound = Math.min(lower,upper);
         _upperBound = Math.max(lower,upper);
     }
 
+    /**
+     * Answer range with the given bounds. Modifiers answer through
+     * this method, so subclasses may reuse the receiver instead.
+     *
+     * @param lower long rep
+     * @param upper long rep
+     * @return DateTimeRange
+     */
+    protected DateTimeRange _withBounds(long lower, long upper) {
+        return new DateTimeRange(lower, upper);
+    }
+
 	public DateTime lower() { return new MutableDateTime(_lowerBound); }
 	public DateTime upper() { return new MutableDateTime(_upperBound); }
 	
 	public long lowerRep() { return _lowerBound; }
 	public long upperRep() { return _upperBound; }
 
+    /**
+     * Copy lower bound into given datetime without allocating
+     *
+     * @param into MutableDateTime
+     * @return MutableDateTime the given instance
+     */
+    public MutableDateTime lowerInto(MutableDateTime into) {
+        into.setRep(_lowerBound);
+        return into;
+    }
+
+    /**
+     * Copy upper bound into given datetime without allocating
+     *
+     * @param into MutableDateTime
+     * @return MutableDateTime the given instance
+     */
+    public MutableDateTime upperInto(MutableDateTime into) {
+        into.setRep(_upperBound);
+        return into;
+    }
+
+    /**
+     * Answer elapsed milliseconds from lower to upper bound
+     *
+     * @return long
+     */
+    public long durationMillis() {
+        return RepUtil.absoluteMillis(_upperBound) - RepUtil.absoluteMillis(_lowerBound);
+    }
+
 	/**
 	 * Answer whether given range falls within our range.
 	 * Sets may be the same size, with matching end points.
@@ -327,17 +371,14 @@ public class DateTimeRange {
 	// Range Modifiers
     // -----------------------------------------------------------
 
-	/**
-	 * 
-	 * @param amount
+    /**
+     * Shift both bounds by the given milliseconds
+     *
+     * @param amount positive or negative milliseconds
      * @return DateTimeRange
-	 */
+     */
     public DateTimeRange addMillis(int amount) {
-    	MutableDateTime dtA = new MutableDateTime(this._lowerBound);
-    	MutableDateTime dtZ = new MutableDateTime(this._upperBound);
-    	dtA.addMillis(amount);
-    	dtZ.addMillis(amount);
-    	return new DateTimeRange(dtA,dtZ);
+        return _shift(amount);
     }
 
     /**
@@ -346,11 +387,7 @@ public class DateTimeRange {
      * @return DateTimeRange
      */
     public DateTimeRange addSeconds(int amount) {
-    	MutableDateTime dtA = new MutableDateTime(this._lowerBound);
-    	MutableDateTime dtZ = new MutableDateTime(this._upperBound);
-    	dtA.addSeconds(amount);
-    	dtZ.addSeconds(amount);
-    	return new DateTimeRange(dtA,dtZ);
+        return _shift((long)DateTime.MillisInSecond * amount);
     }
 
     /**
@@ -359,11 +396,7 @@ public class DateTimeRange {
      * @return DateTimeRange
      */
     public DateTimeRange addMinutes(int amount) {
-    	MutableDateTime dtA = new MutableDateTime(this._lowerBound);
-    	MutableDateTime dtZ = new MutableDateTime(this._upperBound);
-    	dtA.addMinutes(amount);
-    	dtZ.addMinutes(amount);
-    	return new DateTimeRange(dtA,dtZ);
+        return _shift((long)DateTime.MillisInMinute * amount);
     }
 
     /**
@@ -372,11 +405,7 @@ public class DateTimeRange {
      * @return DateTimeRange
      */
     public DateTimeRange addHours(int amount) {
-    	MutableDateTime dtA = new MutableDateTime(this._lowerBound);
-    	MutableDateTime dtZ = new MutableDateTime(this._upperBound);
-    	dtA.addHours(amount);
-    	dtZ.addHours(amount);
-    	return new DateTimeRange(dtA,dtZ);
+        return _shift((long)DateTime.MillisInHour * amount);
     }
 
 
@@ -386,25 +415,73 @@ public class DateTimeRange {
      * @return DateTimeRange
      */
     public DateTimeRange addDays(int amount) {
-    	MutableDateTime dtA = new MutableDateTime(this._lowerBound);
-    	MutableDateTime dtZ = new MutableDateTime(this._upperBound);
-    	dtA.addDays(amount);
-    	dtZ.addDays(amount);
-    	return new DateTimeRange(dtA,dtZ);
+        return _withBounds(RepUtil.addDays(_lowerBound, amount), RepUtil.addDays(_upperBound, amount));
     }
 
 
     /**
+     * Shift both bounds by business days, as <code>DateTime.addBusinessDays</code>.
+     * Holidays are tested against a single scratch datetime.
      *
      * @param amount
+     * @param holidays holiday predicate
      * @return DateTimeRange
      */
     public DateTimeRange addBusinessDays(int amount, DateTimePredicate holidays) {
-    	MutableDateTime dtA = new MutableDateTime(this._lowerBound);
-    	MutableDateTime dtZ = new MutableDateTime(this._upperBound);
-    	dtA.addBusinessDays(amount, holidays);
-    	dtZ.addBusinessDays(amount, holidays);
-    	return new DateTimeRange(dtA,dtZ);
+        MutableDateTime scratch = _scratch();
+        scratch.setRep(_lowerBound);
+        long lower = scratch.addBusinessDays(amount, holidays).rep();
+        scratch.setRep(_upperBound);
+        long upper = scratch.addBusinessDays(amount, holidays).rep();
+        return _withBounds(lower, upper);
+    }
+
+    /**
+     * Move lower bound earlier and upper bound later
+     *
+     * @param before milliseconds to subtract from lower bound
+     * @param after milliseconds to add to upper bound
+     * @return DateTimeRange
+     */
+    public DateTimeRange widen(long before, long after) {
+        return _withBounds(RepUtil.addMillis(_lowerBound, -before), RepUtil.addMillis(_upperBound, after));
+    }
+
+    /**
+     * Widen to whole calendar buckets, from the start of the bucket holding
+     * the lower bound to the last millisecond of the bucket holding the
+     * upper bound.
+     *
+     * @param unit DateTime unit (MILLISECOND..YEAR)
+     * @param length number of units per bucket
+     * @return DateTimeRange
+     * @see RepBuckets
+     */
+    public DateTimeRange widenTo(int unit, int length) {
+        long lower = RepBuckets.floor(_lowerBound, unit, length);
+        long upper = RepBuckets.next(RepBuckets.floor(_upperBound, unit, length), unit, length);
+        return _withBounds(lower, RepUtil.addMillis(upper, -1));
+    }
+
+    protected DateTimeRange _shift(long millis) {
+        return _withBounds(RepUtil.addMillis(_lowerBound, millis), RepUtil.addMillis(_upperBound, millis));
+    }
+
+    protected MutableDateTime _scratch() {
+        return new MutableDateTime(_lowerBound);
+    }
+
+    /**
+     * Serialize as the two bound reps; subclasses other than
+     * MutableDateTimeRange keep default serialization
+     *
+     * @return SerialRep proxy
+     * @see SerialRep
+     */
+    protected Object writeReplace() {
+        if (getClass() == DateTimeRange.class) return new SerialRep(SerialRep.RangeKind, _lowerBound, _upperBound);
+        if (getClass() == MutableDateTimeRange.class) return new SerialRep(SerialRep.MutableRangeKind, _lowerBound, _upperBound);
+        return this;
     }
     
     // -----------------------------------------------------------
@@ -418,15 +495,48 @@ public class DateTimeRange {
 	 * @return StringBuffer
 	 */
 	public StringBuffer toBuffer(StringBuffer strb) {
-        (new MutableDateTime(_lowerBound)).toBuffer(strb);
+        MutableDateTime dt = new MutableDateTime(_lowerBound);
+        dt.toBuffer(strb);
 		strb.append(" to ");
-        (new MutableDateTime(_upperBound)).toBuffer(strb);
+        dt.setRep(_upperBound);
+        dt.toBuffer(strb);
 		return strb;
 	}
+
+    /**
+     * Readable representation onto unsynchronized builder
+     *
+     * @param strb StringBuilder
+     * @return StringBuilder
+     */
+    public StringBuilder toBuilder(StringBuilder strb) {
+        MutableDateTime dt = new MutableDateTime(_lowerBound);
+        dt.toBuilder(strb);
+        strb.append(" to ");
+        dt.setRep(_upperBound);
+        dt.toBuilder(strb);
+        return strb;
+    }
+
+    /**
+     * Readable representation onto any Appendable
+     *
+     * @param out Appendable
+     * @return given Appendable
+     * @throws IOException from the Appendable
+     */
+    public <A extends Appendable> A appendTo(A out) throws IOException {
+        MutableDateTime dt = new MutableDateTime(_lowerBound);
+        dt.appendTo(out);
+        out.append(" to ");
+        dt.setRep(_upperBound);
+        dt.appendTo(out);
+        return out;
+    }
 	
 	/**
 	 * Answer string representation (debugging, etc)
 	 */
-	public String toString() { return toBuffer(new StringBuffer()).toString(); }
+	public String toString() { return toBuilder(new StringBuilder()).toString(); }
 
 }
@@ -0,0 +1,454 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.Collection;
+
+/**
+ * <p>
+ * Static index over many, possibly overlapping, datetime ranges. Ranges are
+ * identified by their position at construction. The index is a centered
+ * interval tree packed into primitive arrays: each node holds the ranges
+ * that contain its center, once ordered by lower bound and once by upper
+ * bound (descending), so a query only touches matching ranges plus one
+ * node per tree level.
+ * </p>
+ * <ul>
+ *     <li>Stabbing (all ranges containing a rep), O(log n + k)</li>
+ *     <li>Overlap (all ranges meeting a query range), O(log n + k)</li>
+ *     <li>Sweep over an ascending query stream, with active ranges kept in a min-heap on upper bound</li>
+ * </ul>
+ * Bounds are inclusive, matching <code>DateTimeRange.within</code>.
+ *
+ * @see DateTimeRangeSet
+ */
+public class DateTimeRangeIndex {
+
+    /**
+     * Callback for each matching range index
+     */
+    public interface Visitor {
+        public void visit(int range);
+    }
+
+    // -----------------------------------------------------------
+    // Creation
+    // -----------------------------------------------------------
+
+    /**
+     * Answer index over the given ranges, identified by array position
+     *
+     * @param ranges DateTimeRange instances
+     * @return DateTimeRangeIndex
+     */
+    public static DateTimeRangeIndex of(DateTimeRange... ranges) {
+        long[] lowers = new long[ranges.length];
+        long[] uppers = new long[ranges.length];
+        for(int i=0; i<ranges.length; i++) {
+            lowers[i] = ranges[i].lowerRep();
+            uppers[i] = ranges[i].upperRep();
+        }
+        return new DateTimeRangeIndex(lowers, uppers);
+    }
+
+    /**
+     * Answer index over the given ranges, identified by iteration order
+     *
+     * @param ranges DateTimeRange collection
+     * @return DateTimeRangeIndex
+     */
+    public static DateTimeRangeIndex of(Collection<DateTimeRange> ranges) {
+        return of(ranges.toArray(new DateTimeRange[ranges.size()]));
+    }
+
+    /**
+     * Answer index from bound pairs { lower0, upper0, lower1, upper1 ... }
+     *
+     * @param bounds inclusive rep bound pairs
+     * @return DateTimeRangeIndex
+     */
+    public static DateTimeRangeIndex fromBounds(long[] bounds) {
+        if ((bounds.length & 1) != 0) throw new IllegalArgumentException("Bounds must come in lower/upper pairs");
+        int n = bounds.length >> 1;
+        long[] lowers = new long[n];
+        long[] uppers = new long[n];
+        for(int i=0; i<n; i++) {
+            lowers[i] = bounds[2*i];
+            uppers[i] = bounds[2*i+1];
+        }
+        return new DateTimeRangeIndex(lowers, uppers);
+    }
+
+
+    protected long[]    _lowers;        // by range
+    protected long[]    _uppers;        // by range
+    protected int[]     _byLowerAll;    // all ranges, ascending lower bound
+    protected long[]    _sortedLowers;  // lower bound of _byLowerAll entries
+
+    protected long[]    _center;        // by node
+    protected int[]     _left;
+    protected int[]     _right;
+    protected int[]     _start;         // node segment in _byLower/_byUpper
+    protected int[]     _count;
+    protected int[]     _byLower;       // node segments, ascending lower bound
+    protected int[]     _byUpper;       // node segments, descending upper bound
+    protected int       _root;
+
+    private int         _nodes;
+    private int         _filled;
+
+    /**
+     * Parallel Bounds Constructor. Arrays are copied; reversed
+     * bounds are swapped as in DateTimeRange.
+     *
+     * @param lowers lower bound reps
+     * @param uppers upper bound reps
+     */
+    public DateTimeRangeIndex(long[] lowers, long[] uppers) {
+        if (lowers.length != uppers.length) throw new IllegalArgumentException("Bound columns differ in length");
+        int n = lowers.length;
+        _lowers = new long[n];
+        _uppers = new long[n];
+        for(int i=0; i<n; i++) {
+            _lowers[i] = Math.min(lowers[i], uppers[i]);
+            _uppers[i] = Math.max(lowers[i], uppers[i]);
+        }
+
+        _byLowerAll = new int[n];
+        for(int i=0; i<n; i++) _byLowerAll[i] = i;
+        _sortByKey(_byLowerAll, 0, n-1, _lowers);
+        _sortedLowers = new long[n];
+        for(int i=0; i<n; i++) _sortedLowers[i] = _lowers[_byLowerAll[i]];
+
+        _center = new long[n];
+        _left = new int[n];
+        _right = new int[n];
+        _start = new int[n];
+        _count = new int[n];
+        _byLower = new int[n];
+        _byUpper = new int[n];
+        _root = _build(_byLowerAll.clone(), 0, n, new int[n]);
+    }
+
+    // -----------------------------------------------------------
+    // Accessors
+    // -----------------------------------------------------------
+
+    public int size() { return _lowers.length; }
+
+    public long lowerRep(int range) { return _lowers[range]; }
+
+    public long upperRep(int range) { return _uppers[range]; }
+
+    public DateTimeRange range(int range) { return new DateTimeRange(_lowers[range], _uppers[range]); }
+
+    // -----------------------------------------------------------
+    // Queries
+    // -----------------------------------------------------------
+
+    /**
+     * Visit every range containing rep
+     *
+     * @param rep datetime long rep
+     * @param visitor callback per range (may be null to count only)
+     * @return int number of ranges containing rep
+     */
+    public int stab(long rep, Visitor visitor) {
+        return _stab(rep, visitor, null, 0);
+    }
+
+    /**
+     * Collect every range containing rep. When more ranges match than fit,
+     * the output is filled and the full count is still answered.
+     *
+     * @param rep datetime long rep
+     * @param out range indexes
+     * @return int number of ranges containing rep
+     */
+    public int stab(long rep, int[] out) {
+        return _stab(rep, null, out, 0);
+    }
+
+    /**
+     * Visit every range that shares at least one rep with [lower, upper]
+     *
+     * @param lower inclusive lower rep
+     * @param upper inclusive upper rep
+     * @param visitor callback per range (may be null to count only)
+     * @return int number of overlapping ranges
+     */
+    public int overlap(long lower, long upper, Visitor visitor) {
+        return _overlap(lower, upper, visitor, null);
+    }
+
+    /**
+     * Collect every range that shares at least one rep with [lower, upper]
+     *
+     * @param lower inclusive lower rep
+     * @param upper inclusive upper rep
+     * @param out range indexes
+     * @return int number of overlapping ranges
+     */
+    public int overlap(long lower, long upper, int[] out) {
+        return _overlap(lower, upper, null, out);
+    }
+
+    /**
+     * Visit every range that shares at least one rep with given range
+     *
+     * @param that DateTimeRange
+     * @param visitor callback per range (may be null to count only)
+     * @return int number of overlapping ranges
+     */
+    public int overlap(DateTimeRange that, Visitor visitor) {
+        return _overlap(that.lowerRep(), that.upperRep(), visitor, null);
+    }
+
+    /**
+     * Count active ranges for each rep of an ascending rep column
+     *
+     * @param reps rep column, ascending
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param out active range counts
+     * @param outOffset index of first count
+     * @return int total of all counts
+     */
+    public int stab(long[] reps, int offset, int count, int[] out, int outOffset) {
+        Sweep sweep = sweep();
+        int total = 0;
+        for(int i=0; i<count; i++) {
+            int active = sweep.advance(reps[offset + i]);
+            out[outOffset + i] = active;
+            total += active;
+        }
+        return total;
+    }
+
+    /**
+     * Answer new sweep positioned before the earliest range
+     *
+     * @return Sweep
+     */
+    public Sweep sweep() { return new Sweep(); }
+
+    // -----------------------------------------------------------
+    // Sweep
+    // -----------------------------------------------------------
+
+    /**
+     * <p>
+     * Cursor for an ascending stream of query reps, such as ticks. Ranges
+     * enter in lower bound order and leave from a min-heap keyed on upper
+     * bound, so each range is pushed and popped once over the whole stream.
+     * </p>
+     * <pre>
+     *     DateTimeRangeIndex.Sweep sweep = index.sweep();
+     *     for(long tick : ticks) {
+     *         int n = sweep.advance(tick);
+     *         for(int i=0; i&lt;n; i++) halted(sweep.active(i));
+     *     }
+     * </pre>
+     */
+    public class Sweep {
+
+        protected int[]     _heap = new int[Math.max(1, _lowers.length)];
+        protected int       _size;
+        protected int       _next;
+        protected long      _last = Long.MIN_VALUE;
+
+        /**
+         * Advance to rep, which must not be below the previous one
+         *
+         * @param rep datetime long rep
+         * @return int number of active ranges
+         */
+        public int advance(long rep) {
+            if (rep < _last) throw new IllegalArgumentException("Sweep reps must be ascending");
+            _last = rep;
+            while(_next < _sortedLowers.length && _sortedLowers[_next] <= rep) _push(_byLowerAll[_next++]);
+            while(_size > 0 && _uppers[_heap[0]] < rep) _pop();
+            return _size;
+        }
+
+        /**
+         * Answer number of ranges containing the current rep
+         *
+         * @return int
+         */
+        public int active() { return _size; }
+
+        /**
+         * Answer active range, in no particular order
+         *
+         * @param i 0 .. active()-1
+         * @return int range index
+         */
+        public int active(int i) { return _heap[i]; }
+
+        private void _push(int range) {
+            long key = _uppers[range];
+            int i = _size++;
+            while(i > 0) {
+                int parent = (i - 1) >> 1;
+                if (_uppers[_heap[parent]] <= key) break;
+                _heap[i] = _heap[parent];
+                i = parent;
+            }
+            _heap[i] = range;
+        }
+
+        private void _pop() {
+            int last = _heap[--_size];
+            long key = _uppers[last];
+            int i = 0;
+            int half = _size >> 1;
+            while(i < half) {
+                int child = 2*i + 1;
+                if (child + 1 < _size && _uppers[_heap[child+1]] < _uppers[_heap[child]]) child++;
+                if (key <= _uppers[_heap[child]]) break;
+                _heap[i] = _heap[child];
+                i = child;
+            }
+            _heap[i] = last;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Support
+    // -----------------------------------------------------------
+
+    private int _stab(long rep, Visitor visitor, int[] out, int found) {
+        int node = _root;
+        while(node >= 0) {
+            int s = _start[node];
+            int e = s + _count[node];
+            long center = _center[node];
+            if (rep < center) {
+                for(int i=s; i<e && _lowers[_byLower[i]] <= rep; i++) found = _report(_byLower[i], found, visitor, out);
+                node = _left[node];
+            } else if (rep > center) {
+                for(int i=s; i<e && _uppers[_byUpper[i]] >= rep; i++) found = _report(_byUpper[i], found, visitor, out);
+                node = _right[node];
+            } else {
+                for(int i=s; i<e; i++) found = _report(_byLower[i], found, visitor, out);
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Ranges overlapping [lower, upper] either contain lower, or
+     * start strictly after lower and no later than upper.
+     */
+    private int _overlap(long lower, long upper, Visitor visitor, int[] out) {
+        if (upper < lower) return 0;
+        int found = _stab(lower, visitor, out, 0);
+        int lo = 0;
+        int hi = _sortedLowers.length;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (_sortedLowers[mid] <= lower) lo = mid + 1; else hi = mid;
+        }
+        for(int i=lo; i<_sortedLowers.length && _sortedLowers[i] <= upper; i++) found = _report(_byLowerAll[i], found, visitor, out);
+        return found;
+    }
+
+    private static int _report(int range, int found, Visitor visitor, int[] out) {
+        if (visitor != null) visitor.visit(range);
+        if (out != null && found < out.length) out[found] = range;
+        return found + 1;
+    }
+
+    /**
+     * Build node over ids[from,to), which are sorted by lower bound. The
+     * center is the lower bound of the middle range, so neither side can
+     * hold more than half the ranges and the depth stays logarithmic.
+     */
+    private int _build(int[] ids, int from, int to, int[] scratch) {
+        if (from >= to) return -1;
+        int node = _nodes++;
+        long center = _lowers[ids[(from + to) >>> 1]];
+        int start = _filled;
+        int nl = 0;
+        int nr = 0;
+        for(int i=from; i<to; i++) {
+            int id = ids[i];
+            if (_uppers[id] < center)       ids[from + nl++] = id;
+            else if (_lowers[id] > center)  scratch[nr++] = id;
+            else                            _byLower[_filled++] = id;
+        }
+        System.arraycopy(scratch, 0, ids, from + nl, nr);
+
+        int count = _filled - start;
+        System.arraycopy(_byLower, start, _byUpper, start, count);
+        _sortByKey(_byUpper, start, start + count - 1, _uppers);
+        for(int i=start, j=start+count-1; i<j; i++, j--) {
+            int tmp = _byUpper[i];
+            _byUpper[i] = _byUpper[j];
+            _byUpper[j] = tmp;
+        }
+
+        _center[node] = center;
+        _start[node] = start;
+        _count[node] = count;
+        _left[node] = _build(ids, from, from + nl, scratch);
+        _right[node] = _build(ids, from + nl, from + nl + nr, scratch);
+        return node;
+    }
+
+    /**
+     * Quicksort of range ids ascending by key, on positions lo..hi
+     */
+    private static void _sortByKey(int[] ids, int lo, int hi, long[] keys) {
+        while(lo < hi) {
+            long pivot = keys[ids[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+            while(i <= j) {
+                while(keys[ids[i]] < pivot) i++;
+                while(keys[ids[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = ids[i];
+                    ids[i++] = ids[j];
+                    ids[j--] = tmp;
+                }
+            }
+            if (j - lo < hi - i) {
+                _sortByKey(ids, lo, j, keys);
+                lo = i;
+            } else {
+                _sortByKey(ids, i, hi, keys);
+                hi = j;
+            }
+        }
+    }
+}
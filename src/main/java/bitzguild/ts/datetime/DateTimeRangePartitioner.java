@@ -0,0 +1,207 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Splits a datetime range into contiguous sub-ranges for parallel work.
+ * Every split answers a primitive array of inclusive bound pairs
+ * <code>{ lower0, upper0, lower1, upper1, ... }</code> in ascending order,
+ * the same layout used by <code>DateTimeRangeSet.fromBounds</code>. No
+ * DateTime objects are created, except a single scratch instance for
+ * holiday tests.
+ * </p>
+ * <pre>
+ *     long[] days = DateTimeRangePartitioner.calendar(range, DateTime.DAY, 1);
+ *     Long rows = pool.invoke(new DateTimeRangeTask&lt;Long&gt;(backfill, days));
+ * </pre>
+ *
+ * @see DateTimeRangeTask
+ */
+public class DateTimeRangePartitioner {
+
+    // -----------------------------------------------------------
+    // Balanced
+    // -----------------------------------------------------------
+
+    public static long[] balanced(DateTimeRange range, int parts) {
+        return balanced(range.lowerRep(), range.upperRep(), parts);
+    }
+
+    /**
+     * Split into parts of equal elapsed time (to the millisecond). Fewer parts
+     * are answered when the range holds fewer milliseconds than requested.
+     *
+     * @param lower inclusive lower rep
+     * @param upper inclusive upper rep
+     * @param parts number of sub-ranges (1 or more)
+     * @return long[] bound pairs
+     */
+    public static long[] balanced(long lower, long upper, int parts) {
+        if (parts < 1) throw new IllegalArgumentException("Parts must be positive, was " + parts);
+        long from = RepUtil.absoluteMillis(lower);
+        long span = RepUtil.absoluteMillis(upper) - from + 1;
+        if (span <= 0) return new long[0];
+        int n = (int)Math.min(parts, span);
+        long[] bounds = new long[2*n];
+        long start = lower;
+        for(int i=1; i<=n; i++) {
+            long cut = from + (span / n) * i + (span % n) * i / n;
+            bounds[2*i-2] = start;
+            bounds[2*i-1] = (i == n) ? upper : RepUtil.fromAbsoluteMillis(cut - 1);
+            start = RepUtil.fromAbsoluteMillis(cut);
+        }
+        return bounds;
+    }
+
+    // -----------------------------------------------------------
+    // Calendar
+    // -----------------------------------------------------------
+
+    public static long[] calendar(DateTimeRange range, int unit, int length) {
+        return calendar(range.lowerRep(), range.upperRep(), unit, length);
+    }
+
+    /**
+     * Split at calendar bucket boundaries, as defined by RepBuckets. The first
+     * and last sub-ranges are clipped to the given bounds.
+     *
+     * @param lower inclusive lower rep
+     * @param upper inclusive upper rep
+     * @param unit DateTime unit (MILLISECOND..YEAR)
+     * @param length number of units per sub-range
+     * @return long[] bound pairs
+     */
+    public static long[] calendar(long lower, long upper, int unit, int length) {
+        if (upper < lower) return new long[0];
+        long[] bounds = new long[16];
+        int k = 0;
+        long start = lower;
+        long boundary = RepBuckets.next(RepBuckets.floor(lower, unit, length), unit, length);
+        while(boundary <= upper) {
+            if (k == bounds.length) bounds = Arrays.copyOf(bounds, 2*k);
+            bounds[k++] = start;
+            bounds[k++] = RepUtil.addMillis(boundary, -1);
+            start = boundary;
+            boundary = RepBuckets.next(boundary, unit, length);
+        }
+        if (k == bounds.length) bounds = Arrays.copyOf(bounds, k + 2);
+        bounds[k++] = start;
+        bounds[k++] = upper;
+        return (k == bounds.length) ? bounds : Arrays.copyOf(bounds, k);
+    }
+
+    public static long[] businessDays(DateTimeRange range, DateTimePredicate holidays) {
+        return businessDays(range.lowerRep(), range.upperRep(), holidays);
+    }
+
+    /**
+     * Split into one sub-range per business day, skipping weekends and
+     * holidays. The first and last days are clipped to the given bounds.
+     *
+     * @param lower inclusive lower rep
+     * @param upper inclusive upper rep
+     * @param holidays holiday predicate (may be null for weekends only)
+     * @return long[] bound pairs
+     */
+    public static long[] businessDays(long lower, long upper, DateTimePredicate holidays) {
+        if (upper < lower) return new long[0];
+        MutableDateTime scratch = (holidays == null) ? null : new MutableDateTime();
+        long[] bounds = new long[16];
+        int k = 0;
+        long lastDay = RepUtil.dateOnly(upper);
+        for(long day = RepUtil.dateOnly(lower); day <= lastDay; day = RepUtil.addDays(day, 1)) {
+            if (RepUtil.dayOfWeek(day) > 4) continue;
+            if (scratch != null) {
+                scratch.setRep(day);
+                if (holidays.apply(scratch)) continue;
+            }
+            if (k == bounds.length) bounds = Arrays.copyOf(bounds, 2*k);
+            bounds[k++] = Math.max(lower, day);
+            bounds[k++] = Math.min(upper, day | (DateTime.MillisInDay - 1));
+        }
+        return (k == bounds.length) ? bounds : Arrays.copyOf(bounds, k);
+    }
+
+    // -----------------------------------------------------------
+    // Cost
+    // -----------------------------------------------------------
+
+    /**
+     * Split so that each sub-range holds about the same number of reps from
+     * a sorted column, e.g. tick timestamps, when work is proportional to
+     * rows rather than elapsed time. Cuts never separate equal reps, so
+     * fewer parts may be answered; an empty column answers the whole range.
+     *
+     * @param lower inclusive lower rep
+     * @param upper inclusive upper rep
+     * @param parts number of sub-ranges (1 or more)
+     * @param reps rep column, ascending
+     * @param offset index of first rep
+     * @param count number of reps
+     * @return long[] bound pairs
+     */
+    public static long[] byCost(long lower, long upper, int parts, long[] reps, int offset, int count) {
+        if (parts < 1) throw new IllegalArgumentException("Parts must be positive, was " + parts);
+        if (upper < lower) return new long[0];
+        if (count == 0) return new long[] { lower, upper };
+        long[] bounds = new long[2*parts];
+        int k = 0;
+        long start = lower;
+        for(int i=1; i<parts; i++) {
+            long cut = reps[offset + (int)((long)count * i / parts)];
+            if (cut <= start || cut > upper) continue;
+            bounds[k++] = start;
+            bounds[k++] = RepUtil.addMillis(cut, -1);
+            start = cut;
+        }
+        bounds[k++] = start;
+        bounds[k++] = upper;
+        return (k == bounds.length) ? bounds : Arrays.copyOf(bounds, k);
+    }
+
+    // -----------------------------------------------------------
+    // Support
+    // -----------------------------------------------------------
+
+    /**
+     * Answer sub-range for a pair index of a partition
+     *
+     * @param bounds bound pairs
+     * @param index pair index
+     * @return DateTimeRange
+     */
+    public static DateTimeRange range(long[] bounds, int index) {
+        return new DateTimeRange(bounds[2*index], bounds[2*index+1]);
+    }
+}
@@ -0,0 +1,433 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * <p>
+ * Non-mutable set of disjoint datetime ranges, stored as a sorted primitive
+ * array of bound pairs <code>{ lower0, upper0, lower1, upper1, ... }</code>.
+ * Bounds are inclusive, matching <code>DateTimeRange.within</code>.
+ * Overlapping or touching ranges are coalesced on construction, so every
+ * set has a single canonical form.
+ * </p>
+ * <ul>
+ *     <li>Membership of a single rep is a binary search, O(log n)</li>
+ *     <li>Union, intersection and difference are linear merges, O(n + m)</li>
+ *     <li>Membership of a sorted rep column is a single sweep, O(n + k)</li>
+ * </ul>
+ *
+ * @see DateTimeRange
+ */
+public final class DateTimeRangeSet {
+
+    public static final DateTimeRangeSet EMPTY = new DateTimeRangeSet(new long[0]);
+
+    // -----------------------------------------------------------
+    // Creation
+    // -----------------------------------------------------------
+
+    /**
+     * Answer set covering the given ranges
+     *
+     * @param ranges DateTimeRange instances in any order
+     * @return DateTimeRangeSet
+     */
+    public static DateTimeRangeSet of(DateTimeRange... ranges) {
+        long[] bounds = new long[ranges.length * 2];
+        for(int i=0; i<ranges.length; i++) {
+            bounds[2*i] = ranges[i].lowerRep();
+            bounds[2*i+1] = ranges[i].upperRep();
+        }
+        return new DateTimeRangeSet(_normalize(bounds, bounds.length));
+    }
+
+    /**
+     * Answer set covering the given ranges
+     *
+     * @param ranges DateTimeRange collection in any order
+     * @return DateTimeRangeSet
+     */
+    public static DateTimeRangeSet of(Collection<DateTimeRange> ranges) {
+        return of(ranges.toArray(new DateTimeRange[ranges.size()]));
+    }
+
+    /**
+     * Answer set from bound pairs { lower0, upper0, lower1, upper1 ... }.
+     * Pairs may be in any order and may overlap. The array is copied.
+     *
+     * @param bounds inclusive rep bound pairs
+     * @return DateTimeRangeSet
+     */
+    public static DateTimeRangeSet fromBounds(long[] bounds) {
+        if ((bounds.length & 1) != 0) throw new IllegalArgumentException("Bounds must come in lower/upper pairs");
+        return new DateTimeRangeSet(_normalize(bounds.clone(), bounds.length));
+    }
+
+
+    private final long[] _bounds;
+
+    private DateTimeRangeSet(long[] normalizedBounds) {
+        _bounds = normalizedBounds;
+    }
+
+    // -----------------------------------------------------------
+    // Accessors
+    // -----------------------------------------------------------
+
+    public int size() { return _bounds.length >> 1; }
+
+    public boolean isEmpty() { return _bounds.length == 0; }
+
+    public long lowerRep(int index) { return _bounds[2*index]; }
+
+    public long upperRep(int index) { return _bounds[2*index+1]; }
+
+    public DateTimeRange range(int index) { return new DateTimeRange(_bounds[2*index], _bounds[2*index+1]); }
+
+    /**
+     * Answer copy of the sorted bound pairs
+     *
+     * @return long[]
+     */
+    public long[] toBounds() { return _bounds.clone(); }
+
+    /**
+     * Answer range from lowest to highest bound, or null when empty
+     *
+     * @return DateTimeRange
+     */
+    public DateTimeRange span() {
+        if (isEmpty()) return null;
+        return new DateTimeRange(_bounds[0], _bounds[_bounds.length-1]);
+    }
+
+    // -----------------------------------------------------------
+    // Queries
+    // -----------------------------------------------------------
+
+    /**
+     * Answer index of range containing rep, or -1
+     *
+     * @param rep datetime long rep
+     * @return int range index
+     */
+    public int indexOf(long rep) {
+        int i = _floorIndex(rep);
+        return (i >= 0 && rep <= _bounds[2*i+1]) ? i : -1;
+    }
+
+    /**
+     * Answer whether given datetime rep lies within one of our ranges
+     *
+     * @param rep datetime long rep
+     * @return boolean
+     */
+    public boolean within(long rep) {
+        return indexOf(rep) >= 0;
+    }
+
+    /**
+     * Answer whether given datetime lies within one of our ranges
+     *
+     * @param test DateTime
+     * @return boolean
+     */
+    public boolean within(DateTime test) {
+        return within(test.rep());
+    }
+
+    /**
+     * Answer whether given range falls entirely within one of our ranges
+     *
+     * @param that DateTimeRange
+     * @return boolean
+     */
+    public boolean contains(DateTimeRange that) {
+        int i = indexOf(that.lowerRep());
+        return i >= 0 && that.upperRep() <= _bounds[2*i+1];
+    }
+
+    /**
+     * Answer whether given range overlaps at least one of our ranges
+     *
+     * @param that DateTimeRange
+     * @return boolean
+     */
+    public boolean intersects(DateTimeRange that) {
+        int i = _floorIndex(that.upperRep());
+        return i >= 0 && _bounds[2*i+1] >= that.lowerRep();
+    }
+
+    /**
+     * Membership for a sorted rep column in a single sweep. Out of order
+     * reps are tolerated and fall back to a binary search.
+     *
+     * @param reps rep column, ascending
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param out membership flags
+     * @param outOffset index of first flag
+     * @return int number of reps within the set
+     */
+    public int within(long[] reps, int offset, int count, boolean[] out, int outOffset) {
+        int hits = 0;
+        int n = size();
+        int r = 0;
+        long prior = Long.MIN_VALUE;
+        for(int i=0; i<count; i++) {
+            long rep = reps[offset + i];
+            if (rep < prior) r = Math.max(0, _floorIndex(rep));
+            prior = rep;
+            while(r < n && _bounds[2*r+1] < rep) r++;
+            boolean inside = r < n && _bounds[2*r] <= rep;
+            out[outOffset + i] = inside;
+            if (inside) hits++;
+        }
+        return hits;
+    }
+
+    // -----------------------------------------------------------
+    // Set Arithmetic
+    // -----------------------------------------------------------
+
+    /**
+     * Answer set covering reps in either set
+     *
+     * @param that DateTimeRangeSet
+     * @return DateTimeRangeSet
+     */
+    public DateTimeRangeSet union(DateTimeRangeSet that) {
+        if (that.isEmpty()) return this;
+        if (this.isEmpty()) return that;
+        long[] a = this._bounds, b = that._bounds;
+        long[] merged = new long[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while(i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                merged[k++] = a[i++];
+                merged[k++] = a[i++];
+            } else {
+                merged[k++] = b[j++];
+                merged[k++] = b[j++];
+            }
+        }
+        return new DateTimeRangeSet(_coalesce(merged, k));
+    }
+
+    /**
+     * Answer set covering reps in both sets
+     *
+     * @param that DateTimeRangeSet
+     * @return DateTimeRangeSet
+     */
+    public DateTimeRangeSet intersection(DateTimeRangeSet that) {
+        long[] a = this._bounds, b = that._bounds;
+        long[] out = new long[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while(i < a.length && j < b.length) {
+            long lower = Math.max(a[i], b[j]);
+            long upper = Math.min(a[i+1], b[j+1]);
+            if (lower <= upper) {
+                out[k++] = lower;
+                out[k++] = upper;
+            }
+            if (a[i+1] < b[j+1]) i += 2; else j += 2;
+        }
+        return _wrap(out, k);
+    }
+
+    /**
+     * Answer set covering reps in this set but not in the given set
+     *
+     * @param that DateTimeRangeSet
+     * @return DateTimeRangeSet
+     */
+    public DateTimeRangeSet difference(DateTimeRangeSet that) {
+        if (that.isEmpty() || this.isEmpty()) return this;
+        long[] a = this._bounds, b = that._bounds;
+        long[] out = new long[a.length + b.length];
+        int j = 0, k = 0;
+        for(int i=0; i<a.length; i+=2) {
+            long current = a[i];
+            long upper = a[i+1];
+            while(j < b.length && b[j+1] < current) j += 2;
+            for(int m=j; m < b.length && b[m] <= upper; m += 2) {
+                if (b[m] > current) {
+                    out[k++] = current;
+                    out[k++] = RepUtil.addMillis(b[m], -1);
+                }
+                current = Math.max(current, RepUtil.addMillis(b[m+1], 1));
+                if (current > upper) break;
+            }
+            if (current <= upper) {
+                out[k++] = current;
+                out[k++] = upper;
+            }
+        }
+        return _wrap(out, k);
+    }
+
+    public DateTimeRangeSet union(DateTimeRange that) { return union(of(that)); }
+    public DateTimeRangeSet intersection(DateTimeRange that) { return intersection(of(that)); }
+    public DateTimeRangeSet difference(DateTimeRange that) { return difference(of(that)); }
+
+    // -----------------------------------------------------------
+    // Object
+    // -----------------------------------------------------------
+
+    public boolean equals(Object o) {
+        return (o instanceof DateTimeRangeSet) && Arrays.equals(_bounds, ((DateTimeRangeSet)o)._bounds);
+    }
+
+    public int hashCode() { return Arrays.hashCode(_bounds); }
+
+    /**
+     * Readable representation
+     *
+     * @param strb StringBuffer
+     * @return StringBuffer
+     */
+    public StringBuffer toBuffer(StringBuffer strb) {
+        strb.append('[');
+        for(int i=0; i<size(); i++) {
+            if (i > 0) strb.append(", ");
+            range(i).toBuffer(strb);
+        }
+        return strb.append(']');
+    }
+
+    /**
+     * Readable representation onto unsynchronized builder
+     *
+     * @param strb StringBuilder
+     * @return StringBuilder
+     */
+    public StringBuilder toBuilder(StringBuilder strb) {
+        strb.append('[');
+        for(int i=0; i<size(); i++) {
+            if (i > 0) strb.append(", ");
+            range(i).toBuilder(strb);
+        }
+        return strb.append(']');
+    }
+
+    public String toString() { return toBuilder(new StringBuilder()).toString(); }
+
+    // -----------------------------------------------------------
+    // Support
+    // -----------------------------------------------------------
+
+    /**
+     * Answer index of last range whose lower bound is at or below rep, or -1
+     */
+    private int _floorIndex(long rep) {
+        int lo = 0;
+        int hi = size() - 1;
+        while(lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (_bounds[2*mid] <= rep) lo = mid + 1; else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    private static DateTimeRangeSet _wrap(long[] bounds, int length) {
+        if (length == 0) return EMPTY;
+        return new DateTimeRangeSet(length == bounds.length ? bounds : Arrays.copyOf(bounds, length));
+    }
+
+    /**
+     * Order each pair, sort pairs by lower bound and coalesce
+     */
+    private static long[] _normalize(long[] bounds, int length) {
+        boolean sorted = true;
+        for(int i=0; i<length; i+=2) {
+            if (bounds[i] > bounds[i+1]) {
+                long tmp = bounds[i];
+                bounds[i] = bounds[i+1];
+                bounds[i+1] = tmp;
+            }
+            if (i > 0 && bounds[i-2] > bounds[i]) sorted = false;
+        }
+        if (!sorted) _sortPairs(bounds, 0, (length >> 1) - 1);
+        return _coalesce(bounds, length);
+    }
+
+    /**
+     * Merge overlapping or touching pairs of a sorted pair array
+     */
+    private static long[] _coalesce(long[] bounds, int length) {
+        if (length == 0) return new long[0];
+        int k = 0;
+        for(int i=2; i<length; i+=2) {
+            if (bounds[i] <= RepUtil.addMillis(bounds[k+1], 1)) {
+                bounds[k+1] = Math.max(bounds[k+1], bounds[i+1]);
+            } else {
+                k += 2;
+                bounds[k] = bounds[i];
+                bounds[k+1] = bounds[i+1];
+            }
+        }
+        return (k + 2 == bounds.length) ? bounds : Arrays.copyOf(bounds, k + 2);
+    }
+
+    /**
+     * Quicksort of bound pairs by lower bound, on pair indexes lo..hi
+     */
+    private static void _sortPairs(long[] b, int lo, int hi) {
+        while(lo < hi) {
+            long pivot = b[2 * ((lo + hi) >>> 1)];
+            int i = lo, j = hi;
+            while(i <= j) {
+                while(b[2*i] < pivot) i++;
+                while(b[2*j] > pivot) j--;
+                if (i <= j) {
+                    long t0 = b[2*i], t1 = b[2*i+1];
+                    b[2*i] = b[2*j];
+                    b[2*i+1] = b[2*j+1];
+                    b[2*j] = t0;
+                    b[2*j+1] = t1;
+                    i++;
+                    j--;
+                }
+            }
+            if (j - lo < hi - i) {
+                _sortPairs(b, lo, j);
+                lo = i;
+            } else {
+                _sortPairs(b, i, hi);
+                hi = j;
+            }
+        }
+    }
+}
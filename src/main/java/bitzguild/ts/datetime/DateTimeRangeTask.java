@@ -0,0 +1,130 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>
+ * Fork/join task over a partition of bound pairs, as answered by
+ * DateTimeRangePartitioner. The pairs are split in half recursively until
+ * a leaf holds at most <code>threshold</code> pairs; each pair is handed to
+ * the Work, and results are combined in ascending time order.
+ * </p>
+ * <pre>
+ *     DateTimeRangeTask.Work&lt;Long&gt; backfill = new DateTimeRangeTask.Work&lt;Long&gt;() {
+ *         public Long compute(long lower, long upper) { return load(lower, upper); }
+ *         public Long combine(Long left, Long right) { return left + right; }
+ *     };
+ *     Long rows = DateTimeRangeTask.invoke(pool, backfill, DateTimeRangePartitioner.calendar(range, DateTime.MONTH, 1));
+ * </pre>
+ *
+ * @param <V> result type
+ */
+public class DateTimeRangeTask<V> extends RecursiveTask<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Work per sub-range and the reduction of adjacent results
+     *
+     * @param <V> result type
+     */
+    public interface Work<V> {
+        public V compute(long lower, long upper);
+        public V combine(V earlier, V later);
+    }
+
+    /**
+     * Answer combined result of running work over a partition
+     *
+     * @param pool ForkJoinPool
+     * @param work Work
+     * @param bounds bound pairs
+     * @param <V> result type
+     * @return V combined result, or null for an empty partition
+     */
+    public static <V> V invoke(ForkJoinPool pool, Work<V> work, long[] bounds) {
+        return pool.invoke(new DateTimeRangeTask<V>(work, bounds));
+    }
+
+
+    protected final Work<V>     _work;
+    protected final long[]      _bounds;
+    protected final int         _from;      // first pair index
+    protected final int         _to;        // pair index past last
+    protected final int         _threshold;
+
+    /**
+     * Whole Partition Constructor, one pair per leaf
+     *
+     * @param work Work
+     * @param bounds bound pairs
+     */
+    public DateTimeRangeTask(Work<V> work, long[] bounds) {
+        this(work, bounds, 0, bounds.length >> 1, 1);
+    }
+
+    /**
+     * Slice Constructor
+     *
+     * @param work Work
+     * @param bounds bound pairs
+     * @param from first pair index
+     * @param to pair index past last
+     * @param threshold maximum pairs computed sequentially
+     */
+    public DateTimeRangeTask(Work<V> work, long[] bounds, int from, int to, int threshold) {
+        _work = work;
+        _bounds = bounds;
+        _from = from;
+        _to = to;
+        _threshold = Math.max(1, threshold);
+    }
+
+    protected V compute() {
+        if (_to - _from <= _threshold) {
+            V result = null;
+            for(int i=_from; i<_to; i++) {
+                V part = _work.compute(_bounds[2*i], _bounds[2*i+1]);
+                result = (i == _from) ? part : _work.combine(result, part);
+            }
+            return result;
+        }
+        int mid = (_from + _to) >>> 1;
+        DateTimeRangeTask<V> earlier = new DateTimeRangeTask<V>(_work, _bounds, _from, mid, _threshold);
+        DateTimeRangeTask<V> later = new DateTimeRangeTask<V>(_work, _bounds, mid, _to, _threshold);
+        later.fork();
+        V left = earlier.compute();
+        return _work.combine(left, later.join());
+    }
+}
@@ -0,0 +1,103 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+
+/**
+ * <p>
+ * Parsing API that answers datetime reps directly from character slices.
+ * Implementations scan the given range in place, so no substrings,
+ * boxed numbers or DateTime objects are created per value. This suits
+ * column loaders that hold a whole line or file in one buffer.
+ * </p>
+ * <p>
+ * The <code>tryParseRep</code> variants never throw. Malformed input answers
+ * <code>RepUtil.InvalidRep</code> and sets the position error index, so
+ * dirty feeds can be validated row by row without creating exceptions.
+ * The throwing variants wrap them.
+ * </p>
+ * <pre>
+ *     long rep = parser.tryParseRep(line, start, length, pos);
+ *     if (rep == RepUtil.InvalidRep) rejects.add(row, pos.getErrorIndex());
+ * </pre>
+ *
+ * @see DateTimeFormat
+ */
+public interface DateTimeRepParser {
+
+    /**
+     * Parse characters [offset, offset+length) into a rep
+     *
+     * @param text characters to parse
+     * @param offset index of first character
+     * @param length number of characters
+     * @return long datetime rep
+     * @throws ParseException with error offset on malformed input
+     */
+    long parseRep(CharSequence text, int offset, int length) throws ParseException;
+
+    /**
+     * Parse characters [offset, offset+length) into a rep
+     *
+     * @param text characters to parse
+     * @param offset index of first character
+     * @param length number of characters
+     * @return long datetime rep
+     * @throws ParseException with error offset on malformed input
+     */
+    long parseRep(char[] text, int offset, int length) throws ParseException;
+
+    /**
+     * Parse characters [offset, offset+length) into a rep without throwing.
+     * On success the position index is set to offset+length.
+     *
+     * @param text characters to parse
+     * @param offset index of first character
+     * @param length number of characters
+     * @param position error index set on malformed input
+     * @return long datetime rep, or RepUtil.InvalidRep
+     */
+    long tryParseRep(CharSequence text, int offset, int length, ParsePosition position);
+
+    /**
+     * Parse characters [offset, offset+length) into a rep without throwing.
+     * On success the position index is set to offset+length.
+     *
+     * @param text characters to parse
+     * @param offset index of first character
+     * @param length number of characters
+     * @param position error index set on malformed input
+     * @return long datetime rep, or RepUtil.InvalidRep
+     */
+    long tryParseRep(char[] text, int offset, int length, ParsePosition position);
+}
@@ -80,6 +80,37 @@ public class ImmutableDateTime extends AbstractDateTime implements java.io.Seria
 
 	public static final boolean DEBUG = false;
 
+    private static volatile InternedDates DefaultInternedDates;
+
+    /**
+     * Shared table for the default year window, created on first use
+     * of ofDate, so programs that never intern do not allocate it
+     */
+    private static final class DefaultTable {
+        static final InternedDates Dates = new InternedDates();
+    }
+
+    /**
+     * Set table used by ofDate, e.g. for a different year window.
+     * Null restores the shared default table.
+     *
+     * @param dates InternedDates, or null
+     * @return prior InternedDates
+     */
+    public static InternedDates internedDates(InternedDates dates) {
+        InternedDates prior = getInternedDates();
+        DefaultInternedDates = dates;
+        return prior;
+    }
+
+    /**
+     * @return InternedDates used by ofDate
+     */
+    public static InternedDates getInternedDates() {
+        InternedDates dates = DefaultInternedDates;
+        return (dates != null) ? dates : DefaultTable.Dates;
+    }
+
 
 	// --------------------------------------------
 	// Attributes
@@ -189,17 +220,38 @@ public class ImmutableDateTime extends AbstractDateTime implements java.io.Seria
      * @return ImmutableDateTime now
      */
     public static ImmutableDateTime now() {
-        java.util.Calendar cal = java.util.Calendar.getInstance();
-        ImmutableDateTime dt = ImmutableDateTime.yearMonthDay(
-                cal.get(java.util.Calendar.YEAR),
-                cal.get(java.util.Calendar.MONTH) + 1,
-                cal.get(java.util.Calendar.DAY_OF_MONTH)
-        );
-        dt._time = (cal.get(java.util.Calendar.HOUR_OF_DAY) * MillisInHour)
-                + (cal.get(java.util.Calendar.MINUTE) * MillisInMinute)
-                + (cal.get(java.util.Calendar.SECOND) * MillisInSecond)
-                + cal.get(java.util.Calendar.MILLISECOND);
-        return dt;
+        return new ImmutableDateTime(DefaultClock.nowRep());
+    }
+
+    /**
+     * Create a new datetime set to the clock's current time
+     *
+     * @param clock DateTimeClock
+     * @return ImmutableDateTime now
+     */
+    public static ImmutableDateTime now(DateTimeClock clock) {
+        return new ImmutableDateTime(clock.nowRep());
+    }
+
+    /**
+     * Answer datetime for milliseconds since 1970-01-01T00:00 UTC, in UTC
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return ImmutableDateTime
+     */
+    public static ImmutableDateTime fromEpochMillis(long epochMillis) {
+        return new ImmutableDateTime(RepUtil.fromEpochMillis(epochMillis));
+    }
+
+    /**
+     * Answer local datetime for epoch millis at a fixed UTC offset
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @param offsetMillis local offset from UTC
+     * @return ImmutableDateTime
+     */
+    public static ImmutableDateTime fromEpochMillis(long epochMillis, int offsetMillis) {
+        return new ImmutableDateTime(RepUtil.fromEpochMillis(epochMillis, offsetMillis));
     }
 
     /**
@@ -214,6 +266,32 @@ public class ImmutableDateTime extends AbstractDateTime implements java.io.Seria
         return new ImmutableDateTime(iyear,monthIndex,dayIndex);
     }
 
+    /**
+     * Answer shared ImmutableDateTime at midnight of the given date.
+     * Within the interned year window the same instance is answered
+     * for every call, so daily data can compare dates by identity.
+     *
+     * @param iyear integer year
+     * @param monthIndex integer month (1..12)
+     * @param dayIndex integer day (1..28+)
+     * @return ImmutableDateTime
+     * @see InternedDates
+     */
+    public static ImmutableDateTime ofDate(int iyear, int monthIndex, int dayIndex) {
+        return getInternedDates().ofDate(iyear, monthIndex, dayIndex);
+    }
+
+    /**
+     * Answer shared ImmutableDateTime at midnight of the date int rep
+     *
+     * @param intRep date part of a rep, as RepUtil.intRep
+     * @return ImmutableDateTime
+     * @see InternedDates
+     */
+    public static ImmutableDateTime ofIntRep(int intRep) {
+        return getInternedDates().ofIntRep(intRep);
+    }
+
     /**
      * Answer new ImmutableDateTime from given year, month, and day (e.g. 2000, 1, 1), 
      * with time as hour, minute, second (e.g. 2:30PM is 14,30,0). 
@@ -240,6 +318,16 @@ public class ImmutableDateTime extends AbstractDateTime implements java.io.Seria
         return new ImmutableDateTime(dt);
     }
 
+    /**
+     * Serialize as the rep only; subclasses keep default serialization
+     *
+     * @return SerialRep proxy
+     * @see SerialRep
+     */
+    protected Object writeReplace() {
+        return (getClass() == ImmutableDateTime.class) ? new SerialRep(SerialRep.ImmutableKind, rep(), 0L) : this;
+    }
+
     // --------------------------------------------------------
     // Predicates
     // --------------------------------------------------------
@@ -408,17 +496,4 @@ public class ImmutableDateTime extends AbstractDateTime implements java.io.Seria
 		return (yr*10000) + (mo*100) + dy;
 	 }
 
-	/**
-	 * <p>
-	 * Converts PSC Date to native Java Date.
-	 * </p>
-	 *
-	 * @return java.util.Date date
-	 */
-	public java.util.Date toJavaDate() {
-		java.util.Calendar calendar = java.util.Calendar.getInstance();
-		calendar.set(this.year(), this.month()-1, this.day());
-		return calendar.getTime();
-	}
-
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * Canonical midnight ImmutableDateTime instances for a window of years.
+ * Slots are filled lazily, one per date, and a lost race keeps the
+ * instance that won, so every caller gets the same object for a date.
+ * Daily series then hold at most one object per distinct date, and
+ * interned dates can be compared by identity.
+ * </p>
+ * <p>
+ * Dates outside the window answer new, uninterned instances.
+ * </p>
+ *
+ * @see ImmutableDateTime#ofDate(int, int, int)
+ */
+public class InternedDates {
+
+    public static final int DefaultFromYear = 1900;
+    public static final int DefaultToYear   = 2100;
+
+    protected final int                                     _fromYear;
+    protected final int                                     _toYear;
+    protected final AtomicReferenceArray<ImmutableDateTime> _dates;
+
+    /**
+     * Default Constructor, for years 1900 to 2100
+     */
+    public InternedDates() {
+        this(DefaultFromYear, DefaultToYear);
+    }
+
+    /**
+     * Window Constructor
+     *
+     * @param fromYear first interned year
+     * @param toYear last interned year, inclusive
+     * @throws IllegalArgumentException for a reversed window, or one too large for a single table
+     */
+    public InternedDates(int fromYear, int toYear) {
+        if (fromYear > toYear) throw new IllegalArgumentException("Year window " + fromYear + " is after " + toYear);
+        long slots = ((long)toYear - fromYear + 1) * 366;
+        if (slots > Integer.MAX_VALUE) throw new IllegalArgumentException("Year window " + fromYear + " to " + toYear + " is too large");
+        _fromYear = fromYear;
+        _toYear = toYear;
+        _dates = new AtomicReferenceArray<ImmutableDateTime>((int)slots);
+    }
+
+    public int fromYear() { return _fromYear; }
+    public int toYear() { return _toYear; }
+
+    /**
+     * Answer canonical datetime at midnight of date
+     *
+     * @param intRep date part of a rep, as RepUtil.intRep
+     * @return ImmutableDateTime
+     */
+    public ImmutableDateTime ofIntRep(int intRep) {
+        int year = intRep >> 9;
+        int dayOfYear = intRep & 0x1FF;
+        if (year < _fromYear || year > _toYear || dayOfYear < 1 || dayOfYear > DateUtil.daysInYear(year)) {
+            return new ImmutableDateTime(RepUtil.rep(intRep, 0));
+        }
+        int slot = (year - _fromYear) * 366 + dayOfYear - 1;
+        ImmutableDateTime date = _dates.get(slot);
+        if (date == null) {
+            date = new ImmutableDateTime(RepUtil.rep(intRep, 0));
+            if (!_dates.compareAndSet(slot, null, date)) date = _dates.get(slot);
+        }
+        return date;
+    }
+
+    /**
+     * Answer canonical datetime at midnight of the rep's date
+     *
+     * @param rep long rep, time is ignored
+     * @return ImmutableDateTime
+     */
+    public ImmutableDateTime ofRep(long rep) {
+        return ofIntRep(RepUtil.intRep(rep));
+    }
+
+    /**
+     * Answer canonical datetime at midnight of date. Month and day
+     * outside their calendar ranges answer an uninterned instance,
+     * as the lenient constructor builds it.
+     *
+     * @param year integer year
+     * @param month month (1..12)
+     * @param day day of month (1..31)
+     * @return ImmutableDateTime
+     */
+    public ImmutableDateTime ofDate(int year, int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > DateUtil.daysInMonthForYear(month, year)) {
+            return new ImmutableDateTime(year, month, day);
+        }
+        return ofIntRep((year << 9) | (DateUtil.firstDayOfMonth(month, year) + day - 1));
+    }
+
+    /**
+     * @return number of dates interned so far
+     */
+    public int size() {
+        int size = 0;
+        for(int i=0; i<_dates.length(); i++) if (_dates.get(i) != null) size++;
+        return size;
+    }
+}
@@ -0,0 +1,236 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+/**
+ * <p>
+ * Conversions between reps and <code>java.time</code> values. Local dates
+ * and times copy year, day of year and time of day field for field, and
+ * instants go through epoch millis at a supplied offset, so no Calendar
+ * or TimeZone lookup is involved.
+ * </p>
+ * <p>
+ * Column versions convert <code>count</code> values from <code>offset</code>
+ * in the source into the target starting at <code>at</code>, answering the
+ * target index after the last value written.
+ * </p>
+ * <p>
+ * java.time keeps nanoseconds; conversions to reps truncate to millis.
+ * </p>
+ *
+ * @see RepUtil
+ */
+public class JavaTimeBridge {
+
+    public static final int NanosInMilli = 1000000;
+
+    /**
+     * Absolute days (since January 1st, 1 A.D.) of 1970-01-01
+     */
+    public static final int EpochAbsoluteDays = DateUtil.absoluteDaysToYear(1970);
+
+    // -----------------------------------------------------------
+    // LocalDate
+    // -----------------------------------------------------------
+
+    /**
+     * Answer date of rep, dropping time
+     *
+     * @param rep long rep
+     * @return LocalDate
+     */
+    public static LocalDate toLocalDate(long rep) {
+        return LocalDate.ofYearDay(RepUtil.year(rep), RepUtil.dayOfYear(rep));
+    }
+
+    /**
+     * Answer date of datetime, dropping time
+     *
+     * @param dt DateTime
+     * @return LocalDate
+     */
+    public static LocalDate toLocalDate(DateTime dt) {
+        return toLocalDate(dt.rep());
+    }
+
+    /**
+     * Answer rep at midnight of date
+     *
+     * @param date LocalDate
+     * @return long rep
+     */
+    public static long fromLocalDate(LocalDate date) {
+        return RepUtil.rep(date.getYear(), date.getDayOfYear(), 0);
+    }
+
+    public static int toLocalDates(long[] reps, int offset, int count, LocalDate[] dates, int at) {
+        for(int i=offset; i<offset + count; i++) dates[at++] = toLocalDate(reps[i]);
+        return at;
+    }
+
+    public static int fromLocalDates(LocalDate[] dates, int offset, int count, long[] reps, int at) {
+        for(int i=offset; i<offset + count; i++) reps[at++] = fromLocalDate(dates[i]);
+        return at;
+    }
+
+    // -----------------------------------------------------------
+    // LocalDateTime
+    // -----------------------------------------------------------
+
+    /**
+     * Answer local datetime of rep
+     *
+     * @param rep long rep
+     * @return LocalDateTime
+     */
+    public static LocalDateTime toLocalDateTime(long rep) {
+        return LocalDateTime.of(toLocalDate(rep), LocalTime.ofNanoOfDay((long)RepUtil.millisSinceMidnight(rep) * NanosInMilli));
+    }
+
+    /**
+     * Answer local datetime of datetime
+     *
+     * @param dt DateTime
+     * @return LocalDateTime
+     */
+    public static LocalDateTime toLocalDateTime(DateTime dt) {
+        return toLocalDateTime(dt.rep());
+    }
+
+    /**
+     * Answer rep of local datetime, truncated to millis
+     *
+     * @param ldt LocalDateTime
+     * @return long rep
+     */
+    public static long fromLocalDateTime(LocalDateTime ldt) {
+        return RepUtil.rep(ldt.getYear(), ldt.getDayOfYear(), (int)(ldt.toLocalTime().toNanoOfDay() / NanosInMilli));
+    }
+
+    public static int toLocalDateTimes(long[] reps, int offset, int count, LocalDateTime[] ldts, int at) {
+        for(int i=offset; i<offset + count; i++) ldts[at++] = toLocalDateTime(reps[i]);
+        return at;
+    }
+
+    public static int fromLocalDateTimes(LocalDateTime[] ldts, int offset, int count, long[] reps, int at) {
+        for(int i=offset; i<offset + count; i++) reps[at++] = fromLocalDateTime(ldts[i]);
+        return at;
+    }
+
+    // -----------------------------------------------------------
+    // Instant
+    // -----------------------------------------------------------
+
+    /**
+     * Answer instant of a local rep at a UTC offset
+     *
+     * @param rep long rep, local to offset
+     * @param offset ZoneOffset of rep
+     * @return Instant
+     */
+    public static Instant toInstant(long rep, ZoneOffset offset) {
+        return Instant.ofEpochMilli(RepUtil.toEpochMillis(rep, offset.getTotalSeconds() * DateTime.MillisInSecond));
+    }
+
+    /**
+     * Answer instant of a local datetime at a UTC offset
+     *
+     * @param dt DateTime, local to offset
+     * @param offset ZoneOffset of dt
+     * @return Instant
+     */
+    public static Instant toInstant(DateTime dt, ZoneOffset offset) {
+        return toInstant(dt.rep(), offset);
+    }
+
+    /**
+     * Answer local rep of instant at a UTC offset, truncated to millis
+     *
+     * @param instant Instant
+     * @param offset ZoneOffset for the local rep
+     * @return long rep
+     */
+    public static long fromInstant(Instant instant, ZoneOffset offset) {
+        return RepUtil.fromEpochMillis(instant.toEpochMilli(), offset.getTotalSeconds() * DateTime.MillisInSecond);
+    }
+
+    public static int toInstants(long[] reps, int offset, int count, ZoneOffset zoneOffset, Instant[] instants, int at) {
+        int offsetMillis = zoneOffset.getTotalSeconds() * DateTime.MillisInSecond;
+        for(int i=offset; i<offset + count; i++) instants[at++] = Instant.ofEpochMilli(RepUtil.toEpochMillis(reps[i], offsetMillis));
+        return at;
+    }
+
+    public static int fromInstants(Instant[] instants, int offset, int count, ZoneOffset zoneOffset, long[] reps, int at) {
+        int offsetMillis = zoneOffset.getTotalSeconds() * DateTime.MillisInSecond;
+        for(int i=offset; i<offset + count; i++) reps[at++] = RepUtil.fromEpochMillis(instants[i].toEpochMilli(), offsetMillis);
+        return at;
+    }
+
+    // -----------------------------------------------------------
+    // Epoch Day
+    // -----------------------------------------------------------
+
+    /**
+     * Answer days since 1970-01-01, as LocalDate.toEpochDay()
+     *
+     * @param rep long rep
+     * @return long epoch day
+     */
+    public static long toEpochDay(long rep) {
+        return RepUtil.absoluteDays(rep) - EpochAbsoluteDays;
+    }
+
+    /**
+     * Answer rep at midnight of epoch day
+     *
+     * @param epochDay days since 1970-01-01
+     * @return long rep
+     */
+    public static long fromEpochDay(long epochDay) {
+        return RepUtil.fromAbsoluteDays((int)(epochDay + EpochAbsoluteDays), 0);
+    }
+
+    public static int toEpochDays(long[] reps, int offset, int count, long[] epochDays, int at) {
+        for(int i=offset; i<offset + count; i++) epochDays[at++] = RepUtil.absoluteDays(reps[i]) - EpochAbsoluteDays;
+        return at;
+    }
+
+    public static int fromEpochDays(long[] epochDays, int offset, int count, long[] reps, int at) {
+        for(int i=offset; i<offset + count; i++) reps[at++] = fromEpochDay(epochDays[i]);
+        return at;
+    }
+}
@@ -0,0 +1,99 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.TimeZone;
+
+/**
+ * <p>
+ * Clock that answers a time set by the caller, for tests and
+ * deterministic replays.
+ * </p>
+ * <pre>
+ *     ManualDateTimeClock clock = new ManualDateTimeClock(firstEventMillis);
+ *     clock.advance(250);
+ * </pre>
+ */
+public class ManualDateTimeClock implements DateTimeClock {
+
+    protected final TimeZone    _zone;
+    protected volatile long     _millis;
+
+    /**
+     * Epoch Constructor, in UTC
+     *
+     * @param epochMillis milliseconds since the epoch
+     */
+    public ManualDateTimeClock(long epochMillis) {
+        this(epochMillis, TimeZone.getTimeZone("UTC"));
+    }
+
+    /**
+     * Epoch and Zone Constructor
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @param zone TimeZone for local reps
+     */
+    public ManualDateTimeClock(long epochMillis, TimeZone zone) {
+        _zone = (TimeZone)zone.clone();
+        _millis = epochMillis;
+    }
+
+    public long currentTimeMillis() {
+        return _millis;
+    }
+
+    public long repAt(long epochMillis) {
+        return RepUtil.fromEpochMillis(epochMillis, _zone.getOffset(epochMillis));
+    }
+
+    /**
+     * Set current time
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return this clock
+     */
+    public ManualDateTimeClock set(long epochMillis) {
+        _millis = epochMillis;
+        return this;
+    }
+
+    /**
+     * Move current time, backwards when negative
+     *
+     * @param millis milliseconds to add
+     * @return this clock
+     */
+    public synchronized ManualDateTimeClock advance(long millis) {
+        _millis += millis;
+        return this;
+    }
+}
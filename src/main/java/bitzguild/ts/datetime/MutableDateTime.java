@@ -31,8 +31,8 @@
 package bitzguild.ts.datetime;
 
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.util.ArrayList;
-import java.util.Calendar;
 
 /**
  * <p>
@@ -181,17 +181,38 @@ public class MutableDateTime extends AbstractDateTime implements java.io.Seriali
      * @return MutableDateTime now
      */
     public static MutableDateTime now() {
-        java.util.Calendar cal = java.util.Calendar.getInstance();
-        MutableDateTime md = MutableDateTime.yearMonthDay(
-                cal.get(java.util.Calendar.YEAR),
-                cal.get(java.util.Calendar.MONTH) + 1,
-                cal.get(java.util.Calendar.DAY_OF_MONTH)
-        );
-        md._time = (cal.get(java.util.Calendar.HOUR_OF_DAY) * MillisInHour)
-                + (cal.get(java.util.Calendar.MINUTE) * MillisInMinute)
-                + (cal.get(java.util.Calendar.SECOND) * MillisInSecond)
-                + cal.get(java.util.Calendar.MILLISECOND);
-        return md;
+        return new MutableDateTime(DefaultClock.nowRep());
+    }
+
+    /**
+     * Create a new datetime set to the clock's current time
+     *
+     * @param clock DateTimeClock
+     * @return MutableDateTime now
+     */
+    public static MutableDateTime now(DateTimeClock clock) {
+        return new MutableDateTime(clock.nowRep());
+    }
+
+    /**
+     * Answer datetime for milliseconds since 1970-01-01T00:00 UTC, in UTC
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return MutableDateTime
+     */
+    public static MutableDateTime fromEpochMillis(long epochMillis) {
+        return new MutableDateTime(RepUtil.fromEpochMillis(epochMillis));
+    }
+
+    /**
+     * Answer local datetime for epoch millis at a fixed UTC offset
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @param offsetMillis local offset from UTC
+     * @return MutableDateTime
+     */
+    public static MutableDateTime fromEpochMillis(long epochMillis, int offsetMillis) {
+        return new MutableDateTime(RepUtil.fromEpochMillis(epochMillis, offsetMillis));
     }
 
     /**
@@ -232,6 +253,16 @@ public class MutableDateTime extends AbstractDateTime implements java.io.Seriali
         return dt;
     }
 
+    /**
+     * Serialize as the rep only; subclasses keep default serialization
+     *
+     * @return SerialRep proxy
+     * @see SerialRep
+     */
+    protected Object writeReplace() {
+        return (getClass() == MutableDateTime.class) ? new SerialRep(SerialRep.MutableKind, rep(), 0L) : this;
+    }
+
 
     // --------------------------------------------------------
     // Predicates
@@ -252,19 +283,7 @@ public class MutableDateTime extends AbstractDateTime implements java.io.Seriali
      * @param jDate new date
      */
     public void setJavaDate(java.util.Date jDate) {
-        java.util.Calendar calendar = java.util.Calendar.getInstance();
-        calendar.setTime(jDate);
-        int iYear = calendar.get(java.util.Calendar.YEAR);
-        int iMonth = calendar.get(java.util.Calendar.MONTH);
-        int iDay = calendar.get(java.util.Calendar.DATE);
-        int iHour = calendar.get(Calendar.HOUR);
-        int iMinute = calendar.get(Calendar.MINUTE);
-        int iSecond = calendar.get(Calendar.SECOND);
-        int iMillis = calendar.get(Calendar.MILLISECOND);
-
-        _setFromYearMonthDay(iYear, iMonth + 1, iDay);
-        _setHoursMinutesSecondsMillis(iHour,iMinute,iSecond,iMillis);
-        
+        setFromJavaDate(jDate);
     }
 
 	// ------------------------------------------------------------------------------------
@@ -435,6 +454,23 @@ public class MutableDateTime extends AbstractDateTime implements java.io.Seriali
     public static MutableDateTime parse(String dtString, DateTimeFormat format) throws ParseException {
         return (MutableDateTime)format.parseToDateTime(new MutableDateTime(), dtString);
     }
+
+    /**
+     * Set from text without throwing, for validating dirty input.
+     * Malformed text leaves this datetime unchanged and sets the
+     * position error index.
+     *
+     * @param text characters to parse
+     * @param parser DateTimeRepParser
+     * @param position error index set on malformed input
+     * @return boolean true when text was parsed
+     */
+    public boolean tryParse(CharSequence text, DateTimeRepParser parser, ParsePosition position) {
+        long rep = parser.tryParseRep(text, 0, text.length(), position);
+        if (rep == RepUtil.InvalidRep) return false;
+        setRep(rep);
+        return true;
+    }
     
     
     // -----------------------------------------------------------
@@ -444,24 +480,33 @@ public class MutableDateTime extends AbstractDateTime implements java.io.Seriali
 
 	/**
 	 * <p>
-	 * Assigns the Java native Date to PSC Date.
+	 * Assigns the Java native Date to PSC Date, as local
+	 * time in the default zone.
 	 * </p>
 	 *
 	 * @param jDate new date
 	 */
 	public void setFromJavaDate(java.util.Date jDate) {
-		java.util.Calendar calendar = java.util.Calendar.getInstance();
-		calendar.setTime(jDate);
-		int iYear = calendar.get(java.util.Calendar.YEAR);
-		int iMonth = calendar.get(java.util.Calendar.MONTH);
-		int iDay = calendar.get(java.util.Calendar.DATE);
-        int iHour = calendar.get(Calendar.HOUR);
-        int iMinute = calendar.get(Calendar.MINUTE);
-        int iSecond = calendar.get(Calendar.SECOND);
-        int iMillis = calendar.get(Calendar.MILLISECOND);
-
-		this._setFromYearMonthDay(iYear, iMonth + 1, iDay);
-        this.setHoursMinutesSecondsMillis(iHour, iMinute, iSecond, iMillis);
+		_setRep(getDefaultZone().utcToLocalRep(jDate.getTime()));
+	}
+
+	/**
+	 * Assign from milliseconds since 1970-01-01T00:00 UTC, in UTC
+	 *
+	 * @param epochMillis milliseconds since the epoch
+	 */
+	public void setEpochMillis(long epochMillis) {
+		_setRep(RepUtil.fromEpochMillis(epochMillis));
+	}
+
+	/**
+	 * Assign local time for epoch millis at a fixed UTC offset
+	 *
+	 * @param epochMillis milliseconds since the epoch
+	 * @param offsetMillis local offset from UTC
+	 */
+	public void setEpochMillis(long epochMillis, int offsetMillis) {
+		_setRep(RepUtil.fromEpochMillis(epochMillis, offsetMillis));
 	}
 
 	/**
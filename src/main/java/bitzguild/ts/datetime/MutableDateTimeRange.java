@@ -0,0 +1,146 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * <p>
+ * Mutable datetime range. Range modifiers (<code>add*</code>, <code>widen*</code>)
+ * change this instance and answer it, so a single range can slide a window
+ * across a series without allocation. Set arithmetic (<code>union</code>,
+ * <code>left</code>, ...) still answers new ranges.
+ * </p>
+ * <pre>
+ *     MutableDateTimeRange window = new MutableDateTimeRange(first, RepUtil.addMillis(first, width));
+ *     while(window.lowerRep() &lt; last) {
+ *         process(window);
+ *         window.addMinutes(5);
+ *     }
+ * </pre>
+ */
+public class MutableDateTimeRange extends DateTimeRange {
+
+    public static final long serialVersionUID = 1L;
+
+    protected transient MutableDateTime _scratch;
+
+    /**
+     * Default Constructor
+     *
+     * Creates a zero-length range timestamped NOW
+     */
+    public MutableDateTimeRange() {
+        super();
+    }
+
+    /**
+     * Constructor that takes datetime reps
+     *
+     * @param lower long rep
+     * @param upper long rep
+     */
+    public MutableDateTimeRange(long lower, long upper) {
+        super(lower, upper);
+    }
+
+    /**
+     * Constructor that takes DateTime parameters
+     *
+     * @param dtLower DateTime
+     * @param dtUpper DateTime
+     */
+    public MutableDateTimeRange(DateTime dtLower, DateTime dtUpper) {
+        super(dtLower, dtUpper);
+    }
+
+    /**
+     * Copy Constructor
+     *
+     * @param that DateTimeRange
+     */
+    public MutableDateTimeRange(DateTimeRange that) {
+        super(that.lowerRep(), that.upperRep());
+    }
+
+    // -----------------------------------------------------------
+    // Setters
+    // -----------------------------------------------------------
+
+    /**
+     * Set both bounds, ordering them as necessary
+     *
+     * @param lower long rep
+     * @param upper long rep
+     * @return MutableDateTimeRange this
+     */
+    public MutableDateTimeRange set(long lower, long upper) {
+        _assignRange(lower, upper);
+        return this;
+    }
+
+    /**
+     * Set both bounds from given range
+     *
+     * @param that DateTimeRange
+     * @return MutableDateTimeRange this
+     */
+    public MutableDateTimeRange set(DateTimeRange that) {
+        _lowerBound = that.lowerRep();
+        _upperBound = that.upperRep();
+        return this;
+    }
+
+    /**
+     * Move range so that it starts at given rep, keeping its duration
+     *
+     * @param lower long rep
+     * @return MutableDateTimeRange this
+     */
+    public MutableDateTimeRange slideTo(long lower) {
+        long duration = durationMillis();
+        _lowerBound = lower;
+        _upperBound = RepUtil.addMillis(lower, duration);
+        return this;
+    }
+
+    // -----------------------------------------------------------
+    // Support
+    // -----------------------------------------------------------
+
+    protected DateTimeRange _withBounds(long lower, long upper) {
+        _assignRange(lower, upper);
+        return this;
+    }
+
+    protected MutableDateTime _scratch() {
+        if (_scratch == null) _scratch = new MutableDateTime(_lowerBound);
+        return _scratch;
+    }
+}
@@ -0,0 +1,300 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * <p>
+ * Calendar bucketing on datetime reps, the primitive equivalent of
+ * truncating a MutableDateTime with <code>setHoursMinutesSecondsMillis</code>
+ * or <code>rollMonths</code>. Every function is static and works on longs
+ * only, so bar building over a rep column never allocates.
+ * </p>
+ * <p>
+ * Buckets are named by a DateTime unit constant and a length, e.g.
+ * (MINUTE, 5) for five minute bars or (MONTH, 1) for monthly bars.
+ * </p>
+ * <ul>
+ *     <li>MILLISECOND .. HOUR buckets are aligned to midnight and never span days.
+ *     If the bucket width does not divide a day, the last bucket is cut at midnight.</li>
+ *     <li>DAY and WEEK buckets longer than one unit are aligned to January 1st, 1 A.D.</li>
+ *     <li>WEEK buckets start on Monday, as in <code>nextWeek()</code></li>
+ *     <li>MONTH, QUARTER and YEAR buckets are aligned to calendar month 0 and year 0</li>
+ * </ul>
+ * <p>
+ * <code>bucketIndex</code> answers a strictly increasing bucket number so
+ * that two reps fall in the same bucket exactly when their indexes match.
+ * </p>
+ *
+ * @see RepUtil
+ */
+public class RepBuckets {
+
+    // -----------------------------------------------------------
+    // Single Rep
+    // -----------------------------------------------------------
+
+    public static long floor(long rep, int unit) { return floor(rep, unit, 1); }
+    public static long ceil(long rep, int unit) { return ceil(rep, unit, 1); }
+    public static long bucketIndex(long rep, int unit) { return bucketIndex(rep, unit, 1); }
+
+    /**
+     * Answer start of bucket containing rep
+     *
+     * @param rep long rep
+     * @param unit DateTime unit (MILLISECOND..YEAR)
+     * @param length number of units per bucket (1 or more)
+     * @return long rep of bucket start
+     */
+    public static long floor(long rep, int unit, int length) {
+        switch(unit) {
+            case DateTime.MILLISECOND:
+            case DateTime.SECOND:
+            case DateTime.MINUTE:
+            case DateTime.HOUR: {
+                int width = _width(unit, length);
+                int time = RepUtil.millisSinceMidnight(rep);
+                return rep - (time % width);
+            }
+            case DateTime.DAY:
+                if (length == 1) return RepUtil.dateOnly(rep);
+                return _floorDays(rep, length);
+            case DateTime.WEEK:
+                if (length == 1) return RepUtil.addDays(RepUtil.dateOnly(rep), -RepUtil.dayOfWeek(rep));
+                return _floorDays(rep, 7 * length);
+            case DateTime.MONTH:
+                return _monthStart(_floorMonths(rep, length));
+            case DateTime.QUARTER:
+                return _monthStart(_floorMonths(rep, 3 * length));
+            case DateTime.YEAR: {
+                long year = RepUtil.floorDiv(RepUtil.year(rep), _length(length)) * length;
+                return RepUtil.rep((int)year, 1, 0);
+            }
+        }
+        throw new IllegalArgumentException("Unknown unit " + unit);
+    }
+
+    /**
+     * Answer start of the bucket following the one that starts at bucketStart.
+     * The parameter is expected to be a value answered by floor().
+     *
+     * @param bucketStart long rep of bucket start
+     * @param unit DateTime unit (MILLISECOND..YEAR)
+     * @param length number of units per bucket
+     * @return long rep of next bucket start
+     */
+    public static long next(long bucketStart, int unit, int length) {
+        switch(unit) {
+            case DateTime.MILLISECOND:
+            case DateTime.SECOND:
+            case DateTime.MINUTE:
+            case DateTime.HOUR: {
+                int time = RepUtil.millisSinceMidnight(bucketStart) + _width(unit, length);
+                if (time < DateTime.MillisInDay) return RepUtil.dateOnly(bucketStart) | time;
+                return RepUtil.addDays(RepUtil.dateOnly(bucketStart), 1);
+            }
+            case DateTime.DAY:
+                return RepUtil.addDays(bucketStart, _length(length));
+            case DateTime.WEEK:
+                return RepUtil.addDays(bucketStart, 7 * _length(length));
+            case DateTime.MONTH:
+                return _monthStart(_monthIndex(bucketStart) + _length(length));
+            case DateTime.QUARTER:
+                return _monthStart(_monthIndex(bucketStart) + 3 * _length(length));
+            case DateTime.YEAR:
+                return RepUtil.rep(RepUtil.year(bucketStart) + _length(length), 1, 0);
+        }
+        throw new IllegalArgumentException("Unknown unit " + unit);
+    }
+
+    /**
+     * Answer smallest bucket boundary at or after rep
+     *
+     * @param rep long rep
+     * @param unit DateTime unit (MILLISECOND..YEAR)
+     * @param length number of units per bucket
+     * @return long rep of bucket boundary
+     */
+    public static long ceil(long rep, int unit, int length) {
+        long start = floor(rep, unit, length);
+        return (start == rep) ? rep : next(start, unit, length);
+    }
+
+    /**
+     * Answer increasing bucket number of rep
+     *
+     * @param rep long rep
+     * @param unit DateTime unit (MILLISECOND..YEAR)
+     * @param length number of units per bucket
+     * @return long bucket index
+     */
+    public static long bucketIndex(long rep, int unit, int length) {
+        switch(unit) {
+            case DateTime.MILLISECOND:
+            case DateTime.SECOND:
+            case DateTime.MINUTE:
+            case DateTime.HOUR: {
+                int width = _width(unit, length);
+                long perDay = (DateTime.MillisInDay + width - 1) / width;
+                return RepUtil.absoluteDays(rep) * perDay + (RepUtil.millisSinceMidnight(rep) / width);
+            }
+            case DateTime.DAY:
+                return RepUtil.floorDiv(RepUtil.absoluteDays(rep), _length(length));
+            case DateTime.WEEK:
+                return RepUtil.floorDiv(RepUtil.absoluteDays(rep), 7L * _length(length));
+            case DateTime.MONTH:
+                return RepUtil.floorDiv(_monthIndex(rep), _length(length));
+            case DateTime.QUARTER:
+                return RepUtil.floorDiv(_monthIndex(rep), 3L * _length(length));
+            case DateTime.YEAR:
+                return RepUtil.floorDiv(RepUtil.year(rep), _length(length));
+        }
+        throw new IllegalArgumentException("Unknown unit " + unit);
+    }
+
+    // -----------------------------------------------------------
+    // Rep Columns
+    // -----------------------------------------------------------
+
+    /**
+     * Floor a rep column into an output column. Input and output may be the same array.
+     * Consecutive reps on the same day reuse the prior calendar computation.
+     *
+     * @param reps input rep column
+     * @param offset index of first input rep
+     * @param count number of reps
+     * @param unit DateTime unit (MILLISECOND..YEAR)
+     * @param length number of units per bucket
+     * @param out output column
+     * @param outOffset index of first output rep
+     */
+    public static void floor(long[] reps, int offset, int count, int unit, int length, long[] out, int outOffset) {
+        if (unit < DateTime.DAY) {
+            for(int i=0; i<count; i++) out[outOffset + i] = floor(reps[offset + i], unit, length);
+            return;
+        }
+        int lastDay = 0;
+        long lastFloor = 0L;
+        boolean primed = false;
+        for(int i=0; i<count; i++) {
+            long rep = reps[offset + i];
+            int day = RepUtil.intRep(rep);
+            if (!primed || day != lastDay) {
+                lastFloor = floor(rep, unit, length);
+                lastDay = day;
+                primed = true;
+            }
+            out[outOffset + i] = lastFloor;
+        }
+    }
+
+    /**
+     * Ceil a rep column into an output column. Input and output may be the same array.
+     *
+     * @see RepBuckets#ceil(long, int, int)
+     */
+    public static void ceil(long[] reps, int offset, int count, int unit, int length, long[] out, int outOffset) {
+        for(int i=0; i<count; i++) out[outOffset + i] = ceil(reps[offset + i], unit, length);
+    }
+
+    /**
+     * Answer bucket indexes for a rep column.
+     * Consecutive reps on the same day reuse the prior calendar computation.
+     *
+     * @see RepBuckets#bucketIndex(long, int, int)
+     */
+    public static void bucketIndex(long[] reps, int offset, int count, int unit, int length, long[] out, int outOffset) {
+        if (unit < DateTime.DAY) {
+            int width = _width(unit, length);
+            long perDay = (DateTime.MillisInDay + width - 1) / width;
+            int lastDay = 0;
+            long dayBase = 0L;
+            boolean primed = false;
+            for(int i=0; i<count; i++) {
+                long rep = reps[offset + i];
+                int day = RepUtil.intRep(rep);
+                if (!primed || day != lastDay) {
+                    dayBase = RepUtil.absoluteDays(rep) * perDay;
+                    lastDay = day;
+                    primed = true;
+                }
+                out[outOffset + i] = dayBase + (RepUtil.millisSinceMidnight(rep) / width);
+            }
+            return;
+        }
+        int lastDay = 0;
+        long lastIndex = 0L;
+        boolean primed = false;
+        for(int i=0; i<count; i++) {
+            long rep = reps[offset + i];
+            int day = RepUtil.intRep(rep);
+            if (!primed || day != lastDay) {
+                lastIndex = bucketIndex(rep, unit, length);
+                lastDay = day;
+                primed = true;
+            }
+            out[outOffset + i] = lastIndex;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Support
+    // -----------------------------------------------------------
+
+    private static int _length(int length) {
+        if (length < 1) throw new IllegalArgumentException("Bucket length must be positive: " + length);
+        return length;
+    }
+
+    private static int _width(int unit, int length) {
+        long width = (long)DateTime.MilliFactors[unit] * _length(length);
+        return (int)Math.min(width, DateTime.MillisInDay);
+    }
+
+    private static long _floorDays(long rep, int days) {
+        int abs = RepUtil.absoluteDays(rep);
+        int start = (int)(RepUtil.floorDiv(abs, _length(days)) * days);
+        return RepUtil.fromAbsoluteDays(start, 0);
+    }
+
+    private static long _monthIndex(long rep) {
+        return RepUtil.year(rep) * 12L + (RepUtil.month(rep) - 1);
+    }
+
+    private static long _floorMonths(long rep, int months) {
+        return RepUtil.floorDiv(_monthIndex(rep), _length(months)) * months;
+    }
+
+    private static long _monthStart(long monthIndex) {
+        int year = (int)RepUtil.floorDiv(monthIndex, 12);
+        int month = (int)(monthIndex - year * 12L) + 1;
+        return RepUtil.rep(year, DateUtil.firstDayOfMonth(month, year), 0);
+    }
+}
@@ -0,0 +1,515 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Binary format for reps, ranges and rep columns, over
+ * <code>DataOutput</code>/<code>DataInput</code> and <code>ByteBuffer</code>.
+ * Single reps are 8-byte big-endian longs and ranges are the lower then
+ * upper rep. A column has a header followed by its payload:
+ * </p>
+ * <pre>
+ *     int  Magic ("BZRC")
+ *     byte Version
+ *     byte encoding       RawEncoding or DeltaEncoding
+ *     int  count          number of reps
+ *     int  payload        bytes following the header
+ * </pre>
+ * <p>
+ * Raw payloads are the reps as big-endian longs, so a buffer column can be
+ * read in place through <code>cursor(ByteBuffer)</code>. Delta payloads
+ * hold the difference from the previous rep (the first from zero),
+ * zigzag-encoded as a varint. Sorted intraday reps differ by their
+ * millis, so most take one to three bytes.
+ * </p>
+ * <p>
+ * Buffer methods use absolute big-endian reads regardless of buffer order
+ * and advance the buffer position past what they read or write. Malformed
+ * headers and payloads raise StreamCorruptedException from streams and
+ * IllegalArgumentException from buffers. Stream payloads are read a chunk
+ * at a time, so a corrupt count or payload length cannot force a large
+ * allocation before the data arrives.
+ * </p>
+ *
+ * @see SerialRep
+ */
+public class RepCodec {
+
+    public static final int     Magic           = 0x425A5243;
+    public static final byte    Version         = 1;
+    public static final byte    RawEncoding     = 0;
+    public static final byte    DeltaEncoding   = 1;
+    public static final int     HeaderBytes     = 14;
+    public static final int     MaxVarBytes     = 10;
+
+    protected static final int  ChunkBytes      = 8192;
+
+    // -----------------------------------------------------------
+    // Reps and Ranges
+    // -----------------------------------------------------------
+
+    public static void writeRep(DataOutput out, long rep) throws IOException {
+        out.writeLong(rep);
+    }
+
+    public static long readRep(DataInput in) throws IOException {
+        return in.readLong();
+    }
+
+    public static void putRep(ByteBuffer buffer, long rep) {
+        int at = buffer.position();
+        _putLong(buffer, at, rep);
+        buffer.position(at + 8);
+    }
+
+    public static long getRep(ByteBuffer buffer) {
+        int at = buffer.position();
+        long rep = _getLong(buffer, at);
+        buffer.position(at + 8);
+        return rep;
+    }
+
+    public static void writeRange(DataOutput out, DateTimeRange range) throws IOException {
+        out.writeLong(range.lowerRep());
+        out.writeLong(range.upperRep());
+    }
+
+    public static DateTimeRange readRange(DataInput in) throws IOException {
+        long lower = in.readLong();
+        return new DateTimeRange(lower, in.readLong());
+    }
+
+    public static void putRange(ByteBuffer buffer, DateTimeRange range) {
+        putRep(buffer, range.lowerRep());
+        putRep(buffer, range.upperRep());
+    }
+
+    public static DateTimeRange getRange(ByteBuffer buffer) {
+        long lower = getRep(buffer);
+        return new DateTimeRange(lower, getRep(buffer));
+    }
+
+    // -----------------------------------------------------------
+    // Columns
+    // -----------------------------------------------------------
+
+    /**
+     * Answer upper bound on bytes to encode a column, header included
+     *
+     * @param count number of reps
+     * @param encoding RawEncoding or DeltaEncoding
+     * @return int bytes
+     */
+    public static int maxColumnBytes(int count, byte encoding) {
+        return HeaderBytes + count * ((encoding == DeltaEncoding) ? MaxVarBytes : 8);
+    }
+
+    /**
+     * Answer bytes of an encoded column, header included
+     *
+     * @param reps rep column
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param encoding RawEncoding or DeltaEncoding
+     * @return int bytes
+     */
+    public static int columnBytes(long[] reps, int offset, int count, byte encoding) {
+        if (encoding != DeltaEncoding) return HeaderBytes + count * 8;
+        int bytes = HeaderBytes;
+        long prior = 0;
+        for(int i=offset; i<offset + count; i++) {
+            bytes += _varBytes(_zigzag(reps[i] - prior));
+            prior = reps[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Write column with header
+     *
+     * @param out DataOutput
+     * @param reps rep column
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param encoding RawEncoding or DeltaEncoding
+     */
+    public static void writeColumn(DataOutput out, long[] reps, int offset, int count, byte encoding) throws IOException {
+        _checkEncoding(encoding);
+        out.writeInt(Magic);
+        out.writeByte(Version);
+        out.writeByte(encoding);
+        out.writeInt(count);
+        out.writeInt(columnBytes(reps, offset, count, encoding) - HeaderBytes);
+
+        byte[] chunk = new byte[ChunkBytes];
+        int at = 0;
+        long prior = 0;
+        for(int i=offset; i<offset + count; i++) {
+            if (at > ChunkBytes - MaxVarBytes) {
+                out.write(chunk, 0, at);
+                at = 0;
+            }
+            if (encoding == DeltaEncoding) {
+                at = _putVarLong(chunk, at, _zigzag(reps[i] - prior));
+                prior = reps[i];
+            } else {
+                for(int shift=56; shift>=0; shift-=8) chunk[at++] = (byte)(reps[i] >>> shift);
+            }
+        }
+        out.write(chunk, 0, at);
+    }
+
+    /**
+     * Read column written by writeColumn
+     *
+     * @param in DataInput
+     * @return long[] reps
+     */
+    public static long[] readColumn(DataInput in) throws IOException {
+        int magic = in.readInt();
+        byte version = in.readByte();
+        byte encoding = in.readByte();
+        int count = in.readInt();
+        int payload = in.readInt();
+        String problem = _headerProblem(magic, version, encoding, count, payload);
+        if (problem != null) throw new StreamCorruptedException(problem);
+
+        PayloadReader reader = new PayloadReader(in, payload);
+        long[] reps = new long[Math.min(count, ChunkBytes)];
+        long rep = 0;
+        for(int i=0; i<count; i++) {
+            if (i == reps.length) reps = Arrays.copyOf(reps, (int)Math.min(count, 2L * reps.length));
+            if (encoding == DeltaEncoding) {
+                long v = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if (shift > 63) throw new StreamCorruptedException("Rep column varint too long");
+                    b = reader.next();
+                    v |= (long)(b & 0x7F) << shift;
+                    shift += 7;
+                } while(b < 0);
+                rep += (v >>> 1) ^ -(v & 1);
+                reps[i] = rep;
+            } else {
+                reps[i] = reader.nextLong();
+            }
+        }
+        if (!reader.isDone()) throw new StreamCorruptedException("Rep column payload length mismatch");
+        return reps;
+    }
+
+    /**
+     * Payload of a stream column, read one chunk at a time
+     */
+    protected static final class PayloadReader {
+        final DataInput in;
+        final byte[]    chunk;
+        int             remaining;
+        int             at;
+        int             end;
+
+        PayloadReader(DataInput in, int payload) {
+            this.in = in;
+            this.chunk = new byte[Math.min(payload, ChunkBytes)];
+            this.remaining = payload;
+        }
+
+        byte next() throws IOException {
+            if (at == end) _fill();
+            return chunk[at++];
+        }
+
+        /**
+         * Answer next big-endian long. Raw payloads are whole longs and
+         * chunks a multiple of 8 bytes, so a long never spans two chunks.
+         */
+        long nextLong() throws IOException {
+            if (at == end) _fill();
+            long v = 0;
+            for(int k=0; k<8; k++) v = (v << 8) | (chunk[at++] & 0xFF);
+            return v;
+        }
+
+        boolean isDone() {
+            return at == end && remaining == 0;
+        }
+
+        private void _fill() throws IOException {
+            if (remaining == 0) throw new StreamCorruptedException("Rep column payload ends early");
+            end = Math.min(remaining, chunk.length);
+            try {
+                in.readFully(chunk, 0, end);
+            } catch(EOFException e) {
+                throw (StreamCorruptedException)new StreamCorruptedException("Rep column payload truncated").initCause(e);
+            }
+            remaining -= end;
+            at = 0;
+        }
+    }
+
+    /**
+     * Put column with header at buffer position. When the column does
+     * not fit before the limit nothing is written.
+     *
+     * @param buffer ByteBuffer with room for columnBytes
+     * @param reps rep column
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param encoding RawEncoding or DeltaEncoding
+     * @throws java.nio.BufferOverflowException when the column does not fit
+     */
+    public static void putColumn(ByteBuffer buffer, long[] reps, int offset, int count, byte encoding) {
+        _checkEncoding(encoding);
+        int start = buffer.position();
+        long room = buffer.limit() - start;
+        long max = HeaderBytes + count * (long)((encoding == DeltaEncoding) ? MaxVarBytes : 8);
+        if (max > room && columnBytes(reps, offset, count, encoding) > room) throw new java.nio.BufferOverflowException();
+        int at = start + HeaderBytes;
+        if (encoding == DeltaEncoding) {
+            long prior = 0;
+            for(int i=offset; i<offset + count; i++) {
+                long v = _zigzag(reps[i] - prior);
+                prior = reps[i];
+                while((v & ~0x7FL) != 0) {
+                    buffer.put(at++, (byte)((v & 0x7F) | 0x80));
+                    v >>>= 7;
+                }
+                buffer.put(at++, (byte)v);
+            }
+        } else {
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(at);
+            payload.order(ByteOrder.BIG_ENDIAN).asLongBuffer().put(reps, offset, count);
+            at += count * 8;
+        }
+        _putInt(buffer, start, Magic);
+        buffer.put(start + 4, Version);
+        buffer.put(start + 5, encoding);
+        _putInt(buffer, start + 6, count);
+        _putInt(buffer, start + 10, at - start - HeaderBytes);
+        buffer.position(at);
+    }
+
+    /**
+     * Get column written by putColumn
+     *
+     * @param buffer ByteBuffer positioned at header
+     * @return long[] reps
+     */
+    public static long[] getColumn(ByteBuffer buffer) {
+        int start = buffer.position();
+        int count = _readHeader(buffer, start);
+        int payload = _getInt(buffer, start + 10);
+        long[] reps = new long[count];
+        if (buffer.get(start + 5) == DeltaEncoding) {
+            int end = start + HeaderBytes + payload;
+            if (_getVarLongs(buffer, start + HeaderBytes, end, reps) != end) throw new IllegalArgumentException("Rep column payload length mismatch");
+        } else {
+            _rawLongs(buffer, start, count).get(reps);
+        }
+        buffer.position(start + HeaderBytes + payload);
+        return reps;
+    }
+
+    /**
+     * Answer cursor over column at buffer position, and advance the
+     * buffer past it. Raw columns are read in place; delta columns
+     * decode as the cursor advances.
+     *
+     * @param buffer ByteBuffer positioned at header
+     * @return RepCursor
+     */
+    public static RepCursor cursor(ByteBuffer buffer) {
+        int start = buffer.position();
+        int count = _readHeader(buffer, start);
+        int payload = _getInt(buffer, start + 10);
+        RepCursor cursor = (buffer.get(start + 5) == DeltaEncoding)
+                ? new DeltaCursor(buffer, start + HeaderBytes, start + HeaderBytes + payload, count)
+                : new LongBufferRepCursor(_rawLongs(buffer, start, count));
+        buffer.position(start + HeaderBytes + payload);
+        return cursor;
+    }
+
+    /**
+     * RepCursor decoding a delta column in place. The header only vouches
+     * for the payload length, so each step is checked against the payload
+     * end and throws IllegalArgumentException for a short or overlong
+     * varint.
+     */
+    public static class DeltaCursor implements RepCursor {
+
+        protected final ByteBuffer  _buffer;
+        protected final int         _end;
+        protected int               _at;
+        protected int               _remaining;
+        protected long              _rep;
+
+        protected DeltaCursor(ByteBuffer buffer, int at, int end, int count) {
+            _buffer = buffer.duplicate();
+            _at = at;
+            _end = end;
+            _remaining = count;
+        }
+
+        public boolean next() {
+            if (_remaining == 0) return false;
+            _remaining--;
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) throw new IllegalArgumentException("Rep column varint too long at " + _at);
+                if (_at >= _end) throw new IllegalArgumentException("Rep column payload ends early");
+                b = _buffer.get(_at++);
+                v |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while(b < 0);
+            _rep += (v >>> 1) ^ -(v & 1);
+            return true;
+        }
+
+        public long rep() {
+            return _rep;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Encoding Helpers
+    // -----------------------------------------------------------
+
+    protected static long _zigzag(long delta) {
+        return (delta << 1) ^ (delta >> 63);
+    }
+
+    protected static int _varBytes(long v) {
+        int bytes = 1;
+        while((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    protected static int _putVarLong(byte[] bytes, int at, long v) {
+        while((v & ~0x7FL) != 0) {
+            bytes[at++] = (byte)((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        bytes[at++] = (byte)v;
+        return at;
+    }
+
+    /**
+     * Decode reps.length deltas from [at, end), answering index after the last
+     */
+    protected static int _getVarLongs(ByteBuffer buffer, int at, int end, long[] reps) {
+        long rep = 0;
+        for(int i=0; i<reps.length; i++) {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) throw new IllegalArgumentException("Rep column varint too long at " + at);
+                if (at >= end) throw new IllegalArgumentException("Rep column payload ends early");
+                b = buffer.get(at++);
+                v |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while(b < 0);
+            rep += (v >>> 1) ^ -(v & 1);
+            reps[i] = rep;
+        }
+        return at;
+    }
+
+    protected static void _checkEncoding(byte encoding) {
+        if (encoding != RawEncoding && encoding != DeltaEncoding) throw new IllegalArgumentException("Unknown rep column encoding " + encoding);
+    }
+
+    protected static String _headerProblem(int magic, byte version, byte encoding, int count, int payload) {
+        if (magic != Magic) return "Not a rep column";
+        if (version != Version) return "Unsupported rep column version " + version;
+        if (encoding != RawEncoding && encoding != DeltaEncoding) return "Unknown rep column encoding " + encoding;
+        if (count < 0 || payload < 0) return "Negative rep column size";
+        if (encoding == RawEncoding && payload != count * 8L) return "Raw rep column payload length mismatch";
+        if (encoding == DeltaEncoding && (payload < count || payload > count * (long)MaxVarBytes)) return "Delta rep column payload length mismatch";
+        return null;
+    }
+
+    /**
+     * Validate header at index, answering count
+     */
+    protected static int _readHeader(ByteBuffer buffer, int start) {
+        if (buffer.limit() - start < HeaderBytes) throw new IllegalArgumentException("Rep column header ends past buffer limit");
+        int count = _getInt(buffer, start + 6);
+        int payload = _getInt(buffer, start + 10);
+        String problem = _headerProblem(_getInt(buffer, start), buffer.get(start + 4), buffer.get(start + 5), count, payload);
+        if (problem != null) throw new IllegalArgumentException(problem);
+        if (payload > buffer.limit() - start - HeaderBytes) throw new IllegalArgumentException("Rep column payload ends past buffer limit");
+        return count;
+    }
+
+    /**
+     * Answer big-endian view of a raw payload, without copying
+     */
+    protected static LongBuffer _rawLongs(ByteBuffer buffer, int start, int count) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(start + HeaderBytes + count * 8).position(start + HeaderBytes);
+        return payload.slice().order(ByteOrder.BIG_ENDIAN).asLongBuffer();
+    }
+
+    protected static int _getInt(ByteBuffer buffer, int at) {
+        return (buffer.order() == ByteOrder.BIG_ENDIAN) ? buffer.getInt(at) : Integer.reverseBytes(buffer.getInt(at));
+    }
+
+    protected static void _putInt(ByteBuffer buffer, int at, int v) {
+        buffer.putInt(at, (buffer.order() == ByteOrder.BIG_ENDIAN) ? v : Integer.reverseBytes(v));
+    }
+
+    protected static long _getLong(ByteBuffer buffer, int at) {
+        return (buffer.order() == ByteOrder.BIG_ENDIAN) ? buffer.getLong(at) : Long.reverseBytes(buffer.getLong(at));
+    }
+
+    protected static void _putLong(ByteBuffer buffer, int at, long v) {
+        buffer.putLong(at, (buffer.order() == ByteOrder.BIG_ENDIAN) ? v : Long.reverseBytes(v));
+    }
+}
@@ -0,0 +1,217 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * <p>
+ * K-way merge of sorted RepCursor sources using a loser tree. Each step
+ * costs one replay from the emitting leaf to the root, about log2(k)
+ * primitive comparisons, with no boxing or per-element allocation.
+ * </p>
+ * <p>
+ * The merge is stable: equal reps are emitted in source order (lowest
+ * source index first), and each source keeps its own order. Because the
+ * merger is itself a RepCursor, merges can be nested.
+ * </p>
+ * <pre>
+ *     RepMerger merger = new RepMerger(cursorA, cursorB, cursorC);
+ *     while(merger.next()) {
+ *         long rep = merger.rep();
+ *         int venue = merger.source();
+ *     }
+ * </pre>
+ */
+public class RepMerger implements RepCursor {
+
+    protected RepCursor[]   _sources;
+    protected long[]        _heads;         // current rep of each source
+    protected boolean[]     _live;          // source still has a current rep
+    protected int[]         _tree;          // _tree[0] winner, _tree[1..k-1] losers
+    protected int           _width;
+    protected boolean       _started;
+    protected long          _rep;
+    protected int           _source;
+
+    /**
+     * Sources Constructor. Each source is advanced to its first rep.
+     *
+     * @param sources sorted rep cursors
+     */
+    public RepMerger(RepCursor... sources) {
+        _width = sources.length;
+        _sources = sources;
+        _heads = new long[_width];
+        _live = new boolean[_width];
+        _tree = new int[Math.max(1, _width)];
+        _source = -1;
+        for(int i=0; i<_width; i++) _load(i);
+        _build();
+    }
+
+    /**
+     * Convenience constructor for merging whole rep columns.
+     *
+     * @param columns sorted rep columns
+     * @return RepMerger
+     */
+    public static RepMerger ofColumns(long[]... columns) {
+        RepCursor[] cursors = new RepCursor[columns.length];
+        for(int i=0; i<columns.length; i++) cursors[i] = new ArrayRepCursor(columns[i]);
+        return new RepMerger(cursors);
+    }
+
+    // ---------------------------------------------------------------------------
+    // RepCursor Interface
+    // ---------------------------------------------------------------------------
+
+    /**
+     * Advance to next merged rep.
+     *
+     * @return boolean false when all sources are exhausted
+     */
+    public boolean next() {
+        if (_width == 0) return false;
+        if (_started) {
+            int emitted = _tree[0];
+            _load(emitted);
+            _replay(emitted);
+        }
+        _started = true;
+        int winner = _tree[0];
+        if (!_live[winner]) {
+            _source = -1;
+            return false;
+        }
+        _rep = _heads[winner];
+        _source = winner;
+        return true;
+    }
+
+    /**
+     * Answer current merged rep
+     *
+     * @return long
+     */
+    public long rep() { return _rep; }
+
+    /**
+     * Answer index of the source that supplied the current rep,
+     * or -1 before the first or after the last element.
+     *
+     * @return int source index
+     */
+    public int source() { return _source; }
+
+    /**
+     * Answer number of merged sources
+     *
+     * @return int
+     */
+    public int width() { return _width; }
+
+    /**
+     * Drain up to <code>max</code> merged elements into parallel
+     * rep and source columns.
+     *
+     * @param reps output rep column
+     * @param sources output source column (may be null)
+     * @param offset starting index in output columns
+     * @param max maximum number of elements to write
+     * @return int number of elements written
+     */
+    public int drain(long[] reps, int[] sources, int offset, int max) {
+        int count = 0;
+        while(count < max && next()) {
+            reps[offset + count] = _rep;
+            if (sources != null) sources[offset + count] = _source;
+            count++;
+        }
+        return count;
+    }
+
+    // ---------------------------------------------------------------------------
+    // Loser Tree
+    // ---------------------------------------------------------------------------
+
+    private void _load(int i) {
+        if (_live[i] = _sources[i].next()) _heads[i] = _sources[i].rep();
+    }
+
+    /**
+     * Answer whether source a is emitted before source b.
+     * Exhausted sources lose to live ones, and ties go to
+     * the lower source index to keep the merge stable.
+     */
+    private boolean _beats(int a, int b) {
+        if (!_live[a]) return !_live[b] && a < b;
+        if (!_live[b]) return true;
+        long ra = _heads[a];
+        long rb = _heads[b];
+        return (ra < rb) || (ra == rb && a < b);
+    }
+
+    /**
+     * Play the initial tournament. Leaves live at positions
+     * k..2k-1 of an implicit complete binary tree.
+     */
+    private void _build() {
+        if (_width == 0) return;
+        int[] winners = new int[2 * _width];
+        for(int i=0; i<_width; i++) winners[_width + i] = i;
+        for(int n=_width-1; n>=1; n--) {
+            int a = winners[2*n];
+            int b = winners[2*n+1];
+            if (_beats(a,b)) {
+                winners[n] = a;
+                _tree[n] = b;
+            } else {
+                winners[n] = b;
+                _tree[n] = a;
+            }
+        }
+        _tree[0] = winners[1];
+    }
+
+    /**
+     * Replay matches from the given leaf up to the root
+     */
+    private void _replay(int leaf) {
+        int winner = leaf;
+        for(int n=(leaf + _width) >> 1; n>=1; n >>= 1) {
+            int loser = _tree[n];
+            if (_beats(loser, winner)) {
+                _tree[n] = winner;
+                winner = loser;
+            }
+        }
+        _tree[0] = winner;
+    }
+}
@@ -0,0 +1,366 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * <p>
+ * Static operations on the long datetime rep, for code that works on rep
+ * columns directly and should not create DateTime objects. The layout
+ * matches <code>AbstractDateTime.rep()</code>:
+ * </p>
+ * <pre>
+ *     rep = ((year &lt;&lt; 9) | dayOfYear) &lt;&lt; 28 | millisSinceMidnight
+ * </pre>
+ * <p>
+ * Absolute days count from January 1st of year 1 A.D. (a Monday), using
+ * the same calendar rules as DateUtil. Day arithmetic is exact for A.D.
+ * years, which covers the range the rest of the library is tuned for.
+ * </p>
+ *
+ * @see AbstractDateTime#rep()
+ * @see DateUtil
+ */
+public class RepUtil {
+
+    public static final int     TimeBits = 28;
+    public static final long    TimeMask = 0xFFFFFFFL;
+
+    /**
+     * Reserved rep answered by the non-throwing parsers for malformed input.
+     * Its year lies far outside any calendar the library handles.
+     */
+    public static final long    InvalidRep = Long.MIN_VALUE;
+
+    // -----------------------------------------------------------
+    // Packing
+    // -----------------------------------------------------------
+
+    /**
+     * Answer rep for given year, day of year and time
+     *
+     * @param year integer year (e.g. 1945)
+     * @param dayOfYear day of year (1..366)
+     * @param millis milliseconds since midnight
+     * @return long rep
+     */
+    public static long rep(int year, int dayOfYear, int millis) {
+        return ((long)((year << 9) | dayOfYear) << TimeBits) | millis;
+    }
+
+    /**
+     * Answer rep for given date int rep and time
+     *
+     * @param intRep date int rep (see DateTime.intRep())
+     * @param millis milliseconds since midnight
+     * @return long rep
+     */
+    public static long rep(int intRep, int millis) {
+        return ((long)intRep << TimeBits) | millis;
+    }
+
+    /**
+     * Answer rep for year, month and day, pinning out of range
+     * month and day values the same way the DateTime constructors do.
+     *
+     * @param year integer year
+     * @param month month (1..12)
+     * @param day day of month (1..31)
+     * @param millis milliseconds since midnight
+     * @return long rep
+     */
+    public static long repFromYearMonthDay(int year, int month, int day, int millis) {
+        int imo = Math.max(1, Math.min(month, 12));
+        int iday = Math.max(1, Math.min(day, DateUtil.daysInMonthForYear(imo, year)));
+        return rep(year, DateUtil.firstDayOfMonth(imo, year) + iday - 1, millis);
+    }
+
+    /**
+     * Answer milliseconds since midnight from time components,
+     * with the same millisecond pinning as setHoursMinutesSecondsMillis.
+     *
+     * @return int milliseconds since midnight
+     */
+    public static int millisOf(int hours, int minutes, int seconds, int millis) {
+        return (hours * DateTime.MillisInHour) + (minutes * DateTime.MillisInMinute)
+                + (seconds * DateTime.MillisInSecond) + (millis % DateTime.MillisInSecond);
+    }
+
+    // -----------------------------------------------------------
+    // Field Access
+    // -----------------------------------------------------------
+
+    public static int intRep(long rep) { return (int)(rep >> TimeBits); }
+
+    public static int year(long rep) { return (int)(rep >> TimeBits) >> 9; }
+
+    public static int dayOfYear(long rep) { return (int)(rep >> TimeBits) & 0x1FF; }
+
+    public static int millisSinceMidnight(long rep) { return (int)(rep & TimeMask); }
+
+    /**
+     * Answer rep truncated to midnight
+     *
+     * @param rep long rep
+     * @return long rep
+     */
+    public static long dateOnly(long rep) { return rep & ~TimeMask; }
+
+    /**
+     * Answer common month index (1..12) of rep
+     *
+     * @param rep long rep
+     * @return int month
+     */
+    public static int month(long rep) {
+        int year = year(rep);
+        return monthOfDayOfYear(dayOfYear(rep), DateUtil.leapYearBalance(year));
+    }
+
+    /**
+     * Answer day of month (1..31) of rep
+     *
+     * @param rep long rep
+     * @return int day
+     */
+    public static int day(long rep) {
+        int year = year(rep);
+        int doy = dayOfYear(rep);
+        int leap = DateUtil.leapYearBalance(year);
+        int imo = monthOfDayOfYear(doy, leap) - 1;
+        return doy - (DateUtil.FirstDayOfMonth[imo] + ((imo > 1) ? leap : 0)) + 1;
+    }
+
+    /**
+     * Answer common month index (1..12) for day of year
+     *
+     * @param dayOfYear day of year (1..366)
+     * @param leap leap year balance (0 or 1)
+     * @return int month
+     */
+    public static int monthOfDayOfYear(int dayOfYear, int leap) {
+        for(int iMonth=11; iMonth>0; iMonth--) {
+            int firstDay = DateUtil.FirstDayOfMonth[iMonth] + ((iMonth > 1) ? leap : 0);
+            if (firstDay <= dayOfYear) return iMonth+1;
+        }
+        return 1;
+    }
+
+    /**
+     * Answer day of week, Monday through Sunday as 0..6
+     *
+     * @param rep long rep
+     * @return int day of week
+     */
+    public static int dayOfWeek(long rep) {
+        return floorMod(absoluteDays(rep), 7);
+    }
+
+    // -----------------------------------------------------------
+    // Absolute Days
+    // -----------------------------------------------------------
+
+    /**
+     * Answer days since January 1st, 1 A.D.
+     *
+     * @param rep long rep
+     * @return int absolute days
+     */
+    public static int absoluteDays(long rep) {
+        return DateUtil.absoluteDaysToYear(year(rep)) + dayOfYear(rep) - 1;
+    }
+
+    /**
+     * Answer year containing the given absolute day
+     *
+     * @param absDays days since January 1st, 1 A.D.
+     * @return int year
+     */
+    public static int yearOfAbsoluteDays(int absDays) {
+        int year = (int)floorDiv(absDays * 400L, 146097L) + 1;
+        while(DateUtil.absoluteDaysToYear(year) > absDays) year--;
+        while(DateUtil.absoluteDaysToYear(year + 1) <= absDays) year++;
+        return year;
+    }
+
+    /**
+     * Answer rep for absolute day and time
+     *
+     * @param absDays days since January 1st, 1 A.D.
+     * @param millis milliseconds since midnight
+     * @return long rep
+     */
+    public static long fromAbsoluteDays(int absDays, int millis) {
+        int year = yearOfAbsoluteDays(absDays);
+        return rep(year, absDays - DateUtil.absoluteDaysToYear(year) + 1, millis);
+    }
+
+    /**
+     * Answer milliseconds since midnight January 1st, 1 A.D.
+     * This is a continuous timeline, useful for differences
+     * and proportional splits between reps.
+     *
+     * @param rep long rep
+     * @return long absolute milliseconds
+     */
+    public static long absoluteMillis(long rep) {
+        return (long)absoluteDays(rep) * DateTime.MillisInDay + millisSinceMidnight(rep);
+    }
+
+    /**
+     * Answer rep for milliseconds since midnight January 1st, 1 A.D.
+     *
+     * @param absMillis absolute milliseconds
+     * @return long rep
+     */
+    public static long fromAbsoluteMillis(long absMillis) {
+        int days = (int)floorDiv(absMillis, DateTime.MillisInDay);
+        return fromAbsoluteDays(days, (int)(absMillis - (long)days * DateTime.MillisInDay));
+    }
+
+    // -----------------------------------------------------------
+    // Epoch Millis
+    // -----------------------------------------------------------
+
+    /**
+     * Absolute millis of 1970-01-01T00:00, the java.util.Date epoch
+     */
+    public static final long EpochAbsoluteMillis = (long)DateUtil.absoluteDaysToYear(1970) * DateTime.MillisInDay;
+
+    /**
+     * Answer rep for milliseconds since 1970-01-01T00:00 UTC
+     *
+     * @param epochMillis milliseconds since the epoch, as System.currentTimeMillis()
+     * @return long rep in UTC
+     */
+    public static long fromEpochMillis(long epochMillis) {
+        return fromAbsoluteMillis(epochMillis + EpochAbsoluteMillis);
+    }
+
+    /**
+     * Answer local rep for epoch millis at a fixed UTC offset
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @param offsetMillis local offset from UTC, e.g. -5 hours for New York standard time
+     * @return long local rep
+     */
+    public static long fromEpochMillis(long epochMillis, int offsetMillis) {
+        return fromAbsoluteMillis(epochMillis + offsetMillis + EpochAbsoluteMillis);
+    }
+
+    /**
+     * Answer milliseconds since 1970-01-01T00:00 UTC for a UTC rep
+     *
+     * @param rep long rep in UTC
+     * @return long epoch millis
+     */
+    public static long toEpochMillis(long rep) {
+        return absoluteMillis(rep) - EpochAbsoluteMillis;
+    }
+
+    /**
+     * Answer epoch millis for a local rep at a fixed UTC offset
+     *
+     * @param rep long local rep
+     * @param offsetMillis local offset from UTC
+     * @return long epoch millis
+     */
+    public static long toEpochMillis(long rep, int offsetMillis) {
+        return absoluteMillis(rep) - EpochAbsoluteMillis - offsetMillis;
+    }
+
+    /**
+     * Answer offset of the zone at a local rep. As with java.util.Calendar,
+     * the repeated hour after a daylight saving fall back reads as standard
+     * time, and the skipped hour in spring reads as if the clocks had not
+     * moved, landing an hour later.
+     *
+     * @param rep long local rep
+     * @param zone TimeZone
+     * @return int offset millis
+     */
+    public static int offsetOfLocal(long rep, java.util.TimeZone zone) {
+        long local = toEpochMillis(rep);
+        int offset = zone.getOffset(local - zone.getRawOffset());
+        int adjusted = zone.getOffset(local - offset);
+        return (adjusted == offset) ? offset : adjusted;
+    }
+
+    // -----------------------------------------------------------
+    // Arithmetic
+    // -----------------------------------------------------------
+
+    /**
+     * Answer rep moved by the given number of days, keeping time of day
+     *
+     * @param rep long rep
+     * @param days positive or negative day count
+     * @return long rep
+     */
+    public static long addDays(long rep, int days) {
+        int year = year(rep);
+        int doy = dayOfYear(rep) + days;
+        if (doy >= 1 && doy <= DateUtil.daysInYear(year)) {
+            return rep + ((long)days << TimeBits);
+        }
+        return fromAbsoluteDays(absoluteDays(rep) + days, millisSinceMidnight(rep));
+    }
+
+    /**
+     * Answer rep moved by the given number of milliseconds,
+     * wrapping into neighbouring days as required
+     *
+     * @param rep long rep
+     * @param millis positive or negative milliseconds
+     * @return long rep
+     */
+    public static long addMillis(long rep, long millis) {
+        long time = millisSinceMidnight(rep) + millis;
+        if (time >= 0 && time < DateTime.MillisInDay) return rep + millis;
+        int days = (int)floorDiv(time, DateTime.MillisInDay);
+        int balance = (int)(time - (long)days * DateTime.MillisInDay);
+        return addDays(dateOnly(rep) | balance, days);
+    }
+
+    // -----------------------------------------------------------
+    // Integer Helpers
+    // -----------------------------------------------------------
+
+    public static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) q--;
+        return q;
+    }
+
+    public static int floorMod(int x, int y) {
+        int m = x % y;
+        return (m != 0 && ((m ^ y) < 0)) ? m + y : m;
+    }
+}
@@ -0,0 +1,96 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * <p>
+ * Serialized form of datetimes and ranges. MutableDateTime,
+ * ImmutableDateTime and the range classes replace themselves with this
+ * proxy when written, so a datetime costs a kind byte and its 8-byte rep,
+ * and a range its two reps, instead of the field descriptors of the class
+ * hierarchy. Reading resolves back to the original class.
+ * </p>
+ * <p>
+ * The datetime classes keep their serialVersionUID and fields, so streams
+ * written before the proxy was introduced still read.
+ * </p>
+ */
+public final class SerialRep implements Externalizable {
+
+    public static final long serialVersionUID = 1L;
+
+    static final byte MutableKind       = 1;
+    static final byte ImmutableKind     = 2;
+    static final byte RangeKind         = 3;
+    static final byte MutableRangeKind  = 4;
+
+    private byte _kind;
+    private long _lower;
+    private long _upper;
+
+    /**
+     * Externalizable Constructor, for deserialization only
+     */
+    public SerialRep() {}
+
+    SerialRep(byte kind, long lower, long upper) {
+        _kind = kind;
+        _lower = lower;
+        _upper = upper;
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(_kind);
+        out.writeLong(_lower);
+        if (_kind >= RangeKind) out.writeLong(_upper);
+    }
+
+    public void readExternal(ObjectInput in) throws IOException {
+        _kind = in.readByte();
+        if (_kind < MutableKind || _kind > MutableRangeKind) throw new java.io.InvalidObjectException("Unknown datetime kind " + _kind);
+        _lower = in.readLong();
+        if (_kind >= RangeKind) _upper = in.readLong();
+    }
+
+    private Object readResolve() {
+        switch(_kind) {
+            case MutableKind:       return new MutableDateTime(_lower);
+            case ImmutableKind:     return new ImmutableDateTime(_lower);
+            case RangeKind:         return new DateTimeRange(_lower, _upper);
+            default:                return new MutableDateTimeRange(_lower, _upper);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+/**
+ * <p>
+ * Bucketing of reps into bars anchored at a trading session open rather
+ * than midnight. A session is given by open and close times of day, in the
+ * same terms as <code>boundsForDayHours</code>. When the close is at or
+ * before the open, the session is overnight: it opens on the prior calendar
+ * evening and belongs to the trading day on which it closes.
+ * </p>
+ * <p>
+ * All session parameters are precomputed at construction, so mapping a rep
+ * to its bar is a mask, a subtraction, a compare and a division. Instances
+ * are immutable and can be shared between threads.
+ * </p>
+ * <pre>
+ *     SessionBuckets rth = new SessionBuckets(9, 30, 16, 0, 5);         // 5 minute bars, 09:30-16:00
+ *     SessionBuckets globex = new SessionBuckets(17, 0, 16, 0, 24*60);   // daily bars, 17:00 prior day
+ * </pre>
+ *
+ * @see RepBuckets
+ * @see AbstractDateTime#boundsForDayHours(int, int, int, int)
+ */
+public class SessionBuckets {
+
+    protected final int     _open;              // millis since midnight of session open
+    protected final int     _length;            // session length in millis
+    protected final int     _barWidth;          // bar length in millis
+    protected final int     _barsPerSession;
+    protected final boolean _overnight;         // session opens on prior calendar day
+
+    /**
+     * Hours and Minutes Constructor
+     *
+     * @param startHours session open hour (0..23)
+     * @param startMinutes session open minute (0..59)
+     * @param endHours session close hour (0..24)
+     * @param endMinutes session close minute (0..59)
+     * @param barMinutes bar length in minutes
+     */
+    public SessionBuckets(int startHours, int startMinutes, int endHours, int endMinutes, int barMinutes) {
+        this(startHours * DateTime.MillisInHour + startMinutes * DateTime.MillisInMinute,
+             endHours * DateTime.MillisInHour + endMinutes * DateTime.MillisInMinute,
+             barMinutes * DateTime.MillisInMinute);
+    }
+
+    /**
+     * Milliseconds Constructor
+     *
+     * @param openMillis session open, millis since midnight
+     * @param closeMillis session close (exclusive), millis since midnight
+     * @param barMillis bar length in millis
+     */
+    public SessionBuckets(int openMillis, int closeMillis, int barMillis) {
+        if (barMillis < 1) throw new IllegalArgumentException("Bar length must be positive: " + barMillis);
+        _open = openMillis % DateTime.MillisInDay;
+        int close = Math.min(closeMillis, DateTime.MillisInDay);
+        _overnight = close <= _open;
+        _length = _overnight ? close + DateTime.MillisInDay - _open : close - _open;
+        _barWidth = Math.min(barMillis, _length);
+        _barsPerSession = (_length + _barWidth - 1) / _barWidth;
+    }
+
+    // -----------------------------------------------------------
+    // Accessors
+    // -----------------------------------------------------------
+
+    public int openMillis() { return _open; }
+    public int sessionMillis() { return _length; }
+    public int barMillis() { return _barWidth; }
+    public int barsPerSession() { return _barsPerSession; }
+    public boolean isOvernight() { return _overnight; }
+
+    // -----------------------------------------------------------
+    // Single Rep
+    // -----------------------------------------------------------
+
+    /**
+     * Answer milliseconds since session open, or -1 outside the session
+     *
+     * @param rep long rep
+     * @return int millis into session
+     */
+    public int sessionOffset(long rep) {
+        int offset = RepUtil.millisSinceMidnight(rep) - _open;
+        if (offset < 0 && _overnight) offset += DateTime.MillisInDay;
+        return (offset >= 0 && offset < _length) ? offset : -1;
+    }
+
+    /**
+     * Answer whether rep falls within the session
+     *
+     * @param rep long rep
+     * @return boolean
+     */
+    public boolean inSession(long rep) {
+        return sessionOffset(rep) >= 0;
+    }
+
+    /**
+     * Answer bar number within the session (0..barsPerSession-1),
+     * or -1 outside the session
+     *
+     * @param rep long rep
+     * @return int bar index
+     */
+    public int barIndex(long rep) {
+        int offset = sessionOffset(rep);
+        return (offset < 0) ? -1 : offset / _barWidth;
+    }
+
+    /**
+     * Answer midnight rep of the trading day the rep belongs to. Overnight
+     * sessions assign the evening part of a calendar day to the next day.
+     *
+     * @param rep long rep
+     * @return long midnight rep of trading day
+     */
+    public long tradingDay(long rep) {
+        long day = RepUtil.dateOnly(rep);
+        if (_overnight && RepUtil.millisSinceMidnight(rep) >= _open) return RepUtil.addDays(day, 1);
+        return day;
+    }
+
+    /**
+     * Answer increasing bar number across sessions, or -1 outside the session.
+     *
+     * @param rep long rep
+     * @return long bucket index
+     */
+    public long bucketIndex(long rep) {
+        int offset = sessionOffset(rep);
+        if (offset < 0) return -1L;
+        return (long)RepUtil.absoluteDays(tradingDay(rep)) * _barsPerSession + (offset / _barWidth);
+    }
+
+    /**
+     * Answer rep of the start of the bar containing rep,
+     * or rep itself outside the session.
+     *
+     * @param rep long rep
+     * @return long bar start rep
+     */
+    public long floor(long rep) {
+        int offset = sessionOffset(rep);
+        if (offset < 0) return rep;
+        return RepUtil.addMillis(rep, -(offset % _barWidth));
+    }
+
+    /**
+     * Answer session bounds for the trading day containing rep.
+     * Upper bound is the last millisecond before close.
+     *
+     * @param rep long rep
+     * @return DateTimeRange
+     */
+    public DateTimeRange boundsForSession(long rep) {
+        long day = tradingDay(rep);
+        long open = _overnight ? RepUtil.addDays(day, -1) | _open : day | _open;
+        return new DateTimeRange(open, RepUtil.addMillis(open, _length - 1));
+    }
+
+    // -----------------------------------------------------------
+    // Rep Columns
+    // -----------------------------------------------------------
+
+    /**
+     * Answer bar numbers within session for a rep column (-1 outside the session)
+     *
+     * @param reps input rep column
+     * @param offset index of first input rep
+     * @param count number of reps
+     * @param out output column
+     * @param outOffset index of first output
+     */
+    public void barIndex(long[] reps, int offset, int count, int[] out, int outOffset) {
+        for(int i=0; i<count; i++) out[outOffset + i] = barIndex(reps[offset + i]);
+    }
+
+    /**
+     * Answer increasing bar numbers for a rep column (-1 outside the session).
+     * Consecutive reps on the same trading day reuse the day computation.
+     *
+     * @param reps input rep column
+     * @param offset index of first input rep
+     * @param count number of reps
+     * @param out output column
+     * @param outOffset index of first output
+     */
+    public void bucketIndex(long[] reps, int offset, int count, long[] out, int outOffset) {
+        long lastDay = 0L;
+        long dayBase = 0L;
+        boolean primed = false;
+        for(int i=0; i<count; i++) {
+            long rep = reps[offset + i];
+            int sessionOffset = sessionOffset(rep);
+            if (sessionOffset < 0) {
+                out[outOffset + i] = -1L;
+                continue;
+            }
+            long day = tradingDay(rep);
+            if (!primed || day != lastDay) {
+                dayBase = (long)RepUtil.absoluteDays(day) * _barsPerSession;
+                lastDay = day;
+                primed = true;
+            }
+            out[outOffset + i] = dayBase + (sessionOffset / _barWidth);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * <p>
+ * UTC offsets of one zone compiled for a window of years, for converting
+ * UTC timestamps to exchange-local reps and back without asking TimeZone
+ * per tick. The table holds the sorted epoch millis of each offset
+ * transition and the offset in force after it; times outside the window
+ * fall back to the TimeZone.
+ * </p>
+ * <p>
+ * A Cursor remembers the span it last converted: the part of a local day
+ * with a single offset. A timestamp inside that span converts with one
+ * range check and one add, so sorted columns rarely search the table.
+ * </p>
+ * <p>
+ * Local times resolve as Calendar does: a time skipped by a forward
+ * transition moves forward, and a repeated time reads as the later offset.
+ * Transitions are found by sampling the zone every six hours, so
+ * offsets lasting less than that are not resolved.
+ * </p>
+ * <pre>
+ *     ZoneOffsetTable table = new ZoneOffsetTable(TimeZone.getTimeZone("America/New_York"));
+ *     table.utcToLocalRep(epochMillis, 0, count, reps, 0);
+ * </pre>
+ *
+ * @see RepUtil#offsetOfLocal(long, java.util.TimeZone)
+ */
+public class ZoneOffsetTable {
+
+    public static final int DefaultFromYear = 1970;
+    public static final int DefaultToYear   = 2100;
+
+    protected static final long SampleMillis = 6L * DateTime.MillisInHour;
+
+    protected final TimeZone    _zone;
+    protected final int         _fromYear;
+    protected final int         _toYear;
+    protected final long        _windowStart;
+    protected final long        _windowEnd;
+    protected final long[]      _transitions;
+    protected final long[]      _localTransitions;
+    protected final int[]       _offsets;
+
+    /**
+     * Zone Constructor, for the default year window
+     *
+     * @param zone TimeZone
+     */
+    public ZoneOffsetTable(TimeZone zone) {
+        this(zone, DefaultFromYear, DefaultToYear);
+    }
+
+    /**
+     * Zone and Window Constructor
+     *
+     * @param zone TimeZone
+     * @param fromYear first year of window
+     * @param toYear last year of window, inclusive
+     */
+    public ZoneOffsetTable(TimeZone zone, int fromYear, int toYear) {
+        if (fromYear > toYear) throw new IllegalArgumentException("Year window " + fromYear + " is after " + toYear);
+        _zone = (TimeZone)zone.clone();
+        _fromYear = fromYear;
+        _toYear = toYear;
+        _windowStart = RepUtil.toEpochMillis(RepUtil.rep(fromYear, 1, 0));
+        _windowEnd = RepUtil.toEpochMillis(RepUtil.rep(toYear + 1, 1, 0));
+
+        long[] transitions = new long[16];
+        int[] offsets = new int[17];
+        int count = 0;
+        long scanEnd = _windowEnd + DateTime.MillisInDay;
+        long at = _windowStart - DateTime.MillisInDay;
+        int offset = _zone.getOffset(at);
+        offsets[0] = offset;
+        for(; at < scanEnd; at += SampleMillis) {
+            int next = _zone.getOffset(at + SampleMillis);
+            if (next == offset) continue;
+            long lo = at, hi = at + SampleMillis;
+            while(hi - lo > 1) {
+                long mid = (lo + hi) >>> 1;
+                if (_zone.getOffset(mid) == offset) lo = mid; else hi = mid;
+            }
+            if (count == transitions.length) {
+                transitions = Arrays.copyOf(transitions, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            }
+            transitions[count++] = hi;
+            offsets[count] = offset = next;
+        }
+        _transitions = Arrays.copyOf(transitions, count);
+        _offsets = Arrays.copyOf(offsets, count + 1);
+        _localTransitions = new long[count];
+        for(int i=0; i<count; i++) _localTransitions[i] = _transitions[i] + _offsets[i + 1];
+    }
+
+    // -----------------------------------------------------------
+    // Accessors
+    // -----------------------------------------------------------
+
+    public TimeZone zone() { return (TimeZone)_zone.clone(); }
+    public int fromYear() { return _fromYear; }
+    public int toYear() { return _toYear; }
+
+    /**
+     * @return number of offset transitions in table
+     */
+    public int transitions() { return _transitions.length; }
+
+    /**
+     * Answer epoch millis of a transition
+     *
+     * @param index transition index
+     * @return long epoch millis at which offset changes
+     */
+    public long transitionAt(int index) { return _transitions[index]; }
+
+    /**
+     * Answer offset in force from a transition
+     *
+     * @param index transition index
+     * @return int offset millis
+     */
+    public int offsetAfter(int index) { return _offsets[index + 1]; }
+
+    // -----------------------------------------------------------
+    // Offsets
+    // -----------------------------------------------------------
+
+    /**
+     * Answer UTC offset at epoch millis
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return int offset millis
+     */
+    public int offsetAt(long epochMillis) {
+        if (epochMillis < _windowStart || epochMillis >= _windowEnd) return _zone.getOffset(epochMillis);
+        return _offsets[_segment(_transitions, epochMillis)];
+    }
+
+    /**
+     * Answer UTC offset of a local rep
+     *
+     * @param rep long rep, local to zone
+     * @return int offset millis
+     */
+    public int offsetOfLocal(long rep) {
+        long local = RepUtil.toEpochMillis(rep);
+        if (local < _windowStart || local >= _windowEnd) return RepUtil.offsetOfLocal(rep, _zone);
+        return _offsets[_segment(_localTransitions, local)];
+    }
+
+    /**
+     * Answer number of boundaries at or before millis, which
+     * indexes the offset in force
+     */
+    protected static int _segment(long[] boundaries, long millis) {
+        int i = Arrays.binarySearch(boundaries, millis);
+        return (i >= 0) ? i + 1 : -i - 1;
+    }
+
+    // -----------------------------------------------------------
+    // Conversions
+    // -----------------------------------------------------------
+
+    /**
+     * Answer local rep of epoch millis
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return long rep
+     */
+    public long utcToLocalRep(long epochMillis) {
+        return RepUtil.fromEpochMillis(epochMillis, offsetAt(epochMillis));
+    }
+
+    /**
+     * Answer epoch millis of local rep
+     *
+     * @param rep long rep, local to zone
+     * @return long epoch millis
+     */
+    public long localRepToUtc(long rep) {
+        return RepUtil.toEpochMillis(rep, offsetOfLocal(rep));
+    }
+
+    /**
+     * Convert column of epoch millis to local reps
+     *
+     * @param epochMillis source column
+     * @param offset index of first value
+     * @param count number of values
+     * @param reps target column
+     * @param at index of first rep written
+     * @return index after last rep written
+     */
+    public int utcToLocalRep(long[] epochMillis, int offset, int count, long[] reps, int at) {
+        Cursor cursor = cursor();
+        for(int i=offset; i<offset + count; i++) reps[at++] = cursor.utcToLocalRep(epochMillis[i]);
+        return at;
+    }
+
+    /**
+     * Convert column of local reps to epoch millis
+     *
+     * @param reps source column
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param epochMillis target column
+     * @param at index of first value written
+     * @return index after last value written
+     */
+    public int localRepToUtc(long[] reps, int offset, int count, long[] epochMillis, int at) {
+        Cursor cursor = cursor();
+        for(int i=offset; i<offset + count; i++) epochMillis[at++] = cursor.localRepToUtc(reps[i]);
+        return at;
+    }
+
+    /**
+     * @return new Cursor over this table
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // -----------------------------------------------------------
+    // Cursor
+    // -----------------------------------------------------------
+
+    /**
+     * Single-threaded converter caching the span of its last conversion.
+     * Each direction keeps its own span.
+     */
+    public class Cursor {
+
+        protected long _utcStart = 1, _utcEnd = 0, _utcRep;
+        protected long _repStart = 1, _repEnd = 0, _repUtc;
+
+        /**
+         * Answer local rep of epoch millis
+         *
+         * @param epochMillis milliseconds since the epoch
+         * @return long rep
+         */
+        public long utcToLocalRep(long epochMillis) {
+            if (epochMillis >= _utcStart && epochMillis < _utcEnd) return _utcRep + (epochMillis - _utcStart);
+            if (epochMillis < _windowStart || epochMillis >= _windowEnd) return RepUtil.fromEpochMillis(epochMillis, _zone.getOffset(epochMillis));
+
+            int i = _segment(_transitions, epochMillis);
+            int offset = _offsets[i];
+            long dayStart = RepUtil.floorDiv(epochMillis + offset, DateTime.MillisInDay) * DateTime.MillisInDay - offset;
+            long start = (i == 0) ? dayStart : Math.max(dayStart, _transitions[i - 1]);
+            long end = (i == _transitions.length) ? dayStart + DateTime.MillisInDay : Math.min(dayStart + DateTime.MillisInDay, _transitions[i]);
+            _utcStart = start;
+            _utcEnd = end;
+            _utcRep = RepUtil.fromEpochMillis(start, offset);
+            return _utcRep + (epochMillis - start);
+        }
+
+        /**
+         * Answer epoch millis of local rep
+         *
+         * @param rep long rep, local to zone
+         * @return long epoch millis
+         */
+        public long localRepToUtc(long rep) {
+            if (rep >= _repStart && rep < _repEnd) return _repUtc + (rep - _repStart);
+            long local = RepUtil.toEpochMillis(rep);
+            if (local < _windowStart || local >= _windowEnd) return RepUtil.toEpochMillis(rep, RepUtil.offsetOfLocal(rep, _zone));
+
+            int i = _segment(_localTransitions, local);
+            int offset = _offsets[i];
+            long dayStart = local - RepUtil.millisSinceMidnight(rep);
+            long start = (i == 0) ? dayStart : Math.max(dayStart, _localTransitions[i - 1]);
+            long end = (i == _localTransitions.length) ? dayStart + DateTime.MillisInDay : Math.min(dayStart + DateTime.MillisInDay, _localTransitions[i]);
+            _repStart = RepUtil.fromEpochMillis(start);
+            _repEnd = _repStart + (end - start);
+            _repUtc = start - offset;
+            return _repUtc + (rep - _repStart);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package bitzguild.ts.datetime.format;
+
+import bitzguild.ts.datetime.DateTime;
+import bitzguild.ts.datetime.DateTimeByteRenderer;
+import bitzguild.ts.datetime.DateTimeFormat;
+import bitzguild.ts.datetime.DateUtil;
+import bitzguild.ts.datetime.MutableDateTime;
+import bitzguild.ts.datetime.RepUtil;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.ParsePosition;
+
+/**
+ * <p>
+ * Base for formats that render to any <code>Appendable</code>. Subclasses
+ * implement <code>renderToAppendable</code> once; the StringBuffer and
+ * StringBuilder entry points delegate to it, and neither can raise
+ * IOException in practice.
+ * </p>
+ */
+public abstract class AbstractDateTimeFormat implements DateTimeFormat {
+
+    public StringBuffer renderToBuffer(DateTime date, StringBuffer strb) {
+        try {
+            return renderToAppendable(date, strb);
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public StringBuilder renderToBuilder(DateTime date, StringBuilder strb) {
+        try {
+            return renderToAppendable(date, strb);
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Render a rep column onto builder, each rep followed by the delimiter.
+     * One scratch datetime is reused for the whole column.
+     *
+     * @param reps rep column
+     * @param offset index of first rep
+     * @param count number of reps
+     * @param delimiter char appended after each rep, e.g. '\n'
+     * @param strb StringBuilder
+     * @return StringBuilder
+     */
+    public StringBuilder renderColumn(long[] reps, int offset, int count, char delimiter, StringBuilder strb) {
+        MutableDateTime scratch = new MutableDateTime();
+        for(int i=offset; i<offset + count; i++) {
+            scratch.setRep(reps[i]);
+            renderToBuilder(scratch, strb).append(delimiter);
+        }
+        return strb;
+    }
+
+    /**
+     * Shared column loop for DateTimeByteRenderer implementations
+     */
+    protected static int _renderColumn(DateTimeByteRenderer renderer, long[] reps, int offset, int count, byte delimiter, byte[] bytes, int at) {
+        for(int i=offset; i<offset + count; i++) {
+            at = renderer.renderRep(reps[i], bytes, at);
+            bytes[at++] = delimiter;
+        }
+        return at;
+    }
+
+    // -----------------------------------------------------------
+    // Parse Helpers
+    // -----------------------------------------------------------
+
+    /**
+     * Record error index and answer the invalid rep
+     */
+    protected static long _fail(ParsePosition position, int errorIndex) {
+        position.setErrorIndex(errorIndex);
+        return RepUtil.InvalidRep;
+    }
+
+    /**
+     * Answer index of the invalid field of a parsed date, or -1 when
+     * month is 1..12 and day lies within that month
+     */
+    protected static int _dateError(int year, int month, int day, int monthAt, int dayAt) {
+        if (month < 1 || month > 12) return monthAt;
+        if (day < 1 || day > DateUtil.daysInMonthForYear(month, year)) return dayAt;
+        return -1;
+    }
+
+    /**
+     * Answer exception for a failed tryParseRep, for the throwing entry points
+     */
+    protected static ParseException _parseException(ParsePosition position) {
+        return new ParseException("Unparseable datetime at index " + position.getErrorIndex(), position.getErrorIndex());
+    }
+
+    // -----------------------------------------------------------
+    // Digit Helpers
+    // -----------------------------------------------------------
+
+    /**
+     * Answer 10 raised to n, for n of 0..9
+     */
+    protected static int _pow10(int n) {
+        int p = 1;
+        while(n-- > 0) p *= 10;
+        return p;
+    }
+
+    /**
+     * Append non-negative value as exactly <code>width</code> digits, zero padded
+     *
+     * @param out Appendable
+     * @param value non-negative value
+     * @param width number of digits
+     */
+    protected static void _appendFixed(Appendable out, int value, int width) throws IOException {
+        for(int pad = width - AsciiDigits.length(value); pad > 0; pad--) out.append('0');
+        _appendDigits(out, value);
+    }
+
+    /**
+     * Append value in decimal, with a leading '-' when negative
+     *
+     * @param out Appendable
+     * @param value int
+     */
+    protected static void _appendInt(Appendable out, int value) throws IOException {
+        if (value < 0) {
+            out.append('-');
+            if (value == Integer.MIN_VALUE) {
+                out.append("2147483648");
+                return;
+            }
+            value = -value;
+        }
+        _appendDigits(out, value);
+    }
+
+    /**
+     * Append non-negative value; builders take the value whole, so a
+     * StringBuffer locks once per number rather than once per digit.
+     */
+    private static void _appendDigits(Appendable out, int value) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder)out).append(value);
+        } else if (out instanceof StringBuffer) {
+            ((StringBuffer)out).append(value);
+        } else {
+            int div = 1;
+            while(value / div >= 10) div *= 10;
+            for(; div > 0; div /= 10) out.append((char)('0' + (value / div) % 10));
+        }
+    }
+}
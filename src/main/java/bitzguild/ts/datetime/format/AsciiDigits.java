@@ -0,0 +1,236 @@
+package bitzguild.ts.datetime.format;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Helpers for reading and writing decimal fields as ASCII bytes, shared
+ * by the byte level parsers and renderers. Field readers answer -1 when
+ * any byte is not a digit, so callers can report the error position
+ * themselves. Writers answer the index past the last byte written.
+ * </p>
+ */
+public final class AsciiDigits {
+
+    private AsciiDigits() {}
+
+    private static final byte[] Pairs = new byte[200];
+    private static final byte[] MinInt = { '-', '2', '1', '4', '7', '4', '8', '3', '6', '4', '8' };
+    static {
+        for(int i=0; i<100; i++) {
+            Pairs[2*i] = (byte)('0' + i / 10);
+            Pairs[2*i+1] = (byte)('0' + i % 10);
+        }
+    }
+
+    /**
+     * Answer decimal value of an ASCII digit, or -1
+     *
+     * @param b byte
+     * @return int 0..9 or -1
+     */
+    public static int digit(byte b) {
+        int d = b - '0';
+        return (d >= 0 && d <= 9) ? d : -1;
+    }
+
+    /**
+     * Answer value of <code>width</code> ASCII digits, or -1
+     *
+     * @param bytes ASCII bytes
+     * @param offset index of first digit
+     * @param width number of digits (at most 9)
+     * @return int value or -1
+     */
+    public static int parseFixed(byte[] bytes, int offset, int width) {
+        int value = 0;
+        int bad = 0;
+        for(int i=offset, end=offset+width; i<end; i++) {
+            int d = bytes[i] - '0';
+            bad |= d | (9 - d);
+            value = value*10 + d;
+        }
+        return (bad < 0) ? -1 : value;
+    }
+
+    /**
+     * Answer value of <code>width</code> ASCII digits, or -1
+     *
+     * @param buffer ASCII bytes
+     * @param index absolute index of first digit
+     * @param width number of digits (at most 9)
+     * @return int value or -1
+     */
+    public static int parseFixed(ByteBuffer buffer, int index, int width) {
+        int value = 0;
+        int bad = 0;
+        for(int i=index, end=index+width; i<end; i++) {
+            int d = buffer.get(i) - '0';
+            bad |= d | (9 - d);
+            value = value*10 + d;
+        }
+        return (bad < 0) ? -1 : value;
+    }
+
+    /**
+     * Answer index of first non-digit at or after offset
+     *
+     * @param bytes ASCII bytes
+     * @param offset start index
+     * @param limit index past last readable byte
+     * @return int index (limit when all digits)
+     */
+    public static int scan(byte[] bytes, int offset, int limit) {
+        int i = offset;
+        while(i < limit && digit(bytes[i]) >= 0) i++;
+        return i;
+    }
+
+    /**
+     * Answer index of first non-digit at or after index
+     *
+     * @param buffer ASCII bytes
+     * @param index absolute start index
+     * @param limit index past last readable byte
+     * @return int index (limit when all digits)
+     */
+    public static int scan(ByteBuffer buffer, int index, int limit) {
+        int i = index;
+        while(i < limit && digit(buffer.get(i)) >= 0) i++;
+        return i;
+    }
+
+    /**
+     * Answer value of the digits in [offset, end), at most 10 digits
+     *
+     * @param bytes ASCII digits
+     * @param offset index of first digit
+     * @param end index past last digit
+     * @return long value
+     */
+    public static long value(byte[] bytes, int offset, int end) {
+        long value = 0;
+        for(int i=offset; i<end; i++) value = value*10 + (bytes[i] - '0');
+        return value;
+    }
+
+    /**
+     * Answer value of the digits in [index, end), at most 10 digits
+     *
+     * @param buffer ASCII digits
+     * @param index absolute index of first digit
+     * @param end index past last digit
+     * @return long value
+     */
+    public static long value(ByteBuffer buffer, int index, int end) {
+        long value = 0;
+        for(int i=index; i<end; i++) value = value*10 + (buffer.get(i) - '0');
+        return value;
+    }
+
+    // -----------------------------------------------------------
+    // Writing
+    // -----------------------------------------------------------
+
+    /**
+     * Write non-negative value as exactly <code>width</code> digits, zero padded
+     * on the left. Higher digits that do not fit are dropped.
+     *
+     * @param bytes target
+     * @param offset index of first digit
+     * @param value non-negative value
+     * @param width number of digits
+     * @return int index past last digit
+     */
+    public static int writeFixed(byte[] bytes, int offset, int value, int width) {
+        int i = offset + width;
+        while(i - offset >= 2) {
+            int q = value / 100;
+            int pair = (value - q * 100) << 1;
+            bytes[--i] = Pairs[pair + 1];
+            bytes[--i] = Pairs[pair];
+            value = q;
+        }
+        if (i > offset) bytes[--i] = (byte)('0' + value % 10);
+        return offset + width;
+    }
+
+    /**
+     * Write non-negative value as exactly <code>width</code> digits, zero padded
+     * on the left. Higher digits that do not fit are dropped.
+     *
+     * @param buffer target
+     * @param index absolute index of first digit
+     * @param value non-negative value
+     * @param width number of digits
+     * @return int index past last digit
+     */
+    public static int writeFixed(ByteBuffer buffer, int index, int value, int width) {
+        int i = index + width;
+        while(i - index >= 2) {
+            int q = value / 100;
+            int pair = (value - q * 100) << 1;
+            buffer.put(--i, Pairs[pair + 1]);
+            buffer.put(--i, Pairs[pair]);
+            value = q;
+        }
+        if (i > index) buffer.put(--i, (byte)('0' + value % 10));
+        return index + width;
+    }
+
+    /**
+     * Answer number of characters in the decimal form of value, including sign
+     *
+     * @param value int
+     * @return int
+     */
+    public static int length(int value) {
+        if (value < 0) return (value == Integer.MIN_VALUE) ? 11 : 1 + length(-value);
+        int n = 1;
+        while(value >= 10) {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Write value in decimal, with a leading '-' when negative
+     *
+     * @param bytes target
+     * @param offset index of first byte
+     * @param value int
+     * @return int index past last byte
+     */
+    public static int writeInt(byte[] bytes, int offset, int value) {
+        if (value == Integer.MIN_VALUE) {
+            System.arraycopy(MinInt, 0, bytes, offset, MinInt.length);
+            return offset + MinInt.length;
+        }
+        if (value < 0) {
+            bytes[offset++] = '-';
+            return writeFixed(bytes, offset, -value, length(-value));
+        }
+        return writeFixed(bytes, offset, value, length(value));
+    }
+
+    /**
+     * Write value in decimal, with a leading '-' when negative
+     *
+     * @param buffer target
+     * @param index absolute index of first byte
+     * @param value int
+     * @return int index past last byte
+     */
+    public static int writeInt(ByteBuffer buffer, int index, int value) {
+        if (value == Integer.MIN_VALUE) {
+            for(int i=0; i<MinInt.length; i++) buffer.put(index + i, MinInt[i]);
+            return index + MinInt.length;
+        }
+        if (value < 0) {
+            buffer.put(index++, (byte)'-');
+            return writeFixed(buffer, index, -value, length(-value));
+        }
+        return writeFixed(buffer, index, value, length(value));
+    }
+}
@@ -3,12 +3,37 @@ package bitzguild.ts.datetime.format;
 
 import bitzguild.ts.datetime.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
+import java.text.ParsePosition;
 
-public class CompactDateTimeFormat implements DateTimeFormat {
+/**
+ * <p>
+ * Compact numeric format <code>YYYYMMDD[.HHMMSSmmm]</code>. Date and time are
+ * read as numbers, then split into fields by decimal position; the time is
+ * omitted on output when it is midnight. The date is exactly eight digits,
+ * with an optional sign for the year, and a month or day out of range for
+ * the year is a parse error at that field, as are minutes or seconds past 59.
+ * </p>
+ * <p>
+ * Parsing scans digits in place and answers a rep, so reading from a
+ * <code>CharSequence</code> slice, <code>char[]</code>, or ASCII bytes
+ * creates no objects. Byte parsing stops at the first byte that is not part
+ * of the timestamp, typically a field delimiter.
+ * </p>
+ * <p>
+ * Rendered dates are kept in a small RenderedDates cache, so runs of
+ * timestamps on the same day only render the time of day.
+ * </p>
+ */
+public class CompactDateTimeFormat extends AbstractDateTimeFormat implements DateTimeRepParser, DateTimeByteParser, DateTimeByteRenderer {
 
 
-    protected DaysAndMonths _daysAndMonths;
+    protected static final int      DateDigits = 8;
+
+    protected DaysAndMonths         _daysAndMonths;
+    protected final RenderedDates   _dates = new RenderedDates();
 
     /**
      * Default Constructor
@@ -32,59 +57,352 @@ public class CompactDateTimeFormat implements DateTimeFormat {
     
     /**
      * Parse string into MutableDateTime
-     * TODO: Parse Time
      * 
      * @param datetime MutableDateTime receiver
      * @param datetimeString String to parse
      */
     public DateTime parseToDateTime(MutableDateTime datetime, String datetimeString) throws ParseException {
-    	
-    	String dateStr = null;
-    	String timeStr = null;
-        int idx = datetimeString.indexOf('.');
-        if (idx < 0) {
-        	dateStr = datetimeString;
-        } else {
-            dateStr = datetimeString.substring(0, idx);
-            timeStr = datetimeString.substring(idx+1, datetimeString.length());
+        datetime.setRep(parseRep(datetimeString, 0, datetimeString.length()));
+        return datetime;
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeRepParser
+    // -----------------------------------------------------------
+
+    public long parseRep(CharSequence text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long parseRep(char[] text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long tryParseRep(CharSequence text, int offset, int length, ParsePosition position) {
+        int end = offset + length;
+        if (length == 8 || (length == 18 && text.charAt(offset + 8) == '.')) {
+            long rep = _fixedRep(text, offset, length);
+            if (rep != -1) {
+                position.setIndex(end);
+                return rep;
+            }
+        }
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) negative = (text.charAt(i++) == '-');
+
+        int start = i;
+        int date = 0;
+        char c;
+        while(i < end && (c = text.charAt(i)) != '.') {
+            if (c < '0' || c > '9' || i - start == DateDigits) return _fail(position, i);
+            date = date*10 + (c - '0');
+            i++;
+        }
+        if (i - start != DateDigits) return _fail(position, i);
+        int error = _dateNumberError(date, start);
+        if (error >= 0) return _fail(position, error);
+
+        long time = 0;
+        int timeStart = i;
+        if (i < end) {
+            timeStart = ++i;
+            while(i < end) {
+                c = text.charAt(i);
+                if (c < '0' || c > '9') return _fail(position, i);
+                if ((time = time*10 + (c - '0')) > Integer.MAX_VALUE) return _fail(position, i);
+                i++;
+            }
+            if (i == timeStart) return _fail(position, i);
+        }
+        long rep = _rep(negative ? -date : date, time);
+        if (rep == RepUtil.InvalidRep) return _fail(position, timeStart);
+        position.setIndex(end);
+        return rep;
+    }
+
+    public long tryParseRep(char[] text, int offset, int length, ParsePosition position) {
+        int end = offset + length;
+        if (length == 8 || (length == 18 && text[offset + 8] == '.')) {
+            long rep = _fixedRep(text, offset, length);
+            if (rep != -1) {
+                position.setIndex(end);
+                return rep;
+            }
         }
-    	
-        int yyyymmdd = Integer.parseInt(dateStr);
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (text[i] == '-' || text[i] == '+')) negative = (text[i++] == '-');
+
+        int start = i;
+        int date = 0;
+        char c;
+        while(i < end && (c = text[i]) != '.') {
+            if (c < '0' || c > '9' || i - start == DateDigits) return _fail(position, i);
+            date = date*10 + (c - '0');
+            i++;
+        }
+        if (i - start != DateDigits) return _fail(position, i);
+        int error = _dateNumberError(date, start);
+        if (error >= 0) return _fail(position, error);
+
+        long time = 0;
+        int timeStart = i;
+        if (i < end) {
+            timeStart = ++i;
+            while(i < end) {
+                c = text[i];
+                if (c < '0' || c > '9') return _fail(position, i);
+                if ((time = time*10 + (c - '0')) > Integer.MAX_VALUE) return _fail(position, i);
+                i++;
+            }
+            if (i == timeStart) return _fail(position, i);
+        }
+        long rep = _rep(negative ? -date : date, time);
+        if (rep == RepUtil.InvalidRep) return _fail(position, timeStart);
+        position.setIndex(end);
+        return rep;
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeByteParser
+    // -----------------------------------------------------------
+
+    public long parseRep(byte[] bytes, ParsePosition position, int limit) throws ParseException {
+        long rep = tryParseRep(bytes, position, limit);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long parseRep(ByteBuffer buffer, ParsePosition position, int limit) throws ParseException {
+        long rep = tryParseRep(buffer, position, limit);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long tryParseRep(byte[] bytes, ParsePosition position, int limit) {
+        int start = position.getIndex();
+        boolean negative = false;
+        if (start < limit && (bytes[start] == '-' || bytes[start] == '+')) negative = (bytes[start++] == '-');
+        int end = AsciiDigits.scan(bytes, start, limit);
+        if (end - start != DateDigits) return _fail(position, Math.min(end, start + DateDigits));
+        int date = (int)AsciiDigits.value(bytes, start, end);
+        int error = _dateNumberError(date, start);
+        if (error >= 0) return _fail(position, error);
+
+        long time = 0;
+        int timeStart = end;
+        if (end < limit && bytes[end] == '.') {
+            timeStart = end + 1;
+            end = AsciiDigits.scan(bytes, timeStart, limit);
+            if (end == timeStart) return _fail(position, timeStart);
+            if (end - timeStart > 10) return _fail(position, timeStart + 10);
+            time = AsciiDigits.value(bytes, timeStart, end);
+            if (time > Integer.MAX_VALUE) return _fail(position, timeStart);
+        }
+        long rep = _rep(negative ? -date : date, time);
+        if (rep == RepUtil.InvalidRep) return _fail(position, timeStart);
+        position.setIndex(end);
+        return rep;
+    }
+
+    public long tryParseRep(ByteBuffer buffer, ParsePosition position, int limit) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0) return tryParseRep(buffer.array(), position, limit);
+        int start = position.getIndex();
+        boolean negative = false;
+        if (start < limit && (buffer.get(start) == '-' || buffer.get(start) == '+')) negative = (buffer.get(start++) == '-');
+        int end = AsciiDigits.scan(buffer, start, limit);
+        if (end - start != DateDigits) return _fail(position, Math.min(end, start + DateDigits));
+        int date = (int)AsciiDigits.value(buffer, start, end);
+        int error = _dateNumberError(date, start);
+        if (error >= 0) return _fail(position, error);
+
+        long time = 0;
+        int timeStart = end;
+        if (end < limit && buffer.get(end) == '.') {
+            timeStart = end + 1;
+            end = AsciiDigits.scan(buffer, timeStart, limit);
+            if (end == timeStart) return _fail(position, timeStart);
+            if (end - timeStart > 10) return _fail(position, timeStart + 10);
+            time = AsciiDigits.value(buffer, timeStart, end);
+            if (time > Integer.MAX_VALUE) return _fail(position, timeStart);
+        }
+        long rep = _rep(negative ? -date : date, time);
+        if (rep == RepUtil.InvalidRep) return _fail(position, timeStart);
+        position.setIndex(end);
+        return rep;
+    }
+
+    /**
+     * Answer index of the invalid month or day of a YYYYMMDD number whose
+     * digits start at index start, or -1 when the date exists
+     */
+    protected static int _dateNumberError(int yyyymmdd, int start) {
+        return _dateError(yyyymmdd / 10000, (yyyymmdd / 100) % 100, yyyymmdd % 100, start + 4, start + 6);
+    }
+
+    /**
+     * Fast path for the rendered layouts, YYYYMMDD and YYYYMMDD.HHMMSSmmm.
+     * Fields are read by position, which matches the numeric split for
+     * these lengths. Answers -1 for anything the general scan must handle,
+     * including every malformed input, so errors are reported in one place.
+     */
+    protected static long _fixedRep(CharSequence text, int offset, int length) {
+        int d0 = text.charAt(offset) - '0', d1 = text.charAt(offset+1) - '0';
+        int d2 = text.charAt(offset+2) - '0', d3 = text.charAt(offset+3) - '0';
+        int d4 = text.charAt(offset+4) - '0', d5 = text.charAt(offset+5) - '0';
+        int d6 = text.charAt(offset+6) - '0', d7 = text.charAt(offset+7) - '0';
+        int bad = d0 | (9-d0) | d1 | (9-d1) | d2 | (9-d2) | d3 | (9-d3) | d4 | (9-d4) | d5 | (9-d5) | d6 | (9-d6) | d7 | (9-d7);
+        int millis = 0;
+        if (length == 18) {
+            int t0 = text.charAt(offset+9) - '0', t1 = text.charAt(offset+10) - '0';
+            int t2 = text.charAt(offset+11) - '0', t3 = text.charAt(offset+12) - '0';
+            int t4 = text.charAt(offset+13) - '0', t5 = text.charAt(offset+14) - '0';
+            int t6 = text.charAt(offset+15) - '0', t7 = text.charAt(offset+16) - '0';
+            int t8 = text.charAt(offset+17) - '0';
+            bad |= t0 | (9-t0) | t1 | (9-t1) | t2 | (9-t2) | t3 | (9-t3) | t4 | (9-t4) | t5 | (9-t5) | t6 | (9-t6) | t7 | (9-t7) | t8 | (9-t8);
+            if (t2*10 + t3 > 59 || t4*10 + t5 > 59) return -1;
+            millis = RepUtil.millisOf(t0*10 + t1, t2*10 + t3, t4*10 + t5, t6*100 + t7*10 + t8);
+        }
+        int year = d0*1000 + d1*100 + d2*10 + d3;
+        int month = d4*10 + d5;
+        int day = d6*10 + d7;
+        if (bad < 0 || millis >= DateTime.MillisInDay || _dateError(year, month, day, 0, 0) >= 0) return -1;
+        return RepUtil.repFromYearMonthDay(year, month, day, millis);
+    }
+
+    protected static long _fixedRep(char[] text, int offset, int length) {
+        int d0 = text[offset] - '0', d1 = text[offset+1] - '0';
+        int d2 = text[offset+2] - '0', d3 = text[offset+3] - '0';
+        int d4 = text[offset+4] - '0', d5 = text[offset+5] - '0';
+        int d6 = text[offset+6] - '0', d7 = text[offset+7] - '0';
+        int bad = d0 | (9-d0) | d1 | (9-d1) | d2 | (9-d2) | d3 | (9-d3) | d4 | (9-d4) | d5 | (9-d5) | d6 | (9-d6) | d7 | (9-d7);
+        int millis = 0;
+        if (length == 18) {
+            int t0 = text[offset+9] - '0', t1 = text[offset+10] - '0';
+            int t2 = text[offset+11] - '0', t3 = text[offset+12] - '0';
+            int t4 = text[offset+13] - '0', t5 = text[offset+14] - '0';
+            int t6 = text[offset+15] - '0', t7 = text[offset+16] - '0';
+            int t8 = text[offset+17] - '0';
+            bad |= t0 | (9-t0) | t1 | (9-t1) | t2 | (9-t2) | t3 | (9-t3) | t4 | (9-t4) | t5 | (9-t5) | t6 | (9-t6) | t7 | (9-t7) | t8 | (9-t8);
+            if (t2*10 + t3 > 59 || t4*10 + t5 > 59) return -1;
+            millis = RepUtil.millisOf(t0*10 + t1, t2*10 + t3, t4*10 + t5, t6*100 + t7*10 + t8);
+        }
+        int year = d0*1000 + d1*100 + d2*10 + d3;
+        int month = d4*10 + d5;
+        int day = d6*10 + d7;
+        if (bad < 0 || millis >= DateTime.MillisInDay || _dateError(year, month, day, 0, 0) >= 0) return -1;
+        return RepUtil.repFromYearMonthDay(year, month, day, millis);
+    }
+
+    /**
+     * Answer rep from numeric YYYYMMDD and HHMMSSmmm values. The date must
+     * already be checked by _dateNumberError; a negative date number is a
+     * negative year.
+     *
+     * @param yyyymmdd date number
+     * @param hhmmssmmm time number
+     * @return long rep, or RepUtil.InvalidRep for out of range time
+     */
+    protected static long _rep(int yyyymmdd, long hhmmssmmm) {
         int year = yyyymmdd / 10000;
-        int yearBalance = yyyymmdd % 10000;
-        int month = yearBalance / 100;
-        int day = yearBalance % 100;
-        datetime.setFromYearMonthDay(year,month,day);
-        
-        if (timeStr != null) {
-            int combo = Integer.parseInt(timeStr);
-            int hms = combo / 1000;
-            int ms = combo % 1000;
-            int hm = hms / 100;
-            int sec = hms % 100;
-            int h = hm / 100;
-            int m = hm % 100;
-            datetime.setHoursMinutesSecondsMillis(h,m, sec, ms);
+        int yearBalance = Math.abs(yyyymmdd % 10000);
+        int combo = (int)hhmmssmmm;
+        int hms = combo / 1000;
+        int hm = hms / 100;
+        if (hm % 100 > 59 || hms % 100 > 59) return RepUtil.InvalidRep;
+        int millis = RepUtil.millisOf(hm / 100, hm % 100, hms % 100, combo % 1000);
+        if (millis >= DateTime.MillisInDay) return RepUtil.InvalidRep;
+        return RepUtil.repFromYearMonthDay(year, yearBalance / 100, yearBalance % 100, millis);
+    }
+
+    /**
+     * Format given date time onto output
+     */
+    public <A extends Appendable> A renderToAppendable(DateTime date, A out) throws IOException {
+        long rep = date.rep();
+        out.append(_date(rep).text);
+        int millis = RepUtil.millisSinceMidnight(rep);
+        if (millis > 0) {
+            out.append('.');
+            _appendFixed(out, _timeNumber(millis), 9);
         }
-        return datetime;
+        return out;
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeByteRenderer
+    // -----------------------------------------------------------
+
+    public int renderRep(long rep, byte[] bytes, int offset) {
+        byte[] date = _date(rep).bytes;
+        System.arraycopy(date, 0, bytes, offset, date.length);
+        int at = offset + date.length;
+        int millis = RepUtil.millisSinceMidnight(rep);
+        if (millis > 0) {
+            bytes[at++] = '.';
+            at = AsciiDigits.writeFixed(bytes, at, _timeNumber(millis), 9);
+        }
+        return at;
+    }
+
+    public int renderRep(long rep, ByteBuffer buffer, int index) {
+        byte[] date = _date(rep).bytes;
+        int at = index;
+        for(byte b : date) buffer.put(at++, b);
+        int millis = RepUtil.millisSinceMidnight(rep);
+        if (millis > 0) {
+            buffer.put(at++, (byte)'.');
+            at = AsciiDigits.writeFixed(buffer, at, _timeNumber(millis), 9);
+        }
+        return at;
+    }
+
+    public int renderColumn(long[] reps, int offset, int count, byte delimiter, byte[] bytes, int at) {
+        return _renderColumn(this, reps, offset, count, delimiter, bytes, at);
+    }
+
+    public int maxLength() {
+        return 18;
     }
 
     /**
-     * Format given date time into buffer
+     * Answer rendered date for rep, from cache when the day repeats
      */
-    public StringBuffer renderToBuffer(DateTime date, StringBuffer strb) {
-        strb.append(date.year()*10000 + date.month()*100 + date.day());
-        if (date.millisecondsSinceMidnight() > 0) {
-            strb.append(".");
-            int before = strb.length();
-            strb.append(date.hours()*10000000 + date.minutes()*100000 + date.seconds()*1000 + date.millis());
-            int len = strb.length() - before;
-            if (len < 9) {
-                int balance = 9 - len;
-                while(balance-- > 0) strb.insert(before, '0');
-            }
+    protected RenderedDates.Entry _date(long rep) {
+        int intRep = RepUtil.intRep(rep);
+        RenderedDates.Entry entry = _dates.get(intRep);
+        if (entry != null) return entry;
+        int ymd = _dateNumber(rep);
+        StringBuilder text = new StringBuilder(9);
+        try {
+            if (ymd < 0) text.append('-');
+            _appendFixed(text, Math.abs(ymd), DateDigits);
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
         }
-        return strb;
+        return _dates.put(intRep, text.toString());
+    }
+
+    protected static int _dateNumber(long rep) {
+        int year = RepUtil.year(rep);
+        int doy = RepUtil.dayOfYear(rep);
+        int leap = DateUtil.leapYearBalance(year);
+        int month = RepUtil.monthOfDayOfYear(doy, leap);
+        int day = doy - DateUtil.firstDayOfMonth(month, year) + 1;
+        return year*10000 + month*100 + day;
+    }
+
+    protected static int _timeNumber(int millis) {
+        int seconds = millis / DateTime.MillisInSecond;
+        int minutes = seconds / 60;
+        return (minutes / 60) * 10000000 + (minutes % 60) * 100000 + (seconds % 60) * 1000 + millis % DateTime.MillisInSecond;
     }
 
     public String format() {
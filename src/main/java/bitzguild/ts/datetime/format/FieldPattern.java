@@ -0,0 +1,434 @@
+package bitzguild.ts.datetime.format;
+
+import bitzguild.ts.datetime.DateTime;
+import bitzguild.ts.datetime.DaysAndMonths;
+import bitzguild.ts.datetime.RepUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParsePosition;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Compiled plan of field and literal steps, shared by PatternDateTimeFormat
+ * and FixedWidthDateTimeFormat. A general pattern accepts quoted text, names
+ * and 12 hour fields; a fixed-width pattern takes only the numeric letters
+ * <b>yMdHmsS</b>, every other character being literal, and each field has
+ * exactly as many digits as letters.
+ * </p>
+ * <p>
+ * One parse loop serves every input type. Char arrays are parsed in place;
+ * other text is first copied into a char array, once per call, so the loop
+ * never dispatches on the input type per character. Plans are immutable and
+ * safe to share.
+ * </p>
+ */
+final class FieldPattern {
+
+    static final int LITERAL = 0;
+    static final int YEAR = 1;
+    static final int MONTH = 2;
+    static final int MONTH_NAME = 3;
+    static final int DAY = 4;
+    static final int DAY_NAME = 5;
+    static final int HOUR = 6;
+    static final int HOUR12 = 7;
+    static final int AMPM = 8;
+    static final int MINUTE = 9;
+    static final int SECOND = 10;
+    static final int FRACTION = 11;
+
+    private static final char[][] Markers = { "AM".toCharArray(), "PM".toCharArray() };
+
+    /** Digits accepted by a variable width year, so year &lt;&lt; 9 fits the int part of a rep */
+    static final int MaxYearDigits = 6;
+
+    private final int[]         _kinds;
+    private final int[]         _counts;
+    private final boolean[]     _fixed;      // parse exactly _counts digits
+    private final char[][]      _literals;
+    private final char[][]      _monthNames; // full 0..11, abbreviated 12..23
+    private final char[][]      _dayNames;   // full 0..6, abbreviated 7..13
+    private final int           _width;      // characters in every value, or -1 when variable
+
+    /**
+     * Compile pattern
+     *
+     * @param pattern e.g. "yyyy-MM-dd HH:mm:ss.SSS"
+     * @param names day and month names
+     * @param fixedWidth true for numeric fields only, with any other character literal
+     */
+    FieldPattern(String pattern, DaysAndMonths names, boolean fixedWidth) {
+        _monthNames = new char[24][];
+        for(int m=1; m<=12; m++) {
+            _monthNames[m-1] = names.monthName(m, true).toCharArray();
+            _monthNames[m+11] = names.monthAbbreviation(m).toCharArray();
+        }
+        _dayNames = new char[14][];
+        for(int d=0; d<7; d++) {
+            _dayNames[d] = names.dayName(d).toCharArray();
+            _dayNames[d+7] = names.dayAbbreviation(d).toCharArray();
+        }
+
+        int n = pattern.length();
+        int[] kinds = new int[n];
+        int[] counts = new int[n];
+        char[][] literals = new char[n][];
+        int steps = 0;
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while(i < n) {
+            char c = pattern.charAt(i);
+            if (c == '\'' && !fixedWidth) {
+                i = _quoted(pattern, i, literal);
+                continue;
+            }
+            int kind = -1;
+            int run = 1;
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                while(i + run < n && pattern.charAt(i + run) == c) run++;
+                kind = _kindOf(c, run);
+                if (fixedWidth) kind = _checkWidth(c, kind, run);
+                else if (kind < 0) throw new IllegalArgumentException("Unsupported pattern letter '" + c + "' in " + pattern);
+                else if (kind == FRACTION && run > 3) throw new IllegalArgumentException("At most 3 fraction digits in " + pattern);
+            }
+            if (kind < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (literal.length() > 0) {
+                kinds[steps] = LITERAL;
+                literals[steps++] = literal.toString().toCharArray();
+                literal.setLength(0);
+            }
+            kinds[steps] = kind;
+            counts[steps++] = run;
+            i += run;
+        }
+        if (literal.length() > 0) {
+            kinds[steps] = LITERAL;
+            literals[steps++] = literal.toString().toCharArray();
+        }
+
+        _kinds = Arrays.copyOf(kinds, steps);
+        _counts = Arrays.copyOf(counts, steps);
+        _literals = Arrays.copyOf(literals, steps);
+        _fixed = new boolean[steps];
+        int width = 0;
+        for(int s=0; s<steps; s++) {
+            boolean adjacent = (s + 1 < steps) && _isNumeric(_kinds[s+1]);
+            _fixed[s] = _kinds[s] == FRACTION || _counts[s] > 1 || adjacent;
+            if (_kinds[s] == LITERAL) width += _literals[s].length;
+            else if (_isNumeric(_kinds[s]) && _fixed[s] && width >= 0) width += _counts[s];
+            else width = Integer.MIN_VALUE;
+        }
+        _width = Math.max(width, -1);
+    }
+
+    /**
+     * Answer number of characters in every value, or -1 when names or
+     * single letter fields make the width vary
+     *
+     * @return int
+     */
+    int width() { return _width; }
+
+    // -----------------------------------------------------------
+    // Rendering
+    // -----------------------------------------------------------
+
+    /**
+     * Render rep fields onto output
+     */
+    <A extends Appendable> A render(long rep, A out) throws IOException {
+        int millis = RepUtil.millisSinceMidnight(rep);
+        for(int s=0; s<_kinds.length; s++) {
+            int kind = _kinds[s];
+            int count = _counts[s];
+            if (kind == LITERAL) {
+                for(char c : _literals[s]) out.append(c);
+            } else if (!_isNumeric(kind)) {
+                for(char c : _name(kind, count, rep, millis)) out.append(c);
+            } else if (kind == YEAR && count != 2 && RepUtil.year(rep) < 0) {
+                AbstractDateTimeFormat._appendInt(out, RepUtil.year(rep));
+            } else {
+                AbstractDateTimeFormat._appendFixed(out, _value(kind, count, rep, millis), count);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Render rep fields as ASCII bytes
+     *
+     * @return int index past last byte
+     */
+    int render(long rep, byte[] bytes, int at) {
+        int millis = RepUtil.millisSinceMidnight(rep);
+        for(int s=0; s<_kinds.length; s++) {
+            int kind = _kinds[s];
+            if (kind == LITERAL) {
+                for(char c : _literals[s]) bytes[at++] = (byte)c;
+            } else if (!_isNumeric(kind)) {
+                for(char c : _name(kind, _counts[s], rep, millis)) bytes[at++] = (byte)c;
+            } else {
+                at = AsciiDigits.writeFixed(bytes, at, _value(kind, _counts[s], rep, millis), _counts[s]);
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Render rep fields as ASCII bytes at an absolute buffer index
+     *
+     * @return int index past last byte
+     */
+    int render(long rep, ByteBuffer buffer, int at) {
+        int millis = RepUtil.millisSinceMidnight(rep);
+        for(int s=0; s<_kinds.length; s++) {
+            int kind = _kinds[s];
+            if (kind == LITERAL) {
+                for(char c : _literals[s]) buffer.put(at++, (byte)c);
+            } else if (!_isNumeric(kind)) {
+                for(char c : _name(kind, _counts[s], rep, millis)) buffer.put(at++, (byte)c);
+            } else {
+                at = AsciiDigits.writeFixed(buffer, at, _value(kind, _counts[s], rep, millis), _counts[s]);
+            }
+        }
+        return at;
+    }
+
+    private static int _value(int kind, int count, long rep, int millis) {
+        switch(kind) {
+            case YEAR:      return (count == 2) ? RepUtil.floorMod(RepUtil.year(rep), 100) : RepUtil.year(rep);
+            case MONTH:     return RepUtil.month(rep);
+            case DAY:       return RepUtil.day(rep);
+            case HOUR:      return millis / DateTime.MillisInHour;
+            case HOUR12:    return (millis / DateTime.MillisInHour + 11) % 12 + 1;
+            case MINUTE:    return (millis / DateTime.MillisInMinute) % 60;
+            case SECOND:    return (millis / DateTime.MillisInSecond) % 60;
+            case FRACTION:  return (millis % DateTime.MillisInSecond) / AbstractDateTimeFormat._pow10(3 - count);
+        }
+        return 0;
+    }
+
+    private char[] _name(int kind, int count, long rep, int millis) {
+        switch(kind) {
+            case MONTH_NAME:    return _monthNames[RepUtil.month(rep) - 1 + (count == 3 ? 12 : 0)];
+            case DAY_NAME:      return _dayNames[RepUtil.dayOfWeek(rep) + (count <= 3 ? 7 : 0)];
+            default:            return Markers[millis < 12 * DateTime.MillisInHour ? 0 : 1];
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Parsing
+    // -----------------------------------------------------------
+
+    /**
+     * Parse text [offset, end), which must be consumed entirely. Out of
+     * range fields, including a day past the end of its month, fail at the
+     * start of the field.
+     *
+     * @return long rep, or InvalidRep with the error index set on position
+     */
+    long parse(char[] text, int offset, int end, ParsePosition position) {
+        return _parse(text, offset, end, 0, position);
+    }
+
+    long parse(CharSequence text, int offset, int end, ParsePosition position) {
+        if (end < offset) return AbstractDateTimeFormat._fail(position, offset);
+        char[] chars = new char[end - offset];
+        for(int i=0; i<chars.length; i++) chars[i] = text.charAt(offset + i);
+        return _parse(chars, 0, chars.length, offset, position);
+    }
+
+    /**
+     * Parse ASCII bytes [offset, end)
+     */
+    long parse(byte[] bytes, int offset, int end, ParsePosition position) {
+        if (end < offset) return AbstractDateTimeFormat._fail(position, offset);
+        char[] chars = new char[end - offset];
+        for(int i=0; i<chars.length; i++) chars[i] = (char)(bytes[offset + i] & 0xFF);
+        return _parse(chars, 0, chars.length, offset, position);
+    }
+
+    /**
+     * Parse ASCII bytes [offset, end) at absolute indexes, leaving the buffer position alone
+     */
+    long parse(ByteBuffer buffer, int offset, int end, ParsePosition position) {
+        if (end < offset) return AbstractDateTimeFormat._fail(position, offset);
+        char[] chars = new char[end - offset];
+        for(int i=0; i<chars.length; i++) chars[i] = (char)(buffer.get(offset + i) & 0xFF);
+        return _parse(chars, 0, chars.length, offset, position);
+    }
+
+    /**
+     * Parse chars [offset, end), reporting indexes moved by base, the
+     * index of chars[0] in the caller's text
+     */
+    private long _parse(char[] text, int offset, int end, int base, ParsePosition position) {
+        int i = offset;
+        int year = 1970, month = 1, day = 1, hour = 0, hour12 = -1, pm = -1, minute = 0, second = 0, millis = 0;
+        int monthAt = offset, dayAt = offset;
+
+        for(int s=0; s<_kinds.length; s++) {
+            int kind = _kinds[s];
+            int count = _counts[s];
+            switch(kind) {
+                case LITERAL: {
+                    char[] lit = _literals[s];
+                    if (end - i < lit.length) return AbstractDateTimeFormat._fail(position, base + i);
+                    for(int k=0; k<lit.length; k++) {
+                        if (text[i + k] != lit[k]) return AbstractDateTimeFormat._fail(position, base + i + k);
+                    }
+                    i += lit.length;
+                    continue;
+                }
+                case MONTH_NAME: {
+                    int m = _matchName(text, i, end, _monthNames);
+                    if (m < 0) return AbstractDateTimeFormat._fail(position, base + i);
+                    monthAt = i;
+                    i += _monthNames[m].length;
+                    month = (m % 12) + 1;
+                    continue;
+                }
+                case DAY_NAME: {
+                    int d = _matchName(text, i, end, _dayNames);
+                    if (d < 0) return AbstractDateTimeFormat._fail(position, base + i);
+                    i += _dayNames[d].length;
+                    continue;
+                }
+                case AMPM: {
+                    int a = _matchName(text, i, end, Markers);
+                    if (a < 0) return AbstractDateTimeFormat._fail(position, base + i);
+                    i += 2;
+                    pm = a;
+                    continue;
+                }
+            }
+
+            int start = i;
+            int max = _fixed[s] ? count : (kind == YEAR ? MaxYearDigits : 2);
+            int value = 0;
+            char c;
+            while(i - start < max && i < end && (c = text[i]) >= '0' && c <= '9') {
+                value = value*10 + (c - '0');
+                i++;
+            }
+            if (i == start || (_fixed[s] && i - start < count)) return AbstractDateTimeFormat._fail(position, base + i);
+
+            switch(kind) {
+                case YEAR:      year = (count == 2) ? ((value < 50) ? 2000 + value : 1900 + value) : value; break;
+                case MONTH:     month = value; monthAt = start; break;
+                case DAY:       day = value; dayAt = start; break;
+                case HOUR:      if (value > 23) return AbstractDateTimeFormat._fail(position, base + start); hour = value; break;
+                case HOUR12:    if (value < 1 || value > 12) return AbstractDateTimeFormat._fail(position, base + start); hour12 = value; break;
+                case MINUTE:    if (value > 59) return AbstractDateTimeFormat._fail(position, base + start); minute = value; break;
+                case SECOND:    if (value > 59) return AbstractDateTimeFormat._fail(position, base + start); second = value; break;
+                case FRACTION:  millis = value * AbstractDateTimeFormat._pow10(3 - count); break;
+            }
+        }
+        if (i != end) return AbstractDateTimeFormat._fail(position, base + i);
+        int error = AbstractDateTimeFormat._dateError(year, month, day, monthAt, dayAt);
+        if (error >= 0) return AbstractDateTimeFormat._fail(position, base + error);
+
+        if (hour12 >= 0) hour = (hour12 % 12) + (pm == 1 ? 12 : 0);
+        else if (pm == 1 && hour < 12) hour += 12;
+        position.setIndex(base + end);
+        return RepUtil.repFromYearMonthDay(year, month, day, RepUtil.millisOf(hour, minute, second, millis));
+    }
+
+    // -----------------------------------------------------------
+    // Support
+    // -----------------------------------------------------------
+
+    /**
+     * Append quoted text starting at i, answering index past the closing quote
+     */
+    private static int _quoted(String pattern, int i, StringBuilder literal) {
+        int n = pattern.length();
+        int close = i + 1;
+        if (close < n && pattern.charAt(close) == '\'') {
+            literal.append('\'');
+            return i + 2;
+        }
+        while(close < n) {
+            if (pattern.charAt(close) == '\'') {
+                if (close + 1 < n && pattern.charAt(close + 1) == '\'') {
+                    literal.append('\'');
+                    close += 2;
+                    continue;
+                }
+                break;
+            }
+            literal.append(pattern.charAt(close++));
+        }
+        if (close >= n) throw new IllegalArgumentException("Unterminated quote in " + pattern);
+        return close + 1;
+    }
+
+    private static int _kindOf(char c, int run) {
+        switch(c) {
+            case 'y': return YEAR;
+            case 'M': return (run >= 3) ? MONTH_NAME : MONTH;
+            case 'd': return DAY;
+            case 'E': return DAY_NAME;
+            case 'H': return HOUR;
+            case 'h': return HOUR12;
+            case 'a': return AMPM;
+            case 'm': return MINUTE;
+            case 's': return SECOND;
+            case 'S': return FRACTION;
+        }
+        return -1;
+    }
+
+    /**
+     * Answer kind for a fixed-width field, -1 for letters taken as literals
+     */
+    private static int _checkWidth(char c, int kind, int run) {
+        boolean valid;
+        switch(kind) {
+            case YEAR:      valid = (run == 2 || run == 4); break;
+            case FRACTION:  valid = (run <= 3); break;
+            case MONTH:
+            case MONTH_NAME:
+            case DAY:
+            case HOUR:
+            case MINUTE:
+            case SECOND:    valid = (run == 2); break;
+            default:        return -1;
+        }
+        if (!valid) throw new IllegalArgumentException("Unsupported field width " + run + " for '" + c + "'");
+        return kind;
+    }
+
+    private static boolean _isNumeric(int kind) {
+        return kind != LITERAL && kind != MONTH_NAME && kind != DAY_NAME && kind != AMPM;
+    }
+
+    /**
+     * Answer index of the longest name matching text at i, ignoring case, or -1
+     */
+    private static int _matchName(char[] text, int i, int end, char[][] names) {
+        int best = -1;
+        int bestLength = 0;
+        for(int n=0; n<names.length; n++) {
+            char[] name = names[n];
+            if (name.length <= bestLength || end - i < name.length) continue;
+            int k = 0;
+            while(k < name.length && _sameLetter(text[i + k], name[k])) k++;
+            if (k == name.length) {
+                best = n;
+                bestLength = name.length;
+            }
+        }
+        return best;
+    }
+
+    private static boolean _sameLetter(char a, char b) {
+        return a == b || Character.toUpperCase(a) == Character.toUpperCase(b);
+    }
+}
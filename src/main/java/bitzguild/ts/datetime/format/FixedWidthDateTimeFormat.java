@@ -0,0 +1,165 @@
+package bitzguild.ts.datetime.format;
+
+import bitzguild.ts.datetime.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.text.ParsePosition;
+
+/**
+ * <p>
+ * Fixed-width numeric format, described by a pattern of field letters and
+ * literal characters, e.g. <code>"yyyy-MM-dd HH:mm:ss.SSS"</code> or
+ * <code>"MMddyy HHmmss"</code>. Every field has exactly as many digits as
+ * letters, so each value has the same width and parsing is a single pass
+ * over known positions.
+ * </p>
+ * <ul>
+ *     <li><b>yyyy</b> year, <b>yy</b> year 1950..2049</li>
+ *     <li><b>MM</b> month, <b>dd</b> day of month</li>
+ *     <li><b>HH</b> hour (0..23), <b>mm</b> minutes, <b>ss</b> seconds</li>
+ *     <li><b>S</b>, <b>SS</b>, <b>SSS</b> fraction of second to tenths, hundredths or millis</li>
+ *     <li>any other character is a literal that must match exactly</li>
+ * </ul>
+ * <p>
+ * Fields left out of the pattern default to January, day 1 and midnight.
+ * Fields out of range, including a day past the end of its month, are
+ * reported as parse errors. The pattern compiles to the same plan as
+ * PatternDateTimeFormat, restricted to numeric fields.
+ * </p>
+ */
+public class FixedWidthDateTimeFormat extends AbstractDateTimeFormat implements DateTimeRepParser, DateTimeByteParser, DateTimeByteRenderer {
+
+    protected String            _pattern;
+    protected DaysAndMonths     _daysAndMonths;
+    private final FieldPattern  _fields;
+    private final int           _width;         // total characters
+
+    /**
+     * Pattern Constructor
+     *
+     * @param pattern field pattern, e.g. "yyyyMMdd HHmmss"
+     */
+    public FixedWidthDateTimeFormat(String pattern) {
+        this(pattern, new DaysAndMonthsForEnglish());
+    }
+
+    /**
+     * Pattern and DaysAndMonths Constructor. Names are not part of the
+     * fixed-width layout, but are answered for DateTime rendering.
+     *
+     * @param pattern field pattern, e.g. "yyyyMMdd HHmmss"
+     * @param altDaysAndMonths rendering for days and months
+     */
+    public FixedWidthDateTimeFormat(String pattern, DaysAndMonths altDaysAndMonths) {
+        _pattern = pattern;
+        _daysAndMonths = altDaysAndMonths;
+        _fields = new FieldPattern(pattern, altDaysAndMonths, true);
+        _width = _fields.width();
+    }
+
+    /**
+     * Answer number of characters in every formatted value
+     *
+     * @return int
+     */
+    public int width() { return _width; }
+
+    // -----------------------------------------------------------
+    // DateTimeFormat
+    // -----------------------------------------------------------
+
+    public DateTime parseToDateTime(MutableDateTime datetime, String datetimeString) throws ParseException {
+        datetime.setRep(parseRep(datetimeString, 0, datetimeString.length()));
+        return datetime;
+    }
+
+    public <A extends Appendable> A renderToAppendable(DateTime date, A out) throws IOException {
+        return _fields.render(date.rep(), out);
+    }
+
+    public String format() {
+        return _pattern;
+    }
+
+    public DaysAndMonths daysAndMonths() {
+        return _daysAndMonths;
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeRepParser
+    // -----------------------------------------------------------
+
+    public long parseRep(CharSequence text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long parseRep(char[] text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long tryParseRep(CharSequence text, int offset, int length, ParsePosition position) {
+        if (length != _width) return _fail(position, offset + Math.min(length, _width));
+        return _fields.parse(text, offset, offset + length, position);
+    }
+
+    public long tryParseRep(char[] text, int offset, int length, ParsePosition position) {
+        if (length != _width) return _fail(position, offset + Math.min(length, _width));
+        return _fields.parse(text, offset, offset + length, position);
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeByteParser
+    // -----------------------------------------------------------
+
+    public long parseRep(byte[] bytes, ParsePosition position, int limit) throws ParseException {
+        long rep = tryParseRep(bytes, position, limit);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long parseRep(ByteBuffer buffer, ParsePosition position, int limit) throws ParseException {
+        long rep = tryParseRep(buffer, position, limit);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long tryParseRep(byte[] bytes, ParsePosition position, int limit) {
+        int offset = position.getIndex();
+        if (limit - offset < _width) return _fail(position, limit);
+        return _fields.parse(bytes, offset, offset + _width, position);
+    }
+
+    public long tryParseRep(ByteBuffer buffer, ParsePosition position, int limit) {
+        int offset = position.getIndex();
+        if (limit - offset < _width) return _fail(position, limit);
+        return _fields.parse(buffer, offset, offset + _width, position);
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeByteRenderer
+    // -----------------------------------------------------------
+
+    public int renderRep(long rep, byte[] bytes, int offset) {
+        return _fields.render(rep, bytes, offset);
+    }
+
+    public int renderRep(long rep, ByteBuffer buffer, int index) {
+        return _fields.render(rep, buffer, index);
+    }
+
+    public int renderColumn(long[] reps, int offset, int count, byte delimiter, byte[] bytes, int at) {
+        return _renderColumn(this, reps, offset, count, delimiter, bytes, at);
+    }
+
+    public int maxLength() {
+        return _width;
+    }
+}
@@ -0,0 +1,497 @@
+package bitzguild.ts.datetime.format;
+
+import bitzguild.ts.datetime.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.text.ParsePosition;
+
+/**
+ * <p>
+ * ISO-8601 extended format <code>yyyy-MM-ddTHH:mm:ss.SSS</code>. Rendering
+ * writes the fields down to the precision given at construction, one of
+ * DateTime.DAY, MINUTE, SECOND or MILLISECOND.
+ * </p>
+ * <p>
+ * Parsing validates separators by position and converts digits
+ * arithmetically. Any of the four precisions is accepted on input, with
+ * either 'T' or a space before the time and a fraction of one or more
+ * digits (beyond millis is truncated). An optional <code>Z</code>,
+ * <code>+HH:MM</code>, <code>+HHMM</code> or <code>+HH</code> suffix is
+ * applied, so offset timestamps are normalized to UTC.
+ * </p>
+ * <p>
+ * Rendered dates are kept in a small RenderedDates cache, so runs of
+ * timestamps on the same day only render the time of day.
+ * </p>
+ */
+public class IsoDateTimeFormat extends AbstractDateTimeFormat implements DateTimeRepParser, DateTimeByteRenderer {
+
+    protected final int             _precision;
+    protected final DaysAndMonths   _daysAndMonths;
+    protected final RenderedDates   _dates = new RenderedDates();
+
+    /**
+     * Default Constructor, millisecond precision
+     */
+    public IsoDateTimeFormat() {
+        this(DateTime.MILLISECOND);
+    }
+
+    /**
+     * Precision Constructor
+     *
+     * @param precision DateTime.DAY, MINUTE, SECOND or MILLISECOND
+     */
+    public IsoDateTimeFormat(int precision) {
+        this(precision, new DaysAndMonthsForEnglish());
+    }
+
+    /**
+     * Precision and DaysAndMonths Constructor
+     *
+     * @param precision DateTime.DAY, MINUTE, SECOND or MILLISECOND
+     * @param altDaysAndMonths names for DateTime subclasses that print them
+     */
+    public IsoDateTimeFormat(int precision, DaysAndMonths altDaysAndMonths) {
+        if (precision != DateTime.DAY && precision != DateTime.MINUTE && precision != DateTime.SECOND && precision != DateTime.MILLISECOND)
+            throw new IllegalArgumentException("Unsupported ISO precision " + precision);
+        _precision = precision;
+        _daysAndMonths = altDaysAndMonths;
+    }
+
+    /**
+     * Answer rendering precision
+     *
+     * @return int DateTime unit
+     */
+    public int precision() {
+        return _precision;
+    }
+
+    public DateTime parseToDateTime(MutableDateTime datetime, String datetimeString) throws ParseException {
+        datetime.setRep(parseRep(datetimeString, 0, datetimeString.length()));
+        return datetime;
+    }
+
+    public String format() {
+        switch(_precision) {
+            case DateTime.DAY:      return "yyyy-MM-dd";
+            case DateTime.MINUTE:   return "yyyy-MM-ddTHH:mm";
+            case DateTime.SECOND:   return "yyyy-MM-ddTHH:mm:ss";
+        }
+        return "yyyy-MM-ddTHH:mm:ss.SSS";
+    }
+
+    public DaysAndMonths daysAndMonths() {
+        return _daysAndMonths;
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeRepParser
+    // -----------------------------------------------------------
+
+    public long parseRep(CharSequence text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long parseRep(char[] text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long tryParseRep(CharSequence text, int offset, int length, ParsePosition position) {
+        int end = offset + length;
+        if (length == 10 || length == 16 || length == 19 || length == 23) {
+            long rep = _fixedRep(text, offset, length);
+            if (rep != -1) {
+                position.setIndex(end);
+                return rep;
+            }
+        }
+        int year, month, day, at;
+        if ((year = _digits(text, offset, 4, end)) < 0) return _fail(position, -1 - year);
+        if ((at = _expect(text, offset + 4, '-', end)) >= 0) return _fail(position, at);
+        if ((month = _digits(text, offset + 5, 2, end)) < 0) return _fail(position, -1 - month);
+        if ((at = _expect(text, offset + 7, '-', end)) >= 0) return _fail(position, at);
+        if ((day = _digits(text, offset + 8, 2, end)) < 0) return _fail(position, -1 - day);
+        if (month < 1 || month > 12) return _fail(position, offset + 5);
+        if (day < 1 || day > DateUtil.daysInMonthForYear(month, year)) return _fail(position, offset + 8);
+
+        int i = offset + 10;
+        int millis = 0;
+        char c;
+        if (i < end && ((c = text.charAt(i)) == 'T' || c == ' ')) {
+            int hour, minute;
+            if ((hour = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - hour);
+            if ((at = _expect(text, i + 3, ':', end)) >= 0) return _fail(position, at);
+            if ((minute = _digits(text, i + 4, 2, end)) < 0) return _fail(position, -1 - minute);
+            if (hour > 23) return _fail(position, i + 1);
+            if (minute > 59) return _fail(position, i + 4);
+            int second = 0;
+            int fraction = 0;
+            i += 6;
+            if (i < end && text.charAt(i) == ':') {
+                if ((second = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - second);
+                if (second > 59) return _fail(position, i + 1);
+                i += 3;
+                if (i < end && ((c = text.charAt(i)) == '.' || c == ',')) {
+                    int start = ++i;
+                    while(i < end && (c = text.charAt(i)) >= '0' && c <= '9') {
+                        if (i - start < 3) fraction = fraction*10 + (c - '0');
+                        i++;
+                    }
+                    if (i == start) return _fail(position, i);
+                    for(int n = i - start; n < 3; n++) fraction *= 10;
+                }
+            }
+            millis = RepUtil.millisOf(hour, minute, second, fraction);
+        }
+
+        int offsetMillis = 0;
+        if (i < end) {
+            c = text.charAt(i);
+            if (c == 'Z') {
+                i++;
+            } else if (c == '+' || c == '-') {
+                int hours, minutes = 0;
+                if ((hours = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - hours);
+                at = i + 1;
+                i += 3;
+                if (i < end && text.charAt(i) == ':') {
+                    if ((minutes = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - minutes);
+                    i += 3;
+                } else if (i < end) {
+                    if ((minutes = _digits(text, i, 2, end)) < 0) return _fail(position, -1 - minutes);
+                    i += 2;
+                }
+                if (hours > 18 || minutes > 59) return _fail(position, at);
+                offsetMillis = hours * DateTime.MillisInHour + minutes * DateTime.MillisInMinute;
+                if (c == '-') offsetMillis = -offsetMillis;
+            }
+        }
+        if (i != end) return _fail(position, i);
+
+        long rep = RepUtil.repFromYearMonthDay(year, month, day, millis);
+        position.setIndex(end);
+        return (offsetMillis == 0) ? rep : RepUtil.addMillis(rep, -offsetMillis);
+    }
+
+    public long tryParseRep(char[] text, int offset, int length, ParsePosition position) {
+        if (offset < 0 || length < 0 || offset + length > text.length) return _fail(position, offset);
+        int end = offset + length;
+        if (length == 10 || length == 16 || length == 19 || length == 23) {
+            long rep = _fixedRep(text, offset, length);
+            if (rep != -1) {
+                position.setIndex(end);
+                return rep;
+            }
+        }
+        int year, month, day, at;
+        if ((year = _digits(text, offset, 4, end)) < 0) return _fail(position, -1 - year);
+        if ((at = _expect(text, offset + 4, '-', end)) >= 0) return _fail(position, at);
+        if ((month = _digits(text, offset + 5, 2, end)) < 0) return _fail(position, -1 - month);
+        if ((at = _expect(text, offset + 7, '-', end)) >= 0) return _fail(position, at);
+        if ((day = _digits(text, offset + 8, 2, end)) < 0) return _fail(position, -1 - day);
+        if (month < 1 || month > 12) return _fail(position, offset + 5);
+        if (day < 1 || day > DateUtil.daysInMonthForYear(month, year)) return _fail(position, offset + 8);
+
+        int i = offset + 10;
+        int millis = 0;
+        char c;
+        if (i < end && ((c = text[i]) == 'T' || c == ' ')) {
+            int hour, minute;
+            if ((hour = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - hour);
+            if ((at = _expect(text, i + 3, ':', end)) >= 0) return _fail(position, at);
+            if ((minute = _digits(text, i + 4, 2, end)) < 0) return _fail(position, -1 - minute);
+            if (hour > 23) return _fail(position, i + 1);
+            if (minute > 59) return _fail(position, i + 4);
+            int second = 0;
+            int fraction = 0;
+            i += 6;
+            if (i < end && text[i] == ':') {
+                if ((second = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - second);
+                if (second > 59) return _fail(position, i + 1);
+                i += 3;
+                if (i < end && ((c = text[i]) == '.' || c == ',')) {
+                    int start = ++i;
+                    while(i < end && (c = text[i]) >= '0' && c <= '9') {
+                        if (i - start < 3) fraction = fraction*10 + (c - '0');
+                        i++;
+                    }
+                    if (i == start) return _fail(position, i);
+                    for(int n = i - start; n < 3; n++) fraction *= 10;
+                }
+            }
+            millis = RepUtil.millisOf(hour, minute, second, fraction);
+        }
+
+        int offsetMillis = 0;
+        if (i < end) {
+            c = text[i];
+            if (c == 'Z') {
+                i++;
+            } else if (c == '+' || c == '-') {
+                int hours, minutes = 0;
+                if ((hours = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - hours);
+                at = i + 1;
+                i += 3;
+                if (i < end && text[i] == ':') {
+                    if ((minutes = _digits(text, i + 1, 2, end)) < 0) return _fail(position, -1 - minutes);
+                    i += 3;
+                } else if (i < end) {
+                    if ((minutes = _digits(text, i, 2, end)) < 0) return _fail(position, -1 - minutes);
+                    i += 2;
+                }
+                if (hours > 18 || minutes > 59) return _fail(position, at);
+                offsetMillis = hours * DateTime.MillisInHour + minutes * DateTime.MillisInMinute;
+                if (c == '-') offsetMillis = -offsetMillis;
+            }
+        }
+        if (i != end) return _fail(position, i);
+
+        long rep = RepUtil.repFromYearMonthDay(year, month, day, millis);
+        position.setIndex(end);
+        return (offsetMillis == 0) ? rep : RepUtil.addMillis(rep, -offsetMillis);
+    }
+
+    /**
+     * Fast path for the four rendered layouts without suffix. Digits and
+     * separators are checked by position in one pass, answering -1 for
+     * anything the general parse must handle or report.
+     */
+    protected static long _fixedRep(CharSequence text, int offset, int length) {
+        int y0 = text.charAt(offset) - '0', y1 = text.charAt(offset+1) - '0';
+        int y2 = text.charAt(offset+2) - '0', y3 = text.charAt(offset+3) - '0';
+        int m0 = text.charAt(offset+5) - '0', m1 = text.charAt(offset+6) - '0';
+        int d0 = text.charAt(offset+8) - '0', d1 = text.charAt(offset+9) - '0';
+        int bad = y0 | (9-y0) | y1 | (9-y1) | y2 | (9-y2) | y3 | (9-y3) | m0 | (9-m0) | m1 | (9-m1) | d0 | (9-d0) | d1 | (9-d1);
+        if (text.charAt(offset+4) != '-' || text.charAt(offset+7) != '-') return -1;
+        int year = y0*1000 + y1*100 + y2*10 + y3;
+        int month = m0*10 + m1;
+        int day = d0*10 + d1;
+        int millis = 0;
+        if (length > 10) {
+            char t = text.charAt(offset+10);
+            if ((t != 'T' && t != ' ') || text.charAt(offset+13) != ':') return -1;
+            int h0 = text.charAt(offset+11) - '0', h1 = text.charAt(offset+12) - '0';
+            int n0 = text.charAt(offset+14) - '0', n1 = text.charAt(offset+15) - '0';
+            bad |= h0 | (9-h0) | h1 | (9-h1) | n0 | (9-n0) | n1 | (9-n1);
+            int hour = h0*10 + h1;
+            int minute = n0*10 + n1;
+            int second = 0;
+            int fraction = 0;
+            if (length > 16) {
+                if (text.charAt(offset+16) != ':') return -1;
+                int s0 = text.charAt(offset+17) - '0', s1 = text.charAt(offset+18) - '0';
+                bad |= s0 | (9-s0) | s1 | (9-s1);
+                second = s0*10 + s1;
+                if (length > 19) {
+                    if (text.charAt(offset+19) != '.') return -1;
+                    int f0 = text.charAt(offset+20) - '0', f1 = text.charAt(offset+21) - '0', f2 = text.charAt(offset+22) - '0';
+                    bad |= f0 | (9-f0) | f1 | (9-f1) | f2 | (9-f2);
+                    fraction = f0*100 + f1*10 + f2;
+                }
+            }
+            if (hour > 23 || minute > 59 || second > 59) return -1;
+            millis = RepUtil.millisOf(hour, minute, second, fraction);
+        }
+        if (bad < 0 || month < 1 || month > 12 || day < 1 || day > DateUtil.daysInMonthForYear(month, year)) return -1;
+        return RepUtil.repFromYearMonthDay(year, month, day, millis);
+    }
+
+    protected static long _fixedRep(char[] text, int offset, int length) {
+        int y0 = text[offset] - '0', y1 = text[offset+1] - '0';
+        int y2 = text[offset+2] - '0', y3 = text[offset+3] - '0';
+        int m0 = text[offset+5] - '0', m1 = text[offset+6] - '0';
+        int d0 = text[offset+8] - '0', d1 = text[offset+9] - '0';
+        int bad = y0 | (9-y0) | y1 | (9-y1) | y2 | (9-y2) | y3 | (9-y3) | m0 | (9-m0) | m1 | (9-m1) | d0 | (9-d0) | d1 | (9-d1);
+        if (text[offset+4] != '-' || text[offset+7] != '-') return -1;
+        int year = y0*1000 + y1*100 + y2*10 + y3;
+        int month = m0*10 + m1;
+        int day = d0*10 + d1;
+        int millis = 0;
+        if (length > 10) {
+            char t = text[offset+10];
+            if ((t != 'T' && t != ' ') || text[offset+13] != ':') return -1;
+            int h0 = text[offset+11] - '0', h1 = text[offset+12] - '0';
+            int n0 = text[offset+14] - '0', n1 = text[offset+15] - '0';
+            bad |= h0 | (9-h0) | h1 | (9-h1) | n0 | (9-n0) | n1 | (9-n1);
+            int hour = h0*10 + h1;
+            int minute = n0*10 + n1;
+            int second = 0;
+            int fraction = 0;
+            if (length > 16) {
+                if (text[offset+16] != ':') return -1;
+                int s0 = text[offset+17] - '0', s1 = text[offset+18] - '0';
+                bad |= s0 | (9-s0) | s1 | (9-s1);
+                second = s0*10 + s1;
+                if (length > 19) {
+                    if (text[offset+19] != '.') return -1;
+                    int f0 = text[offset+20] - '0', f1 = text[offset+21] - '0', f2 = text[offset+22] - '0';
+                    bad |= f0 | (9-f0) | f1 | (9-f1) | f2 | (9-f2);
+                    fraction = f0*100 + f1*10 + f2;
+                }
+            }
+            if (hour > 23 || minute > 59 || second > 59) return -1;
+            millis = RepUtil.millisOf(hour, minute, second, fraction);
+        }
+        if (bad < 0 || month < 1 || month > 12 || day < 1 || day > DateUtil.daysInMonthForYear(month, year)) return -1;
+        return RepUtil.repFromYearMonthDay(year, month, day, millis);
+    }
+
+    /**
+     * Answer value of fixed width digits, or -1 - errorIndex
+     */
+    private static int _digits(CharSequence text, int i, int width, int end) {
+        if (i + width > end) return -1 - end;
+        int value = 0;
+        for(int k=0; k<width; k++) {
+            int d = text.charAt(i + k) - '0';
+            if (d < 0 || d > 9) return -1 - (i + k);
+            value = value*10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Answer -1 when c is at i, otherwise the error index
+     */
+    private static int _expect(CharSequence text, int i, char c, int end) {
+        if (i >= end) return end;
+        return (text.charAt(i) == c) ? -1 : i;
+    }
+
+    /**
+     * Answer value of fixed width digits, or -1 - errorIndex
+     */
+    private static int _digits(char[] text, int i, int width, int end) {
+        if (i + width > end) return -1 - end;
+        int value = 0;
+        for(int k=0; k<width; k++) {
+            int d = text[i + k] - '0';
+            if (d < 0 || d > 9) return -1 - (i + k);
+            value = value*10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Answer -1 when c is at i, otherwise the error index
+     */
+    private static int _expect(char[] text, int i, char c, int end) {
+        if (i >= end) return end;
+        return (text[i] == c) ? -1 : i;
+    }
+
+    // -----------------------------------------------------------
+    // Rendering
+    // -----------------------------------------------------------
+
+    public <A extends Appendable> A renderToAppendable(DateTime date, A out) throws IOException {
+        long rep = date.rep();
+        out.append(_date(rep).text);
+        if (_precision == DateTime.DAY) return out;
+
+        int millis = RepUtil.millisSinceMidnight(rep);
+        int seconds = millis / DateTime.MillisInSecond;
+        int minutes = seconds / 60;
+        out.append('T');
+        _appendFixed(out, minutes / 60, 2);
+        out.append(':');
+        _appendFixed(out, minutes % 60, 2);
+        if (_precision == DateTime.MINUTE) return out;
+        out.append(':');
+        _appendFixed(out, seconds % 60, 2);
+        if (_precision == DateTime.SECOND) return out;
+        out.append('.');
+        _appendFixed(out, millis % DateTime.MillisInSecond, 3);
+        return out;
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeByteRenderer
+    // -----------------------------------------------------------
+
+    public int renderRep(long rep, byte[] bytes, int offset) {
+        byte[] date = _date(rep).bytes;
+        System.arraycopy(date, 0, bytes, offset, date.length);
+        int at = offset + date.length;
+        if (_precision == DateTime.DAY) return at;
+
+        int millis = RepUtil.millisSinceMidnight(rep);
+        int seconds = millis / DateTime.MillisInSecond;
+        int minutes = seconds / 60;
+        bytes[at++] = 'T';
+        at = AsciiDigits.writeFixed(bytes, at, minutes / 60, 2);
+        bytes[at++] = ':';
+        at = AsciiDigits.writeFixed(bytes, at, minutes % 60, 2);
+        if (_precision == DateTime.MINUTE) return at;
+        bytes[at++] = ':';
+        at = AsciiDigits.writeFixed(bytes, at, seconds % 60, 2);
+        if (_precision == DateTime.SECOND) return at;
+        bytes[at++] = '.';
+        return AsciiDigits.writeFixed(bytes, at, millis % DateTime.MillisInSecond, 3);
+    }
+
+    public int renderRep(long rep, ByteBuffer buffer, int index) {
+        byte[] date = _date(rep).bytes;
+        int at = index;
+        for(byte b : date) buffer.put(at++, b);
+        if (_precision == DateTime.DAY) return at;
+
+        int millis = RepUtil.millisSinceMidnight(rep);
+        int seconds = millis / DateTime.MillisInSecond;
+        int minutes = seconds / 60;
+        buffer.put(at++, (byte)'T');
+        at = AsciiDigits.writeFixed(buffer, at, minutes / 60, 2);
+        buffer.put(at++, (byte)':');
+        at = AsciiDigits.writeFixed(buffer, at, minutes % 60, 2);
+        if (_precision == DateTime.MINUTE) return at;
+        buffer.put(at++, (byte)':');
+        at = AsciiDigits.writeFixed(buffer, at, seconds % 60, 2);
+        if (_precision == DateTime.SECOND) return at;
+        buffer.put(at++, (byte)'.');
+        return AsciiDigits.writeFixed(buffer, at, millis % DateTime.MillisInSecond, 3);
+    }
+
+    public int renderColumn(long[] reps, int offset, int count, byte delimiter, byte[] bytes, int at) {
+        return _renderColumn(this, reps, offset, count, delimiter, bytes, at);
+    }
+
+    /**
+     * Answer rendered yyyy-MM-dd for rep, from cache when the day repeats
+     */
+    protected RenderedDates.Entry _date(long rep) {
+        int intRep = RepUtil.intRep(rep);
+        RenderedDates.Entry entry = _dates.get(intRep);
+        if (entry != null) return entry;
+        int ymd = CompactDateTimeFormat._dateNumber(rep);
+        StringBuilder text = new StringBuilder(10);
+        try {
+            _appendFixed(text, ymd / 10000, 4);
+            text.append('-');
+            _appendFixed(text, (ymd / 100) % 100, 2);
+            text.append('-');
+            _appendFixed(text, ymd % 100, 2);
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return _dates.put(intRep, text.toString());
+    }
+
+    public int maxLength() {
+        switch(_precision) {
+            case DateTime.DAY:      return 10;
+            case DateTime.MINUTE:   return 16;
+            case DateTime.SECOND:   return 19;
+        }
+        return 23;
+    }
+}
@@ -2,52 +2,127 @@ package bitzguild.ts.datetime.format;
 
 import bitzguild.ts.datetime.DateTime;
 import bitzguild.ts.datetime.DaysAndMonths;
-import bitzguild.ts.datetime.DateTimeFormat;
 import bitzguild.ts.datetime.MutableDateTime;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.text.DateFormat;
+import java.text.FieldPosition;
 import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
  * This class enables use of any existing Java Date format to
  * parse or render the underlying PSC Date. Methods do require
- * conversion between
+ * conversion between Java Date and datetime rep.
+ * <p>
+ * Java DateFormat instances are not thread-safe, so the given format is
+ * kept as a private prototype and each thread works on its own clone.
+ * A single renderer can be shared by concurrent callers without locking,
+ * and every clone keeps the pattern, locale and time zone of the prototype.
+ * Each thread also reuses its own buffer for rendering to Appendables, so
+ * no intermediate String is created.
+ * </p>
  */
-public class JavaDateParserRenderer implements DateTimeFormat {
+public class JavaDateParserRenderer extends AbstractDateTimeFormat {
 
-    protected DaysAndMonths _daysAndMonths;
-    protected DateFormat    _javaDateFormat;
+    protected final DaysAndMonths               _daysAndMonths;
+    protected final DateFormat                  _javaDateFormat;
+    protected final ThreadLocal<Local>          _threadLocal;
 
     /**
-     * Default Constructor
+     * Per-thread DateFormat clone and render scratch
+     */
+    protected static final class Local {
+        final DateFormat    format;
+        final StringBuffer  buffer = new StringBuffer(32);
+        final FieldPosition position = new FieldPosition(0);
+        char[]              chars = new char[32];
+
+        Local(DateFormat format) {
+            this.format = format;
+        }
+    }
+
+    /**
+     * Default Constructor, default locale date and time format
      */
     public JavaDateParserRenderer() {
-        _daysAndMonths = new DaysAndMonthsForEnglish();
+        this(DateFormat.getDateTimeInstance());
     }
 
     /**
-     * DateFormat Constructor.
+     * DateFormat Constructor. The format is copied, so later changes
+     * to the given instance do not affect this renderer.
      *
      * @param df Java DateFormat
      */
     public JavaDateParserRenderer(DateFormat df) {
-        _javaDateFormat = df;
+        this(df, new DaysAndMonthsForEnglish());
+    }
+
+    /**
+     * DateFormat and DaysAndMonths Constructor
+     *
+     * @param df Java DateFormat
+     * @param altDaysAndMonths names for DateTime subclasses that print them
+     */
+    public JavaDateParserRenderer(DateFormat df, DaysAndMonths altDaysAndMonths) {
+        _javaDateFormat = (DateFormat)df.clone();
+        _daysAndMonths = altDaysAndMonths;
+        _threadLocal = new ThreadLocal<Local>() {
+            @Override
+            protected Local initialValue() {
+                return new Local((DateFormat)_javaDateFormat.clone());
+            }
+        };
+    }
+
+    /**
+     * Answer DateFormat owned by the calling thread
+     *
+     * @return DateFormat
+     */
+    protected DateFormat _dateFormat() {
+        return _threadLocal.get().format;
     }
 
     public DateTime parseToDateTime(MutableDateTime date, String dateString) throws ParseException {
-        Date d = _javaDateFormat.parse(dateString);
+        Date d = _dateFormat().parse(dateString);
         date.setFromJavaDate(d);
         return date;
     }
 
     public StringBuffer renderToBuffer(DateTime date, StringBuffer strb) {
-        Date d = date.toJavaDate();
-        strb.append(_javaDateFormat.format(d));
-        return strb;
+        Local local = _threadLocal.get();
+        return local.format.format(date.toJavaDate(), strb, local.position);
+    }
+
+    public <A extends Appendable> A renderToAppendable(DateTime date, A out) throws IOException {
+        if (out instanceof StringBuffer) {
+            renderToBuffer(date, (StringBuffer)out);
+            return out;
+        }
+        Local local = _threadLocal.get();
+        StringBuffer buffer = local.buffer;
+        buffer.setLength(0);
+        local.format.format(date.toJavaDate(), buffer, local.position);
+        int length = buffer.length();
+        if (out instanceof StringBuilder) {
+            ((StringBuilder)out).append(buffer);
+        } else if (out instanceof Writer) {
+            if (local.chars.length < length) local.chars = new char[length];
+            buffer.getChars(0, length, local.chars, 0);
+            ((Writer)out).write(local.chars, 0, length);
+        } else {
+            out.append(buffer, 0, length);
+        }
+        return out;
     }
 
     public String format() {
+        if (_javaDateFormat instanceof SimpleDateFormat) return ((SimpleDateFormat)_javaDateFormat).toPattern();
         return _javaDateFormat.toString();
     }
 
@@ -0,0 +1,133 @@
+package bitzguild.ts.datetime.format;
+
+import bitzguild.ts.datetime.*;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.ParsePosition;
+
+/**
+ * <p>
+ * General pattern format, e.g. <code>"yyyy-MM-dd HH:mm:ss.SSS"</code> or
+ * <code>"EEE, d MMM yyyy h:mm a"</code>. The pattern is compiled once into a
+ * plan of field and literal steps; parsing and rendering then work directly
+ * on rep fields, with no java.util.Date, Calendar or java.text.DateFormat.
+ * Instances are immutable and safe to share between threads.
+ * </p>
+ * <ul>
+ *     <li><b>y</b> year of up to six digits; <b>yy</b> two digit year 1950..2049</li>
+ *     <li><b>M</b>, <b>MM</b> month number; <b>MMM</b> abbreviated and <b>MMMM</b> full month name</li>
+ *     <li><b>d</b>, <b>dd</b> day of month</li>
+ *     <li><b>E</b>..<b>EEE</b> abbreviated and <b>EEEE</b> full day name (ignored on input)</li>
+ *     <li><b>H</b>, <b>HH</b> hour 0..23; <b>h</b>, <b>hh</b> hour 1..12 with <b>a</b> AM/PM marker</li>
+ *     <li><b>m</b>, <b>mm</b> minutes; <b>s</b>, <b>ss</b> seconds</li>
+ *     <li><b>S</b>, <b>SS</b>, <b>SSS</b> fraction of second to tenths, hundredths or millis</li>
+ *     <li>text in single quotes is literal, <b>''</b> is a single quote; other non-letters are literal</li>
+ * </ul>
+ * <p>
+ * Numeric fields are written zero padded to the number of letters. On
+ * input a single letter accepts one or two digits, while repeated letters,
+ * or a field directly followed by another numeric field, take exactly that
+ * many digits. Names are matched without regard to case, using the
+ * DaysAndMonths given at construction. Fields left out of the pattern default
+ * to January, day 1 and midnight, and a day past the end of its month is a
+ * parse error. The compiled plan is shared with FixedWidthDateTimeFormat.
+ * </p>
+ */
+public class PatternDateTimeFormat extends AbstractDateTimeFormat implements DateTimeRepParser {
+
+    private final String        _pattern;
+    private final DaysAndMonths _daysAndMonths;
+    private final FieldPattern  _fields;
+
+    /**
+     * Pattern Constructor
+     *
+     * @param pattern e.g. "yyyy-MM-dd HH:mm:ss.SSS"
+     */
+    public PatternDateTimeFormat(String pattern) {
+        this(pattern, new DaysAndMonthsForEnglish());
+    }
+
+    /**
+     * Pattern and DaysAndMonths Constructor
+     *
+     * @param pattern e.g. "d MMMM yyyy"
+     * @param names day and month names for parsing and rendering
+     */
+    public PatternDateTimeFormat(String pattern, DaysAndMonths names) {
+        _pattern = pattern;
+        _daysAndMonths = names;
+        _fields = new FieldPattern(pattern, names, false);
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeFormat
+    // -----------------------------------------------------------
+
+    public DateTime parseToDateTime(MutableDateTime datetime, String datetimeString) throws ParseException {
+        datetime.setRep(parseRep(datetimeString, 0, datetimeString.length()));
+        return datetime;
+    }
+
+    public <A extends Appendable> A renderToAppendable(DateTime date, A out) throws IOException {
+        return renderRep(date.rep(), out);
+    }
+
+    public String format() {
+        return _pattern;
+    }
+
+    public DaysAndMonths daysAndMonths() {
+        return _daysAndMonths;
+    }
+
+    // -----------------------------------------------------------
+    // Rendering
+    // -----------------------------------------------------------
+
+    /**
+     * Render rep fields onto output
+     *
+     * @param rep datetime long rep
+     * @param out Appendable
+     * @return given Appendable
+     * @throws IOException from the Appendable
+     */
+    public <A extends Appendable> A renderRep(long rep, A out) throws IOException {
+        return _fields.render(rep, out);
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeRepParser
+    // -----------------------------------------------------------
+
+    public long parseRep(CharSequence text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    public long parseRep(char[] text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw _parseException(position);
+        return rep;
+    }
+
+    /**
+     * Parse characters [offset, offset+length), which must be consumed entirely
+     */
+    public long tryParseRep(CharSequence text, int offset, int length, ParsePosition position) {
+        return _fields.parse(text, offset, offset + length, position);
+    }
+
+    /**
+     * Parse characters [offset, offset+length) in place
+     */
+    public long tryParseRep(char[] text, int offset, int length, ParsePosition position) {
+        if (offset < 0 || length < 0 || offset + length > text.length) return _fail(position, offset);
+        return _fields.parse(text, offset, offset + length, position);
+    }
+}
@@ -0,0 +1,91 @@
+package bitzguild.ts.datetime.format;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ * Direct-mapped cache of rendered date text, keyed by date int rep
+ * (see DateTime.intRep()). Timestamps in tick data arrive in runs that
+ * share a date, so formats render the date once per day and only the
+ * time of day per rep.
+ * </p>
+ * <p>
+ * Entries are immutable and slots are replaced whole, so one cache can be
+ * shared by threads without locking; a lost race only costs a re-render.
+ * </p>
+ */
+public final class RenderedDates {
+
+    public static final int DefaultCapacity = 64;
+
+    /**
+     * Rendered date, as text for Appendable output and as ASCII bytes
+     */
+    public static final class Entry {
+        public final int    intRep;
+        public final String text;
+        public final byte[] bytes;
+
+        Entry(int intRep, String text) {
+            this.intRep = intRep;
+            this.text = text;
+            this.bytes = text.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Entry[]   _entries;
+    private final int       _mask;
+
+    /**
+     * Default Constructor
+     */
+    public RenderedDates() {
+        this(DefaultCapacity);
+    }
+
+    /**
+     * Capacity Constructor
+     *
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public RenderedDates(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        _entries = new Entry[size];
+        _mask = size - 1;
+    }
+
+    /**
+     * Answer cached entry for date, or null on a miss
+     *
+     * @param intRep date int rep
+     * @return Entry or null
+     */
+    public Entry get(int intRep) {
+        Entry entry = _entries[intRep & _mask];
+        return (entry != null && entry.intRep == intRep) ? entry : null;
+    }
+
+    /**
+     * Cache rendered text for date, replacing whatever shares its slot
+     *
+     * @param intRep date int rep
+     * @param text rendered date, ASCII only
+     * @return Entry new entry
+     */
+    public Entry put(int intRep, String text) {
+        Entry entry = new Entry(intRep, text);
+        _entries[intRep & _mask] = entry;
+        return entry;
+    }
+
+    /**
+     * Answer number of slots
+     *
+     * @return int
+     */
+    public int capacity() {
+        return _entries.length;
+    }
+}
@@ -0,0 +1,168 @@
+package bitzguild.ts.datetime.format;
+
+import bitzguild.ts.datetime.DateTime;
+import bitzguild.ts.datetime.DateTimeRepParser;
+import bitzguild.ts.datetime.RepUtil;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+
+/**
+ * <p>
+ * Parser that detects the layout of a column and then keeps using the
+ * detected parser. Detection runs the candidates over a few sample values
+ * and picks the one that reads the most, the earlier candidate on ties;
+ * afterwards each value costs a single parse. Only when the current parser fails are the other candidates
+ * tried, and the first that succeeds becomes current, so a column that
+ * switches source mid-file pays for detection once per switch. A successful
+ * parse always leaves the error index at -1, even after a fallback.
+ * </p>
+ * <p>
+ * The default candidates cover <code>YYYYMMDD[.HHMMSSmmm]</code>, ISO-8601
+ * <code>YYYY-MM-DD[THH:mm:ss.SSS]</code>, and US <code>MM/DD/YYYY</code> with
+ * or without <code>HH:mm:ss</code>.
+ * </p>
+ * <p>
+ * Instances are not thread-safe. The current candidate and the
+ * redetection count are plain fields updated while parsing, so use one
+ * parser per column and per thread. The default candidates are immutable
+ * and may be shared between such parsers.
+ * </p>
+ */
+public class SniffingDateTimeParser implements DateTimeRepParser {
+
+    protected final DateTimeRepParser[] _candidates;
+    protected int                       _current;
+    protected int                       _redetections;
+
+    /**
+     * Default Constructor, compact, ISO and US layouts
+     */
+    public SniffingDateTimeParser() {
+        this(new CompactDateTimeFormat(),
+             new IsoDateTimeFormat(DateTime.MILLISECOND),
+             new PatternDateTimeFormat("M/d/yyyy"),
+             new PatternDateTimeFormat("M/d/yyyy H:mm:ss"));
+    }
+
+    /**
+     * Candidates Constructor. Earlier candidates win when several parse
+     * the same samples.
+     *
+     * @param candidates parsers in order of preference
+     */
+    public SniffingDateTimeParser(DateTimeRepParser... candidates) {
+        if (candidates.length == 0) throw new IllegalArgumentException("No candidate parsers");
+        _candidates = candidates.clone();
+        _current = 0;
+    }
+
+    /**
+     * Pick the candidate that parses the most samples, preferring earlier
+     * candidates on ties. Empty samples are treated as missing values.
+     *
+     * @param samples leading values of a column
+     * @param offset index of first sample
+     * @param count number of samples
+     * @return int index of chosen candidate
+     */
+    public int detect(CharSequence[] samples, int offset, int count) {
+        ParsePosition position = new ParsePosition(0);
+        int best = _current;
+        int bestHits = -1;
+        for(int c=0; c<_candidates.length; c++) {
+            int hits = 0;
+            for(int i=offset; i<offset + count; i++) {
+                CharSequence sample = samples[i];
+                if (sample == null || sample.length() == 0) continue;
+                if (_candidates[c].tryParseRep(sample, 0, sample.length(), position) != RepUtil.InvalidRep) hits++;
+            }
+            if (hits > bestHits) {
+                best = c;
+                bestHits = hits;
+            }
+        }
+        _current = best;
+        return best;
+    }
+
+    /**
+     * Answer parser currently in use
+     *
+     * @return DateTimeRepParser
+     */
+    public DateTimeRepParser current() {
+        return _candidates[_current];
+    }
+
+    /**
+     * Answer number of times a failed parse switched to another candidate
+     *
+     * @return int
+     */
+    public int redetections() {
+        return _redetections;
+    }
+
+    // -----------------------------------------------------------
+    // DateTimeRepParser
+    // -----------------------------------------------------------
+
+    public long parseRep(CharSequence text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw AbstractDateTimeFormat._parseException(position);
+        return rep;
+    }
+
+    public long parseRep(char[] text, int offset, int length) throws ParseException {
+        ParsePosition position = new ParsePosition(offset);
+        long rep = tryParseRep(text, offset, length, position);
+        if (rep == RepUtil.InvalidRep) throw AbstractDateTimeFormat._parseException(position);
+        return rep;
+    }
+
+    public long tryParseRep(CharSequence text, int offset, int length, ParsePosition position) {
+        int current = _current;
+        long rep = _candidates[current].tryParseRep(text, offset, length, position);
+        if (rep != RepUtil.InvalidRep) {
+            position.setErrorIndex(-1);
+            return rep;
+        }
+        int errorIndex = position.getErrorIndex();
+        for(int c=0; c<_candidates.length; c++) {
+            if (c == current) continue;
+            rep = _candidates[c].tryParseRep(text, offset, length, position);
+            if (rep != RepUtil.InvalidRep) {
+                _current = c;
+                _redetections++;
+                position.setErrorIndex(-1);
+                return rep;
+            }
+        }
+        position.setErrorIndex(errorIndex);
+        return RepUtil.InvalidRep;
+    }
+
+    public long tryParseRep(char[] text, int offset, int length, ParsePosition position) {
+        int current = _current;
+        long rep = _candidates[current].tryParseRep(text, offset, length, position);
+        if (rep != RepUtil.InvalidRep) {
+            position.setErrorIndex(-1);
+            return rep;
+        }
+        int errorIndex = position.getErrorIndex();
+        for(int c=0; c<_candidates.length; c++) {
+            if (c == current) continue;
+            rep = _candidates[c].tryParseRep(text, offset, length, position);
+            if (rep != RepUtil.InvalidRep) {
+                _current = c;
+                _redetections++;
+                position.setErrorIndex(-1);
+                return rep;
+            }
+        }
+        position.setErrorIndex(errorIndex);
+        return RepUtil.InvalidRep;
+    }
+}
@@ -0,0 +1,174 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import bitzguild.ts.datetime.format.JavaDateParserRenderer;
+import bitzguild.ts.datetime.format.PatternDateTimeFormat;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent Benchmark: render and parse round trips from several threads
+ * sharing one format instance. Compares a SimpleDateFormat guarded by a
+ * lock, the per-thread clones of JavaDateParserRenderer, and the
+ * immutable PatternDateTimeFormat. Each round trip is checked against the
+ * same format run on a single thread, so the error count shows only
+ * corruption from sharing.
+ */
+public class Perf4ConcurrentFormat {
+
+    public static final String  Pattern = "yyyy-MM-dd HH:mm:ss.SSS";
+
+    protected int               _iterations;
+    protected long[]            _reps;
+
+    public Perf4ConcurrentFormat(int iterations) {
+        _iterations = iterations;
+        _reps = new long[1024];
+        long rep = new ImmutableDateTime(2000, 1, 1, 9, 4, 56, 123).rep();
+        for(int i=0; i<_reps.length; i++) _reps[i] = RepUtil.addMillis(rep, i * 7919L * DateTime.MillisInMinute + i);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+        Perf4ConcurrentFormat prog = new Perf4ConcurrentFormat(iterations);
+        prog.testPerformance();
+    }
+
+    public void testPerformance() throws InterruptedException {
+        ColumnHelper column4Threads = new ColumnHelper("Threads", 10);
+        ColumnHelper column4Locked = new ColumnHelper("Locked Java", 14);
+        ColumnHelper column4Local = new ColumnHelper("Java Renderer", 14);
+        ColumnHelper column4Pattern = new ColumnHelper("Pattern", 14);
+        ColumnHelper column4Errors = new ColumnHelper("Errors", 10);
+
+        System.out.println();
+        System.out.println("CONCURRENT BENCHMARK RESULTS (ms for " + _iterations + " round trips per thread)");
+        System.out.println();
+        StringBuffer strb = new StringBuffer();
+        column4Threads.renderLabel(strb);
+        column4Locked.renderLabel(strb);
+        column4Local.renderLabel(strb);
+        column4Pattern.renderLabel(strb);
+        column4Errors.renderLabel(strb);
+        System.out.println(strb.toString());
+        System.out.println();
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for(int threads = 1; threads <= Math.max(4, processors); threads *= 2) {
+            AtomicInteger errors = new AtomicInteger();
+            long locked = _run(threads, new LockedJava(), errors);
+            long local = _run(threads, new FormatRoundTrip(new JavaDateParserRenderer(new SimpleDateFormat(Pattern))), errors);
+            long pattern = _run(threads, new FormatRoundTrip(new PatternDateTimeFormat(Pattern)), errors);
+
+            strb.setLength(0);
+            column4Threads.renderLong(strb, threads);
+            column4Locked.renderLong(strb, locked);
+            column4Local.renderLong(strb, local);
+            column4Pattern.renderLong(strb, pattern);
+            column4Errors.renderLong(strb, errors.get());
+            System.out.println(strb.toString());
+        }
+        System.out.println();
+    }
+
+    /**
+     * Answer elapsed millis for every thread to finish its round trips
+     */
+    protected long _run(int threads, final RoundTrip trip, final AtomicInteger errors) throws InterruptedException {
+        final long[] expected = new long[_reps.length];
+        try {
+            for(int i=0; i<_reps.length; i++) expected[i] = trip.roundTrip(_reps[i]);
+        } catch(Exception e) {
+            throw new IllegalStateException(e);
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for(int t=0; t<threads; t++) {
+            final int first = t * 131;
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        int bad = 0;
+                        for(int i=0; i<_iterations; i++) {
+                            int k = (first + i) & (_reps.length - 1);
+                            if (trip.roundTrip(_reps[k]) != expected[k]) bad++;
+                        }
+                        errors.addAndGet(bad);
+                    } catch(Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        long nsA = System.nanoTime();
+        start.countDown();
+        done.await();
+        return (System.nanoTime() - nsA) / 1000000L;
+    }
+
+    interface RoundTrip {
+        long roundTrip(long rep) throws Exception;
+    }
+
+    static class FormatRoundTrip implements RoundTrip {
+        protected DateTimeFormat _format;
+        FormatRoundTrip(DateTimeFormat format) { _format = format; }
+
+        public long roundTrip(long rep) throws Exception {
+            String str = _format.renderToBuilder(new MutableDateTime(rep), new StringBuilder(24)).toString();
+            return _format.parseToDateTime(new MutableDateTime(), str).rep();
+        }
+    }
+
+    static class LockedJava implements RoundTrip {
+        protected SimpleDateFormat _format = new SimpleDateFormat(Pattern);
+
+        public long roundTrip(long rep) throws Exception {
+            Date date = new MutableDateTime(rep).toJavaDate();
+            Date parsed;
+            synchronized(_format) {
+                parsed = _format.parse(_format.format(date));
+            }
+            MutableDateTime dt = new MutableDateTime();
+            dt.setFromJavaDate(parsed);
+            return dt.rep();
+        }
+    }
+}
@@ -30,6 +30,8 @@
 
 package bitzguild.ts.datetime;
 
+import bitzguild.ts.datetime.format.IsoDateTimeFormat;
+
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -135,8 +137,11 @@ public class Perf4DateTime {
 		this.testCreation();
         this.testPrint();
         this.testParse();
+        this.testIsoParse();
+        this.testUtcToLocal();
 //		this.testToAndFromString();
 		this.testObjToSerial();
+		this.testJavaSerialization();
 		this.testDateComparison();
         this.testYearMonthDay();
 		this.testTimeIteration();
@@ -266,6 +271,96 @@ public class Perf4DateTime {
         hiloFactor.add(max/min);
     }
 
+    public void testIsoParse() {
+
+        long nsA, nsZ;
+        int iterations = 1000000;
+
+        String str = "2000-01-01T09:04:56.123";
+        IsoDateTimeFormat isoFormat = new IsoDateTimeFormat();
+
+        nsA = System.nanoTime();
+        for(int i=0; i<iterations; i++) {
+            try {
+                @SuppressWarnings("unused")
+                long rep = isoFormat.parseRep(str, 0, str.length());
+            } catch (Exception e) {
+            }
+        }
+        nsZ = System.nanoTime();
+        long nsIterPsc = nsZ - nsA;
+
+        nsA = System.nanoTime();
+        for(int i=0; i<iterations; i++) {
+            @SuppressWarnings("unused")
+            org.joda.time.LocalDateTime jdt = org.joda.time.LocalDateTime.parse(str);
+        }
+        nsZ = System.nanoTime();
+        long nsIterJoda = nsZ - nsA;
+
+        nsA = System.nanoTime();
+        SimpleDateFormat parserSDF=new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        for(int i=0; i<iterations; i++) {
+            try {
+                @SuppressWarnings("unused")
+                Date jd = parserSDF.parse(str);
+            } catch (Exception e) {
+            }
+        }
+        nsZ = System.nanoTime();
+        long nsIterJava = nsZ - nsA;
+
+        double min = (double)Math.min(nsIterPsc, Math.min(nsIterJoda, nsIterJava));
+        double max = (double)Math.max(nsIterPsc, Math.max(nsIterJoda, nsIterJava));
+        testName.add("ISO Parse");
+        timeBizGuild.add(nsIterPsc / 1000000L);
+        timeJoda.add(nsIterJoda / 1000000L);
+        timeJava.add(nsIterJava / 1000000L);
+        hiloFactor.add(max/min);
+    }
+
+    public void testUtcToLocal() {
+
+        long nsA, nsZ;
+        int iterations = 1000000;
+
+        String zoneId = "America/New_York";
+        long start = new ImmutableDateTime(2014, 1, 1).toEpochMillis();
+        long[] ticks = new long[iterations];
+        for(int i=0; i<iterations; i++) ticks[i] = start + i * 37L * DateTime.MillisInSecond;
+        long[] reps = new long[iterations];
+        ZoneOffsetTable table = new ZoneOffsetTable(java.util.TimeZone.getTimeZone(zoneId), 2014, 2015);
+        org.joda.time.DateTimeZone jodaZone = org.joda.time.DateTimeZone.forID(zoneId);
+        Calendar cal = Calendar.getInstance(java.util.TimeZone.getTimeZone(zoneId));
+
+        nsA = System.nanoTime();
+        table.utcToLocalRep(ticks, 0, iterations, reps, 0);
+        nsZ = System.nanoTime();
+        long nsIterPsc = nsZ - nsA;
+
+        nsA = System.nanoTime();
+        for(int i=0; i<iterations; i++) reps[i] = jodaZone.convertUTCToLocal(ticks[i]);
+        nsZ = System.nanoTime();
+        long nsIterJoda = nsZ - nsA;
+
+        nsA = System.nanoTime();
+        for(int i=0; i<iterations; i++) {
+            cal.setTimeInMillis(ticks[i]);
+            reps[i] = RepUtil.repFromYearMonthDay(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH),
+                    RepUtil.millisOf(cal.get(Calendar.HOUR_OF_DAY), cal.get(Calendar.MINUTE), cal.get(Calendar.SECOND), cal.get(Calendar.MILLISECOND)));
+        }
+        nsZ = System.nanoTime();
+        long nsIterJava = nsZ - nsA;
+
+        double min = (double)Math.min(nsIterPsc, Math.min(nsIterJoda, nsIterJava));
+        double max = (double)Math.max(nsIterPsc, Math.max(nsIterJoda, nsIterJava));
+        testName.add("UTC To Local");
+        timeBizGuild.add(nsIterPsc / 1000000L);
+        timeJoda.add(nsIterJoda / 1000000L);
+        timeJava.add(nsIterJava / 1000000L);
+        hiloFactor.add(max/min);
+    }
+
     public void testToAndFromString() {
 
         long nsA, nsZ;
@@ -441,6 +536,58 @@ public class Perf4DateTime {
 		hiloFactor.add(max/min);
 	}
 	
+    public void testJavaSerialization() {
+
+        long nsA, nsZ;
+        int iterations = 100000;
+
+        MutableDateTime pscDT = MutableDateTime.yearMonthDay(2000, 1, 1);
+        org.joda.time.DateTime jodaDT = org.joda.time.DateTime.parse("2000-01-01");
+        Date javaDT = pscDT.toJavaDate();
+
+        nsA = System.nanoTime();
+        _serialRoundTrip(pscDT, iterations);
+        nsZ = System.nanoTime();
+        long nsIterPsc = nsZ - nsA;
+
+        nsA = System.nanoTime();
+        _serialRoundTrip(jodaDT, iterations);
+        nsZ = System.nanoTime();
+        long nsIterJoda = nsZ - nsA;
+
+        nsA = System.nanoTime();
+        _serialRoundTrip(javaDT, iterations);
+        nsZ = System.nanoTime();
+        long nsIterJava = nsZ - nsA;
+
+        double min = (double)Math.min(nsIterPsc, Math.min(nsIterJoda, nsIterJava));
+        double max = (double)Math.max(nsIterPsc, Math.max(nsIterJoda, nsIterJava));
+        testName.add("Java Serialize");
+        timeBizGuild.add(nsIterPsc / 1000000L);
+        timeJoda.add(nsIterJoda / 1000000L);
+        timeJava.add(nsIterJava / 1000000L);
+        hiloFactor.add(max/min);
+    }
+
+    /**
+     * Write and read back one object per stream, as a cache entry would
+     */
+    private static void _serialRoundTrip(Object o, int iterations) {
+        try {
+            for(int i=0; i<iterations; i++) {
+                java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream(256);
+                java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes);
+                out.writeObject(o);
+                out.close();
+                java.io.ObjectInputStream in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()));
+                in.readObject();
+                in.close();
+            }
+        } catch(Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
 	public void testCreation() {
 
 		long nsA, nsZ;
@@ -0,0 +1,180 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+public class Test4DateTimeClock extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    private static void assertClockMatches(TimeZone zone, long start, long end, long step) {
+        ManualDateTimeClock source = new ManualDateTimeClock(0);
+        AnchoredDateTimeClock clock = new AnchoredDateTimeClock(zone, source);
+        for(long millis = start; millis < end; millis += step) {
+            source.set(millis);
+            assertEquals("nowRep() at " + millis, RepUtil.fromEpochMillis(millis, zone.getOffset(millis)), clock.nowRep());
+        }
+    }
+
+    @Test
+    public void testAnchoredDayRollover() {
+        if (VERBOSE) System.out.println("testAnchoredDayRollover");
+
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        long midnight = new ImmutableDateTime(2014, 3, 3).toEpochMillis();
+        assertClockMatches(utc, midnight - 5 * DateTime.MillisInMinute, midnight + 3 * DateTime.MillisInDay, 997 * DateTime.MillisInSecond);
+
+        ManualDateTimeClock source = new ManualDateTimeClock(0);
+        AnchoredDateTimeClock clock = new AnchoredDateTimeClock(utc, source);
+        source.set(midnight - 1);
+        assertEquals("nowRep() before midnight", new ImmutableDateTime(2014, 3, 2, 23, 59, 59, 999).rep(), clock.nowRep());
+        source.set(midnight);
+        assertEquals("nowRep() at midnight", new ImmutableDateTime(2014, 3, 3).rep(), clock.nowRep());
+        source.set(midnight - DateTime.MillisInDay);
+        assertEquals("nowRep() backwards", new ImmutableDateTime(2014, 3, 2).rep(), clock.nowRep());
+    }
+
+    @Test
+    public void testAnchoredTransitions() {
+        if (VERBOSE) System.out.println("testAnchoredTransitions");
+
+        TimeZone ny = TimeZone.getTimeZone("America/New_York");
+        long spring = new ImmutableDateTime(2014, 3, 9).toEpochMillis();
+        long fall = new ImmutableDateTime(2014, 11, 2).toEpochMillis();
+        assertClockMatches(ny, spring - DateTime.MillisInDay, spring + 2 * DateTime.MillisInDay, 59 * DateTime.MillisInSecond);
+        assertClockMatches(ny, fall - DateTime.MillisInDay, fall + 2 * DateTime.MillisInDay, 59 * DateTime.MillisInSecond);
+
+        TimeZone tokyo = TimeZone.getTimeZone("Asia/Tokyo");
+        assertClockMatches(tokyo, spring, spring + 2 * DateTime.MillisInDay, 61 * DateTime.MillisInSecond);
+    }
+
+    @Test
+    public void testNowFromClock() {
+        if (VERBOSE) System.out.println("testNowFromClock");
+
+        ManualDateTimeClock source = new ManualDateTimeClock(0);
+        source.set(new ImmutableDateTime(2014, 6, 30, 9, 30, 0, 0).toEpochMillis());
+        DateTimeClock clock = new AnchoredDateTimeClock(TimeZone.getTimeZone("UTC"), source);
+        assertEquals("MutableDateTime.now(clock)", new ImmutableDateTime(2014, 6, 30, 9, 30, 0, 0), MutableDateTime.now(clock));
+        assertEquals("ImmutableDateTime.now(clock)", new ImmutableDateTime(2014, 6, 30, 9, 30, 0, 0), ImmutableDateTime.now(clock));
+
+        DateTimeClock prior = AbstractDateTime.defaultClock(clock);
+        try {
+            assertEquals("ImmutableDateTime.now()", new ImmutableDateTime(2014, 6, 30, 9, 30, 0, 0), ImmutableDateTime.now());
+        } finally {
+            AbstractDateTime.defaultClock(prior);
+        }
+    }
+
+    @Test
+    public void testManual() {
+        if (VERBOSE) System.out.println("testManual");
+
+        TimeZone ny = TimeZone.getTimeZone("America/New_York");
+        long millis = new ImmutableDateTime(2014, 6, 30, 13, 30, 0, 0).toEpochMillis();
+        ManualDateTimeClock clock = new ManualDateTimeClock(millis, ny);
+        assertEquals("nowRep()", new ImmutableDateTime(2014, 6, 30, 9, 30, 0, 0).rep(), clock.nowRep());
+        clock.advance(DateTime.MillisInHour + 5);
+        assertEquals("advance()", new ImmutableDateTime(2014, 6, 30, 10, 30, 0, 5).rep(), clock.nowRep());
+        assertEquals("currentTimeMillis()", millis + DateTime.MillisInHour + 5, clock.currentTimeMillis());
+        clock.advance(-DateTime.MillisInDay);
+        assertEquals("advance() backwards", new ImmutableDateTime(2014, 6, 29, 10, 30, 0, 5).rep(), clock.nowRep());
+    }
+
+    @Test
+    public void testCoarseTick() {
+        if (VERBOSE) System.out.println("testCoarseTick");
+
+        long millis = new ImmutableDateTime(2014, 6, 30, 9, 30, 0, 0).toEpochMillis();
+        ManualDateTimeClock source = new ManualDateTimeClock(millis);
+        CoarseDateTimeClock clock = new CoarseDateTimeClock(source, 1);
+        assertEquals("nowRep() unstarted", source.nowRep(), clock.nowRep());
+        source.advance(10);
+        assertEquals("nowRep() before tick", RepUtil.fromEpochMillis(millis), clock.nowRep());
+        clock.tick();
+        assertEquals("nowRep() after tick", RepUtil.fromEpochMillis(millis + 10), clock.nowRep());
+        assertEquals("currentTimeMillis()", millis + 10, clock.currentTimeMillis());
+        CoarseDateTimeClock.Sample sample = clock.sample();
+        assertEquals("sample() rep of millis", clock.repAt(sample.millis), sample.rep);
+
+        try {
+            new CoarseDateTimeClock(source, 0);
+            fail("CoarseDateTimeClock(source, 0)");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCoarseLifecycle() throws InterruptedException {
+        if (VERBOSE) System.out.println("testCoarseLifecycle");
+
+        long millis = new ImmutableDateTime(2014, 6, 30, 9, 30, 0, 0).toEpochMillis();
+        ManualDateTimeClock source = new ManualDateTimeClock(millis);
+        CoarseDateTimeClock clock = new CoarseDateTimeClock(source, 1);
+        assertFalse("isRunning() unstarted", clock.isRunning());
+        assertSame("start()", clock, clock.start());
+        assertSame("start() again", clock, clock.start());
+        assertTrue("isRunning()", clock.isRunning());
+        try {
+            clock.tick();
+            fail("tick() while started");
+        } catch(IllegalStateException e) {
+            // expected
+        }
+
+        source.advance(DateTime.MillisInMinute);
+        long expected = RepUtil.fromEpochMillis(millis + DateTime.MillisInMinute);
+        for(int i=0; i<5000 && clock.nowRep() != expected; i++) Thread.sleep(1);
+        assertEquals("nowRep() published", expected, clock.nowRep());
+
+        clock.stop();
+        assertFalse("isRunning() stopped", clock.isRunning());
+        source.advance(DateTime.MillisInMinute);
+        Thread.sleep(20);
+        assertEquals("nowRep() stopped", expected, clock.nowRep());
+        clock.stop();
+
+        AnchoredDateTimeClock system = new AnchoredDateTimeClock();
+        CoarseDateTimeClock live = new CoarseDateTimeClock(system, 1).start();
+        try {
+            long coarse = live.currentTimeMillis();
+            assertTrue("currentTimeMillis() live", Math.abs(System.currentTimeMillis() - coarse) < 1000);
+        } finally {
+            live.close();
+        }
+    }
+}
@@ -35,6 +35,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
 //import static org.junit.Assert.assertEquals;
 //import static org.junit.Assert.assertTrue;
 
@@ -278,10 +282,110 @@ public class Test4DateTimeConstructors extends TestCase {
         assertTrue("MutableDateTime.seconds() ", Math.abs(dtm1.seconds() - dti1.seconds()) < 1);
         assertTrue("MutableDateTime.millis() ", Math.abs(dtm1.millis() - dti1.millis()) < 10);
     }
-    
-    
-    
-    
- 
 
+    @Test
+    public void testEpochMillis() {
+        if (VERBOSE) System.out.println("testEpochMillis");
+
+        assertEquals("RepUtil.fromEpochMillis(0)", new ImmutableDateTime(1970, 1, 1).rep(), RepUtil.fromEpochMillis(0));
+        assertEquals("RepUtil.fromEpochMillis(-1)", new ImmutableDateTime(1969, 12, 31, 23, 59, 59, 999).rep(), RepUtil.fromEpochMillis(-1));
+
+        GregorianCalendar utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        Random rnd = new Random(47);
+        for(int i=0; i<2000; i++) {
+            long millis = (rnd.nextLong() % 10000000000000L);
+            utc.setTimeInMillis(millis);
+            long rep = RepUtil.fromEpochMillis(millis);
+            DateTime dt = new ImmutableDateTime(rep);
+            assertEquals("fromEpochMillis() year", utc.get(GregorianCalendar.YEAR), dt.year());
+            assertEquals("fromEpochMillis() month", utc.get(GregorianCalendar.MONTH) + 1, dt.month());
+            assertEquals("fromEpochMillis() day", utc.get(GregorianCalendar.DAY_OF_MONTH), dt.day());
+            assertEquals("fromEpochMillis() hours", utc.get(GregorianCalendar.HOUR_OF_DAY), dt.hours());
+            assertEquals("fromEpochMillis() millis", utc.get(GregorianCalendar.MILLISECOND), dt.millis());
+            assertEquals("toEpochMillis()", millis, dt.toEpochMillis());
+
+            int offset = (rnd.nextInt(49) - 24) * 30 * DateTime.MillisInMinute;
+            long local = RepUtil.fromEpochMillis(millis, offset);
+            assertEquals("fromEpochMillis(offset)", RepUtil.addMillis(rep, offset), local);
+            assertEquals("toEpochMillis(offset)", millis, MutableDateTime.fromEpochMillis(millis, offset).toEpochMillis(offset));
+        }
+    }
+
+    @Test
+    public void testJavaDate() {
+        if (VERBOSE) System.out.println("testJavaDate");
+
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        ZoneOffsetTable prior = AbstractDateTime.defaultZone(new ZoneOffsetTable(zone));
+        try {
+            GregorianCalendar cal = new GregorianCalendar(zone);
+            int[][] times = {
+                    { 2014, 7, 4, 15, 30, 12, 345 },    // afternoon, daylight time
+                    { 2014, 1, 4, 23, 59, 59, 999 },    // standard time
+                    { 2014, 3, 9, 2, 30, 0, 0 },        // skipped by spring forward
+                    { 2014, 11, 2, 1, 30, 0, 0 },       // repeated by fall back
+                    { 2014, 3, 3, 0, 0, 0, 0 }
+            };
+            for(int[] t : times) {
+                cal.clear();
+                cal.set(t[0], t[1]-1, t[2], t[3], t[4], t[5]);
+                cal.set(GregorianCalendar.MILLISECOND, t[6]);
+                MutableDateTime dt = new MutableDateTime(new ImmutableDateTime(t[0], t[1], t[2], t[3], t[4], t[5], t[6]));
+                assertEquals("toJavaDate() " + dt, cal.getTimeInMillis(), dt.toJavaDate().getTime());
+
+                MutableDateTime back = new MutableDateTime();
+                back.setFromJavaDate(cal.getTime());
+                cal.setTime(cal.getTime());
+                assertEquals("setFromJavaDate() hours " + dt, cal.get(GregorianCalendar.HOUR_OF_DAY), back.hours());
+                assertEquals("setFromJavaDate() day " + dt, cal.get(GregorianCalendar.DAY_OF_MONTH), back.day());
+                assertEquals("setFromJavaDate() millis " + dt, cal.get(GregorianCalendar.MILLISECOND), back.millis());
+            }
+        } finally {
+            AbstractDateTime.defaultZone(prior);
+        }
+
+        MutableDateTime pm = new MutableDateTime(new ImmutableDateTime(2014, 7, 4, 15, 30, 12, 345));
+        MutableDateTime copy = new MutableDateTime();
+        copy.setJavaDate(pm.toJavaDate());
+        assertEquals("setJavaDate() keeps 24 hour time", pm.rep(), copy.rep());
+    }
+
+    @Test
+    public void testOfDate() {
+        if (VERBOSE) System.out.println("testOfDate");
+
+        ImmutableDateTime first = ImmutableDateTime.ofDate(2014, 3, 3);
+        assertSame("ofDate() interned", first, ImmutableDateTime.ofDate(2014, 3, 3));
+        assertSame("ofIntRep() interned", first, ImmutableDateTime.ofIntRep(RepUtil.intRep(new ImmutableDateTime(2014, 3, 3, 9, 30, 0, 0).rep())));
+        assertEquals("ofDate() value", new ImmutableDateTime(2014, 3, 3), first);
+        assertEquals("ofDate() midnight", 0, RepUtil.millisSinceMidnight(first.rep()));
+        assertSame("ofDate() leap day", ImmutableDateTime.ofDate(2016, 2, 29), ImmutableDateTime.ofDate(2016, 2, 29));
+
+        assertNotSame("ofDate() outside window", ImmutableDateTime.ofDate(1850, 1, 1), ImmutableDateTime.ofDate(1850, 1, 1));
+        assertEquals("ofDate() outside window value", new ImmutableDateTime(1850, 1, 1), ImmutableDateTime.ofDate(1850, 1, 1));
+        assertEquals("ofDate() lenient", new ImmutableDateTime(2014, 2, 30), ImmutableDateTime.ofDate(2014, 2, 30));
+
+        InternedDates dates = new InternedDates(2014, 2014);
+        InternedDates prior = ImmutableDateTime.internedDates(dates);
+        try {
+            assertSame("internedDates()", dates, ImmutableDateTime.getInternedDates());
+            long rep = new ImmutableDateTime(2014, 1, 1).rep();
+            for(int i=0; i<2000; i++) ImmutableDateTime.ofIntRep(RepUtil.intRep(RepUtil.addDays(rep, i % 365)));
+            assertEquals("size()", 365, dates.size());
+            assertSame("ofRep()", dates.ofRep(RepUtil.addMillis(rep, 5000)), ImmutableDateTime.ofDate(2014, 1, 1));
+            assertNotSame("ofDate() outside configured window", ImmutableDateTime.ofDate(2015, 1, 1), ImmutableDateTime.ofDate(2015, 1, 1));
+        } finally {
+            ImmutableDateTime.internedDates(prior);
+        }
+        assertSame("internedDates() restored", prior, ImmutableDateTime.getInternedDates());
+        ImmutableDateTime.internedDates(null);
+        assertSame("internedDates(null) default", prior, ImmutableDateTime.getInternedDates());
+
+        try {
+            new InternedDates(0, 10000000);
+            fail("InternedDates() window too large");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
 }
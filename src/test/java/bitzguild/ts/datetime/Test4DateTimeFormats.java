@@ -0,0 +1,657 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import bitzguild.ts.datetime.format.AsciiDigits;
+import bitzguild.ts.datetime.format.CompactDateTimeFormat;
+import bitzguild.ts.datetime.format.FixedWidthDateTimeFormat;
+import bitzguild.ts.datetime.format.IsoDateTimeFormat;
+import bitzguild.ts.datetime.format.JavaDateParserRenderer;
+import bitzguild.ts.datetime.format.PatternDateTimeFormat;
+import bitzguild.ts.datetime.format.RenderedDates;
+import bitzguild.ts.datetime.format.SniffingDateTimeParser;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Test4DateTimeFormats extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    private static void assertParseFails(DateTimeRepParser parser, String text, int errorOffset) {
+        try {
+            parser.parseRep(text, 0, text.length());
+            fail("parseRep(\"" + text + "\") should fail");
+        } catch(ParseException e) {
+            assertEquals("ParseException.getErrorOffset() for \"" + text + "\"", errorOffset, e.getErrorOffset());
+        }
+    }
+
+    @Test
+    public void testCompactParseRep() throws ParseException {
+        if (VERBOSE) System.out.println("testCompactParseRep");
+
+        CompactDateTimeFormat format = new CompactDateTimeFormat();
+        long expected = new ImmutableDateTime(2014, 1, 15, 9, 30, 5, 7).rep();
+        assertEquals("parseRep(CharSequence)", expected, format.parseRep("20140115.093005007", 0, 18));
+        assertEquals("parseRep(slice)", expected, format.parseRep("AAPL,20140115.093005007,101.5", 5, 18));
+        assertEquals("parseRep(char[])", expected, format.parseRep("x20140115.093005007".toCharArray(), 1, 18));
+        assertEquals("parseRep(date only)", new ImmutableDateTime(2014, 1, 15).rep(), format.parseRep("20140115", 0, 8));
+
+        MutableDateTime dt = new MutableDateTime(2000, 1, 1, 12, 0, 0, 0);
+        format.parseToDateTime(dt, "20140115");
+        assertEquals("parseToDateTime() resets time", 0, dt.millisecondsSinceMidnight());
+
+        assertParseFails(format, "", 0);
+        assertParseFails(format, "2014O115", 4);
+        assertParseFails(format, "20140115.", 9);
+        assertParseFails(format, "20140115.09x", 11);
+        assertParseFails(format, "99999999999", 8);
+        assertParseFails(format, "20140231", 6);
+        assertParseFails(format, "20140230", 6);
+        assertParseFails(format, "20141345", 4);
+        assertParseFails(format, "99999999", 4);
+        assertParseFails(format, "03152014", 4);
+        assertParseFails(format, "5", 1);
+        assertParseFails(format, "2014011", 7);
+        assertParseFails(format, "20140115.096005007", 9);
+        assertParseFails(format, "2014011.093005007", 7);
+        ParsePosition bad = new ParsePosition(0);
+        assertEquals("tryParseRep(char[]) bad day", RepUtil.InvalidRep, format.tryParseRep("20140230.093005007".toCharArray(), 0, 18, bad));
+        assertEquals("tryParseRep(char[]) bad day index", 6, bad.getErrorIndex());
+        assertEquals("render(year 315)", "03150314", format.renderToBuffer(new ImmutableDateTime(315, 3, 14), new StringBuffer()).toString());
+
+        String[] signed = { "+20140115.093005007", "-20140115", "+20140115", "-", "+x", "-20140230", "+2014011" };
+        for(String text : signed) {
+            ParsePosition chars = new ParsePosition(0);
+            long rep = format.tryParseRep(text, 0, text.length(), chars);
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            ParsePosition pos = new ParsePosition(0);
+            assertEquals("tryParseRep(byte[]) " + text, rep, format.tryParseRep(bytes, pos, bytes.length));
+            assertEquals("tryParseRep(byte[]) error " + text, chars.getErrorIndex(), pos.getErrorIndex());
+            pos = new ParsePosition(0);
+            assertEquals("tryParseRep(ByteBuffer) " + text, rep, format.tryParseRep(ByteBuffer.wrap(bytes).asReadOnlyBuffer(), pos, bytes.length));
+        }
+        assertEquals("parseRep(+)", expected, format.parseRep("+20140115.093005007".getBytes(StandardCharsets.US_ASCII), new ParsePosition(0), 19));
+    }
+
+    @Test
+    public void testCompactRoundTrip() throws ParseException {
+        if (VERBOSE) System.out.println("testCompactRoundTrip");
+
+        CompactDateTimeFormat format = new CompactDateTimeFormat();
+        Random rnd = new Random(33);
+        for(int i=0; i<2000; i++) {
+            long rep = RepUtil.fromAbsoluteDays(700000 + rnd.nextInt(100000), rnd.nextBoolean() ? 0 : rnd.nextInt(DateTime.MillisInDay));
+            String text = format.renderToBuffer(new ImmutableDateTime(rep), new StringBuffer()).toString();
+            assertEquals("parseRep(render()) " + text, rep, format.parseRep(text, 0, text.length()));
+            assertEquals("MutableDateTime.parse() " + text, rep, MutableDateTime.parse(text).rep());
+        }
+    }
+
+    @Test
+    public void testCompactParseBytes() throws ParseException {
+        if (VERBOSE) System.out.println("testCompactParseBytes");
+
+        CompactDateTimeFormat format = new CompactDateTimeFormat();
+        byte[] message = "IBM,20140115.093005007,20140116,185.2".getBytes(StandardCharsets.US_ASCII);
+        ParsePosition pos = new ParsePosition(4);
+        assertEquals("parseRep(byte[])", new ImmutableDateTime(2014, 1, 15, 9, 30, 5, 7).rep(), format.parseRep(message, pos, message.length));
+        assertEquals("parseRep(byte[]) consumed", 22, pos.getIndex());
+        pos.setIndex(pos.getIndex() + 1);
+        assertEquals("parseRep(byte[]) date only", new ImmutableDateTime(2014, 1, 16).rep(), format.parseRep(message, pos, message.length));
+        assertEquals("parseRep(byte[]) consumed", 31, pos.getIndex());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(message.length);
+        direct.put(message).flip();
+        pos.setIndex(4);
+        assertEquals("parseRep(ByteBuffer)", new ImmutableDateTime(2014, 1, 15, 9, 30, 5, 7).rep(), format.parseRep(direct, pos, direct.limit()));
+        assertEquals("parseRep(ByteBuffer) consumed", 22, pos.getIndex());
+        assertEquals("parseRep(ByteBuffer) position untouched", 0, direct.position());
+
+        try {
+            format.parseRep(message, new ParsePosition(3), message.length);
+            fail("parseRep(byte[]) at delimiter");
+        } catch(ParseException e) {
+            assertEquals("ParseException.getErrorOffset()", 3, e.getErrorOffset());
+        }
+
+        String[] bad = { "20141345", "20140230", "99999999", "5", "03152014", "201401151", "20140115.096005007" };
+        int[] errors = { 5, 7, 5, 2, 5, 9, 10 };
+        for(int i=0; i<bad.length; i++) {
+            byte[] bytes = ("," + bad[i] + ",").getBytes(StandardCharsets.US_ASCII);
+            pos = new ParsePosition(1);
+            assertEquals("tryParseRep(byte[]) " + bad[i], RepUtil.InvalidRep, format.tryParseRep(bytes, pos, bytes.length));
+            assertEquals("tryParseRep(byte[]) error " + bad[i], errors[i], pos.getErrorIndex());
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            pos = new ParsePosition(1);
+            assertEquals("tryParseRep(ByteBuffer) " + bad[i], RepUtil.InvalidRep, format.tryParseRep(buffer, pos, bytes.length));
+            assertEquals("tryParseRep(ByteBuffer) error " + bad[i], errors[i], pos.getErrorIndex());
+        }
+    }
+
+    @Test
+    public void testFixedWidth() throws ParseException {
+        if (VERBOSE) System.out.println("testFixedWidth");
+
+        String[] patterns = { "yyyy-MM-dd HH:mm:ss.SSS", "yyyyMMdd HHmmss", "MM/dd/yy", "dd.MM.yyyy HH:mm:ss.S" };
+        Random rnd = new Random(34);
+        for(String pattern : patterns) {
+            FixedWidthDateTimeFormat format = new FixedWidthDateTimeFormat(pattern);
+            assertEquals("width() " + pattern, pattern.length(), format.width());
+            for(int i=0; i<500; i++) {
+                int millis = rnd.nextInt(DateTime.MillisInDay);
+                if (!pattern.contains("HH")) millis = 0;
+                else if (!pattern.contains("SSS")) millis -= millis % (pattern.contains("S") ? 100 : 1000);
+                long rep = RepUtil.fromAbsoluteDays(720000 + rnd.nextInt(20000), millis);
+
+                String text = format.renderToBuffer(new ImmutableDateTime(rep), new StringBuffer()).toString();
+                byte[] bytes = ("#" + text + "|").getBytes(StandardCharsets.US_ASCII);
+                ParsePosition pos = new ParsePosition(1);
+
+                assertEquals("parseRep(CharSequence) " + text, rep, format.parseRep(text, 0, text.length()));
+                assertEquals("parseRep(char[]) " + text, rep, format.parseRep(text.toCharArray(), 0, text.length()));
+                assertEquals("parseRep(byte[]) " + text, rep, format.parseRep(bytes, pos, bytes.length));
+                assertEquals("parseRep(byte[]) consumed", 1 + text.length(), pos.getIndex());
+                pos.setIndex(1);
+                assertEquals("parseRep(ByteBuffer) " + text, rep, format.parseRep(ByteBuffer.wrap(bytes), pos, bytes.length));
+            }
+        }
+
+        FixedWidthDateTimeFormat format = new FixedWidthDateTimeFormat("yyyy-MM-dd HH:mm");
+        assertEquals("parseToDateTime()", new ImmutableDateTime(2014, 7, 4, 16, 5, 0, 0).rep(),
+                format.parseToDateTime(new MutableDateTime(), "2014-07-04 16:05").rep());
+        byte[][] bad = { "2014/07/04 16:05".getBytes(), "2014-07-04 24:05".getBytes(), "2014-07-04 16:0x".getBytes(), "2014-07-04".getBytes(),
+                "2014-13-04 16:05".getBytes(), "2014-00-04 16:05".getBytes(), "2014-02-29 16:05".getBytes(), "2014-07-00 16:05".getBytes() };
+        int[] offsets = { 4, 11, 15, 10, 5, 5, 8, 8 };
+        for(int i=0; i<bad.length; i++) {
+            try {
+                format.parseRep(bad[i], new ParsePosition(0), bad[i].length);
+                fail("parseRep(byte[]) should fail for " + new String(bad[i]));
+            } catch(ParseException e) {
+                assertEquals("ParseException.getErrorOffset() " + new String(bad[i]), offsets[i], e.getErrorOffset());
+            }
+        }
+
+        assertEquals("parseRep(leap day)", new ImmutableDateTime(2016, 2, 29).rep(), new FixedWidthDateTimeFormat("yyyyMMdd").parseRep("20160229", 0, 8));
+        assertParseFails(new FixedWidthDateTimeFormat("yyyyMMdd"), "20141345", 4);
+        assertParseFails(new FixedWidthDateTimeFormat("yyyyMMdd"), "20140431", 6);
+        assertParseFails(new FixedWidthDateTimeFormat("MM/dd/yy"), "02/29/15", 3);
+
+        try {
+            new FixedWidthDateTimeFormat("yyy-MM");
+            fail("FixedWidthDateTimeFormat(yyy)");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRenderBytes() {
+        if (VERBOSE) System.out.println("testRenderBytes");
+
+        DateTimeByteRenderer[] renderers = { new CompactDateTimeFormat(), new FixedWidthDateTimeFormat("yyyy-MM-dd HH:mm:ss.SSS") };
+        Random rnd = new Random(35);
+        byte[] line = new byte[64];
+        ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        for(DateTimeByteRenderer renderer : renderers) {
+            DateTimeFormat format = (DateTimeFormat)renderer;
+            for(int i=0; i<2000; i++) {
+                long rep = RepUtil.fromAbsoluteDays(700000 + rnd.nextInt(100000), rnd.nextInt(4) == 0 ? 0 : rnd.nextInt(DateTime.MillisInDay));
+                String expected = format.renderToBuffer(new ImmutableDateTime(rep), new StringBuffer()).toString();
+
+                int end = renderer.renderRep(rep, line, 3);
+                assertEquals("renderRep(byte[]) length", 3 + expected.length(), end);
+                assertTrue("renderRep(byte[]) within maxLength()", end - 3 <= renderer.maxLength());
+                assertEquals("renderRep(byte[])", expected, new String(line, 3, end - 3, StandardCharsets.US_ASCII));
+
+                end = renderer.renderRep(rep, direct, 5);
+                byte[] copy = new byte[end - 5];
+                for(int k=0; k<copy.length; k++) copy[k] = direct.get(5 + k);
+                assertEquals("renderRep(ByteBuffer)", expected, new String(copy, StandardCharsets.US_ASCII));
+                assertEquals("renderRep(ByteBuffer) position untouched", 0, direct.position());
+            }
+        }
+
+        assertEquals("CompactDateTimeFormat pads time", "20140115.000000007",
+                new CompactDateTimeFormat().renderToBuffer(new ImmutableDateTime(2014, 1, 15, 0, 0, 0, 7), new StringBuffer()).toString());
+
+        int end = AsciiDigits.writeInt(line, 0, -1205);
+        assertEquals("AsciiDigits.writeInt()", "-1205", new String(line, 0, end, StandardCharsets.US_ASCII));
+        end = AsciiDigits.writeInt(line, 0, Integer.MIN_VALUE);
+        assertEquals("AsciiDigits.writeInt(MIN_VALUE)", String.valueOf(Integer.MIN_VALUE), new String(line, 0, end, StandardCharsets.US_ASCII));
+        ByteBuffer minBuffer = ByteBuffer.allocate(16);
+        end = AsciiDigits.writeInt(minBuffer, 2, Integer.MIN_VALUE);
+        assertEquals("AsciiDigits.writeInt(ByteBuffer, MIN_VALUE)", String.valueOf(Integer.MIN_VALUE), new String(minBuffer.array(), 2, end - 2, StandardCharsets.US_ASCII));
+        end = AsciiDigits.writeFixed(line, 0, 42, 5);
+        assertEquals("AsciiDigits.writeFixed()", "00042", new String(line, 0, end, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testAppendable() throws IOException {
+        if (VERBOSE) System.out.println("testAppendable");
+
+        DateTimeFormat[] formats = {
+                new CompactDateTimeFormat(),
+                new FixedWidthDateTimeFormat("yyyy-MM-dd HH:mm:ss.SSS"),
+                new JavaDateParserRenderer(new SimpleDateFormat("yyyy-MM-dd"))
+        };
+        DateTime dt = new ImmutableDateTime(2014, 11, 5, 7, 3, 9, 40);
+        for(DateTimeFormat format : formats) {
+            String expected = format.renderToBuffer(dt, new StringBuffer()).toString();
+            assertEquals("renderToBuilder() " + format.format(), expected, format.renderToBuilder(dt, new StringBuilder()).toString());
+            assertEquals("renderToAppendable() " + format.format(), expected, format.renderToAppendable(dt, new StringWriter()).toString());
+        }
+
+        AbstractDateTime adt = new MutableDateTime(dt);
+        String expected = adt.toBuffer(new StringBuffer()).toString();
+        assertEquals("AbstractDateTime.toBuilder()", expected, adt.toBuilder(new StringBuilder()).toString());
+        assertEquals("AbstractDateTime.appendTo()", expected, adt.appendTo(new StringWriter()).toString());
+        assertEquals("AbstractDateTime.toString()", expected, adt.toString());
+
+        DateTimeRange range = new DateTimeRange(dt.rep(), RepUtil.addDays(dt.rep(), 1));
+        expected = range.toBuffer(new StringBuffer()).toString();
+        assertEquals("DateTimeRange.toBuilder()", expected, range.toBuilder(new StringBuilder()).toString());
+        assertEquals("DateTimeRange.appendTo()", expected, range.appendTo(new StringWriter()).toString());
+        assertEquals("DateTimeRange.toString()", expected, range.toString());
+    }
+
+    @Test
+    public void testPattern() throws ParseException {
+        if (VERBOSE) System.out.println("testPattern");
+
+        String[] patterns = {
+                "yyyy-MM-dd HH:mm:ss.SSS",
+                "EEE, d MMM yyyy h:mm:ss a",
+                "EEEE MMMM dd yy 'at' HH'h'mm''ss",
+                "yyyyMMddHHmmssSSS"
+        };
+        Random rnd = new Random(37);
+        for(String pattern : patterns) {
+            PatternDateTimeFormat format = new PatternDateTimeFormat(pattern);
+            SimpleDateFormat java = new SimpleDateFormat(pattern, Locale.ENGLISH);
+            int precision = pattern.endsWith("SSS") ? 1 : 1000;
+            for(int i=0; i<500; i++) {
+                int year = 1950 + rnd.nextInt(100);
+                int month = 1 + rnd.nextInt(12);
+                int day = 1 + rnd.nextInt(DateUtil.daysInMonthForYear(month, year));
+                int hour = rnd.nextInt(24), minute = rnd.nextInt(60), second = rnd.nextInt(60);
+                int millis = rnd.nextInt(1000) / precision * precision;
+                DateTime dt = new ImmutableDateTime(year, month, day, hour, minute, second, millis);
+
+                GregorianCalendar cal = new GregorianCalendar(year, month-1, day, hour, minute, second);
+                cal.set(GregorianCalendar.MILLISECOND, millis);
+                String text = format.renderToBuilder(dt, new StringBuilder()).toString();
+                assertEquals("PatternDateTimeFormat.renderToBuilder() " + pattern, java.format(cal.getTime()), text);
+                assertEquals("PatternDateTimeFormat.parseRep() " + text, dt.rep(), format.parseRep(text, 0, text.length()));
+            }
+        }
+
+        PatternDateTimeFormat tenths = new PatternDateTimeFormat("HH:mm:ss.S");
+        DateTime dt = new ImmutableDateTime(1970, 1, 1, 9, 30, 15, 870);
+        assertEquals("PatternDateTimeFormat S is a fraction", "09:30:15.8", tenths.renderToBuilder(dt, new StringBuilder()).toString());
+        assertEquals("PatternDateTimeFormat.parseRep() fraction", RepUtil.rep(1970, 1, RepUtil.millisOf(9, 30, 15, 800)), tenths.parseRep("09:30:15.8", 0, 10));
+
+        PatternDateTimeFormat format = new PatternDateTimeFormat("d MMMM yyyy h:mm a");
+        long expected = new ImmutableDateTime(2014, 9, 7, 0, 5, 0, 0).rep();
+        assertEquals("parseRep() ignores case", expected, format.parseRep("7 SEPTEMBER 2014 12:05 am", 0, 25));
+        char[] chars = "[7 September 2014 12:05 AM]".toCharArray();
+        assertEquals("parseRep(char[])", expected, format.parseRep(chars, 1, chars.length - 2));
+        assertEquals("parseRep() abbreviated month", new ImmutableDateTime(2014, 9, 7).rep(),
+                new PatternDateTimeFormat("d MMM yyyy").parseRep("7 Sep 2014", 0, 10));
+
+        assertParseFails(format, "7 Xeptember 2014 12:05 AM", 2);
+        assertParseFails(format, "7 September 2014 13:05 AM", 17);
+        assertParseFails(format, "7 September 2014 12:05 AM!", 25);
+        assertParseFails(new PatternDateTimeFormat("yyyy-MM-dd"), "2014-9-07", 6);
+        assertParseFails(new PatternDateTimeFormat("yyyy-M-d"), "2014/9/7", 4);
+        assertParseFails(new PatternDateTimeFormat("yyyy-MM-dd"), "2014-02-30", 8);
+        assertParseFails(new PatternDateTimeFormat("yyyy-MM-dd"), "2014-13-01", 5);
+        assertParseFails(new PatternDateTimeFormat("d MMM yyyy"), "31 Sep 2014", 0);
+        assertParseFails(new PatternDateTimeFormat("y-MM-dd"), "1234567-01-01", 6);
+        assertEquals("parseRep(six digit year)", new ImmutableDateTime(999999, 12, 31).rep(), new PatternDateTimeFormat("y-MM-dd").parseRep("999999-12-31", 0, 12));
+
+        try {
+            new PatternDateTimeFormat("yyyy-MM-dd 'T");
+            fail("Unterminated quote should fail");
+        } catch(IllegalArgumentException e) {}
+        try {
+            new PatternDateTimeFormat("yyyy-MM-dd Q");
+            fail("Unknown pattern letter should fail");
+        } catch(IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void testIso() throws ParseException {
+        if (VERBOSE) System.out.println("testIso");
+
+        int[] precisions = { DateTime.DAY, DateTime.MINUTE, DateTime.SECOND, DateTime.MILLISECOND };
+        int[] truncate = { DateTime.MillisInDay, DateTime.MillisInMinute, DateTime.MillisInSecond, 1 };
+        Random rnd = new Random(41);
+        byte[] line = new byte[32];
+        for(int p=0; p<precisions.length; p++) {
+            IsoDateTimeFormat format = new IsoDateTimeFormat(precisions[p]);
+            SimpleDateFormat java = new SimpleDateFormat(format.format().replace("T", "'T'"));
+            for(int i=0; i<500; i++) {
+                int year = 1 + rnd.nextInt(9999);
+                long rep = RepUtil.rep(year, 1 + rnd.nextInt(DateUtil.daysInYear(year)), rnd.nextInt(DateTime.MillisInDay) / truncate[p] * truncate[p]);
+                DateTime dt = new ImmutableDateTime(rep);
+                String text = format.renderToBuilder(dt, new StringBuilder()).toString();
+                assertEquals("IsoDateTimeFormat.maxLength()", format.maxLength(), text.length());
+                assertEquals("IsoDateTimeFormat.parseRep() " + text, rep, format.parseRep(text, 0, text.length()));
+                int end = format.renderRep(rep, line, 0);
+                assertEquals("IsoDateTimeFormat.renderRep(byte[])", text, new String(line, 0, end, StandardCharsets.US_ASCII));
+                if (year >= 1900) {
+                    GregorianCalendar cal = new GregorianCalendar(dt.year(), dt.month()-1, dt.day(), dt.hours(), dt.minutes(), dt.seconds());
+                    cal.set(GregorianCalendar.MILLISECOND, dt.millis());
+                    assertEquals("IsoDateTimeFormat vs SimpleDateFormat", java.format(cal.getTime()), text);
+                }
+            }
+        }
+
+        IsoDateTimeFormat iso = new IsoDateTimeFormat();
+        long expected = new ImmutableDateTime(2024, 3, 15, 14, 30, 0, 120).rep();
+        String[] equivalents = {
+                "2024-03-15T14:30:00.12", "2024-03-15 14:30:00.120Z", "2024-03-15T14:30:00,1209",
+                "2024-03-15T16:30:00.120+02:00", "2024-03-15T09:00:00.120-0530", "2024-03-16T00:30:00.120+10"
+        };
+        for(String text : equivalents) {
+            assertEquals("IsoDateTimeFormat.parseRep() " + text, expected, iso.parseRep(text, 0, text.length()));
+            assertEquals("IsoDateTimeFormat.parseRep(char[]) " + text, expected, iso.parseRep(("[" + text + "]").toCharArray(), 1, text.length()));
+        }
+        assertEquals("IsoDateTimeFormat.parseRep() across midnight", new ImmutableDateTime(2023, 12, 31, 23, 0, 0, 0).rep(),
+                iso.parseRep("2024-01-01T01:00+02:00", 0, 22));
+        char[] chars = " 2024-03-15 ".toCharArray();
+        assertEquals("IsoDateTimeFormat.parseRep(char[])", new ImmutableDateTime(2024, 3, 15).rep(), iso.parseRep(chars, 1, 10));
+
+        assertParseFails(iso, "2024-03-1", 9);
+        assertParseFails(iso, "2024/03/15", 4);
+        assertParseFails(iso, "2024-13-15", 5);
+        assertParseFails(iso, "2023-02-29", 8);
+        assertParseFails(iso, "2024-03-15T24:00", 11);
+        assertParseFails(iso, "2024-03-15T14:3x", 15);
+        assertParseFails(iso, "2024-03-15T14:30:00.", 20);
+        assertParseFails(iso, "2024-03-15T14:30:00Q", 19);
+        ParsePosition position = new ParsePosition(0);
+        assertEquals("IsoDateTimeFormat.tryParseRep(char[]) invalid", RepUtil.InvalidRep, iso.tryParseRep("2023-02-29".toCharArray(), 0, 10, position));
+        assertEquals("IsoDateTimeFormat.tryParseRep(char[]) error index", 8, position.getErrorIndex());
+
+        try {
+            new IsoDateTimeFormat(DateTime.HOUR);
+            fail("Hour precision should fail");
+        } catch(IllegalArgumentException e) {}
+    }
+
+    @Test
+    public void testJavaSharedAcrossThreads() throws Exception {
+        if (VERBOSE) System.out.println("testJavaSharedAcrossThreads");
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        final JavaDateParserRenderer format = new JavaDateParserRenderer(sdf);
+        sdf.applyPattern("yyyy");
+        assertEquals("JavaDateParserRenderer copies DateFormat", "yyyy-MM-dd HH:mm:ss.SSS", format.format());
+
+        final String[] texts = new String[256];
+        final long[] reps = new long[texts.length];
+        long base = new ImmutableDateTime(2001, 2, 3, 4, 5, 6, 7).rep();
+        for(int i=0; i<texts.length; i++) {
+            texts[i] = format.renderToBuilder(new MutableDateTime(RepUtil.addMillis(base, i * 86399999L)), new StringBuilder()).toString();
+            reps[i] = format.parseToDateTime(new MutableDateTime(), texts[i]).rep();
+        }
+
+        final AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for(int t=0; t<threads.length; t++) {
+            final int first = t * 37;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        MutableDateTime dt = new MutableDateTime();
+                        for(int n=0; n<2000; n++) {
+                            int i = (first + n) % texts.length;
+                            if (format.parseToDateTime(dt, texts[i]).rep() != reps[i]) errors.incrementAndGet();
+                            if (!texts[i].equals(format.renderToBuilder(dt, new StringBuilder()).toString())) errors.incrementAndGet();
+                        }
+                    } catch(Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+        assertEquals("JavaDateParserRenderer concurrent errors", 0, errors.get());
+    }
+
+    @Test
+    public void testRenderedDates() {
+        if (VERBOSE) System.out.println("testRenderedDates");
+
+        RenderedDates cache = new RenderedDates(3);
+        assertEquals("RenderedDates.capacity()", 4, cache.capacity());
+        int day = RepUtil.intRep(new ImmutableDateTime(2014, 3, 3).rep());
+        assertNull("RenderedDates.get() miss", cache.get(day));
+        cache.put(day, "20140303");
+        assertEquals("RenderedDates.get() hit", "20140303", cache.get(day).text);
+        assertEquals("RenderedDates bytes", 8, cache.get(day).bytes.length);
+        cache.put(day + 4, "20140307");
+        assertNull("RenderedDates slot replaced", cache.get(day));
+
+        Random rnd = new Random(43);
+        long[] reps = new long[2000];
+        long rep = new ImmutableDateTime(2013, 12, 30, 22, 0, 0, 0).rep();
+        for(int i=0; i<reps.length; i++) {
+            reps[i] = rep;
+            rep = RepUtil.addMillis(rep, rnd.nextInt(2 * DateTime.MillisInHour));
+        }
+        reps[17] = RepUtil.dateOnly(reps[17]);
+
+        IsoDateTimeFormat iso = new IsoDateTimeFormat();
+        PatternDateTimeFormat pattern = new PatternDateTimeFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        CompactDateTimeFormat compact = new CompactDateTimeFormat();
+        StringBuilder expectIso = new StringBuilder();
+        StringBuilder expectCompact = new StringBuilder();
+        for(long r : reps) {
+            pattern.renderToBuilder(new ImmutableDateTime(r), expectIso).append('\n');
+            int millis = RepUtil.millisSinceMidnight(r);
+            expectCompact.append(RepUtil.year(r) * 10000 + RepUtil.month(r) * 100 + RepUtil.day(r));
+            if (millis > 0) expectCompact.append('.').append(String.format("%09d", millis / 3600000 * 10000000 + millis / 60000 % 60 * 100000 + millis % 60000));
+            expectCompact.append('\n');
+        }
+        assertEquals("IsoDateTimeFormat.renderColumn(StringBuilder)", expectIso.toString(), iso.renderColumn(reps, 0, reps.length, '\n', new StringBuilder()).toString());
+        assertEquals("CompactDateTimeFormat.renderColumn(StringBuilder)", expectCompact.toString(), compact.renderColumn(reps, 0, reps.length, '\n', new StringBuilder()).toString());
+
+        byte[] bytes = new byte[reps.length * (iso.maxLength() + 1)];
+        int end = iso.renderColumn(reps, 0, reps.length, (byte)'\n', bytes, 0);
+        assertEquals("IsoDateTimeFormat.renderColumn(byte[])", expectIso.toString(), new String(bytes, 0, end, StandardCharsets.US_ASCII));
+        end = compact.renderColumn(reps, 0, reps.length, (byte)'\n', bytes, 0);
+        assertEquals("CompactDateTimeFormat.renderColumn(byte[])", expectCompact.toString(), new String(bytes, 0, end, StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+        end = compact.renderRep(reps[5], buffer, 3);
+        byte[] out = new byte[end - 3];
+        for(int i=0; i<out.length; i++) out[i] = buffer.get(3 + i);
+        assertEquals("CompactDateTimeFormat.renderRep(ByteBuffer)", compact.renderToBuilder(new ImmutableDateTime(reps[5]), new StringBuilder()).toString(), new String(out, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testSniffing() throws ParseException {
+        if (VERBOSE) System.out.println("testSniffing");
+
+        long date = new ImmutableDateTime(2024, 3, 15).rep();
+        long time = new ImmutableDateTime(2024, 3, 15, 14, 30, 5, 120).rep();
+
+        SniffingDateTimeParser parser = new SniffingDateTimeParser();
+        assertEquals("detect() US", 2, parser.detect(new String[] { "3/15/2024", "", "12/1/2023" }, 0, 3));
+        assertEquals("parseRep() US", date, parser.parseRep("03/15/2024", 0, 10));
+        assertEquals("detect() ISO", 1, parser.detect(new String[] { "2024-03-15", "2024-03-15T14:30" }, 0, 2));
+        assertEquals("detect() compact", 0, parser.detect(new String[] { "20240315", "20240315.143005120" }, 0, 2));
+
+        String[] column = {
+                "20240315", "20240315.143005120", "2024-03-15T14:30:05.120", "2024-03-15",
+                "3/15/2024", "3/15/2024 14:30:05", "20240315"
+        };
+        long[] expected = { date, time, time, date, date, time - 120, date };
+        for(int i=0; i<column.length; i++) {
+            assertEquals("parseRep() " + column[i], expected[i], parser.parseRep(column[i], 0, column[i].length()));
+        }
+        assertEquals("redetections()", 4, parser.redetections());
+        assertTrue("current() compact", parser.current() instanceof CompactDateTimeFormat);
+
+        char[] chars = "x2024-03-15x".toCharArray();
+        assertEquals("parseRep(char[])", date, parser.parseRep(chars, 1, 10));
+        assertParseFails(parser, "15.03.2024x", 2);
+
+        ParsePosition position = new ParsePosition(0);
+        position.setErrorIndex(7);
+        assertEquals("tryParseRep() fallback", date, parser.tryParseRep("2024-03-15", 0, 10, position));
+        assertEquals("tryParseRep() fallback error index", -1, position.getErrorIndex());
+
+        SniffingDateTimeParser us = new SniffingDateTimeParser(new CompactDateTimeFormat(), new FixedWidthDateTimeFormat("MMddyyyy"));
+        assertEquals("detect() MMddyyyy", 1, us.detect(new String[] { "03152024", "12012023", "20240315" }, 0, 3));
+        assertEquals("parseRep() MMddyyyy", date, us.parseRep("03152024", 0, 8));
+        assertEquals("redetections() MMddyyyy", 0, us.redetections());
+        for(String junk : new String[] { "99999999", "00000000", "20241399" }) {
+            assertEquals("tryParseRep() junk " + junk, RepUtil.InvalidRep, us.tryParseRep(junk, 0, 8, position));
+        }
+    }
+
+    @Test
+    public void testTryParse() throws ParseException {
+        if (VERBOSE) System.out.println("testTryParse");
+
+        DateTimeRepParser[] parsers = {
+                new CompactDateTimeFormat(), new IsoDateTimeFormat(), new FixedWidthDateTimeFormat("yyyy-MM-dd HH:mm"),
+                new PatternDateTimeFormat("d MMM yyyy HH:mm"), new SniffingDateTimeParser()
+        };
+        String[] inputs = {
+                "20140305", "20140305.093000000", "2014-03-05", "2014-03-05 09:30", "5 Mar 2014 09:30",
+                "", "2014", "2014-03-05 25:30", "20140305.", "5 Mar 2014 9:3x", "2014-03-05T09:30:00.123Z", "x"
+        };
+        ParsePosition position = new ParsePosition(0);
+        for(DateTimeRepParser parser : parsers) {
+            for(String input : inputs) {
+                String framed = "|" + input + "|";
+                position.setIndex(1);
+                position.setErrorIndex(-1);
+                long rep = parser.tryParseRep(framed, 1, input.length(), position);
+                long charRep = parser.tryParseRep(framed.toCharArray(), 1, input.length(), new ParsePosition(1));
+                assertEquals("tryParseRep(char[]) " + input, rep, charRep);
+                try {
+                    long expected = parser.parseRep(framed, 1, input.length());
+                    assertEquals("tryParseRep() " + input, expected, rep);
+                    assertEquals("tryParseRep() index " + input, 1 + input.length(), position.getIndex());
+                } catch(ParseException e) {
+                    assertEquals("tryParseRep() invalid " + input, RepUtil.InvalidRep, rep);
+                    assertEquals("tryParseRep() error index " + input, e.getErrorOffset(), position.getErrorIndex());
+                    assertEquals("tryParseRep() index unchanged " + input, 1, position.getIndex());
+                }
+            }
+        }
+
+        String[][] badDates = {
+                { "20141305", "20140230" }, { "2014-13-05", "2014-02-30" }, { "2014-13-05 09:30", "2014-02-30 09:30" },
+                { "5 Xyz 2014 09:30", "30 Feb 2014 09:30" }, { "20141305", "20140230" }
+        };
+        int[][] badOffsets = { { 5, 7 }, { 6, 9 }, { 6, 9 }, { 3, 1 }, { 5, 7 } };
+        parsers[4] = new SniffingDateTimeParser();      // errors come from the current, compact, candidate
+        for(int p=0; p<parsers.length; p++) {
+            for(int i=0; i<2; i++) {
+                String input = badDates[p][i];
+                String label = parsers[p].getClass().getSimpleName() + " " + input;
+                String framed = "|" + input + "|";
+                position = new ParsePosition(1);
+                assertEquals("tryParseRep() bad date " + label, RepUtil.InvalidRep, parsers[p].tryParseRep(framed, 1, input.length(), position));
+                assertEquals("tryParseRep() bad date error index " + label, badOffsets[p][i], position.getErrorIndex());
+                assertEquals("tryParseRep() bad date index unchanged " + label, 1, position.getIndex());
+                position = new ParsePosition(1);
+                assertEquals("tryParseRep(char[]) bad date " + label, RepUtil.InvalidRep, parsers[p].tryParseRep(framed.toCharArray(), 1, input.length(), position));
+                assertEquals("tryParseRep(char[]) bad date error index " + label, badOffsets[p][i], position.getErrorIndex());
+            }
+        }
+
+        byte[] bytes = "20140305.093000000,2014x0305,".getBytes(StandardCharsets.US_ASCII);
+        CompactDateTimeFormat compact = new CompactDateTimeFormat();
+        FixedWidthDateTimeFormat fixed = new FixedWidthDateTimeFormat("yyyyMMdd");
+        position = new ParsePosition(0);
+        assertEquals("tryParseRep(byte[])", new ImmutableDateTime(2014, 3, 5, 9, 30, 0, 0).rep(), compact.tryParseRep(bytes, position, bytes.length));
+        assertEquals("tryParseRep(byte[]) index", 18, position.getIndex());
+        position.setIndex(19);
+        assertEquals("tryParseRep(byte[]) invalid", RepUtil.InvalidRep, fixed.tryParseRep(bytes, position, bytes.length));
+        assertEquals("tryParseRep(byte[]) error index", 23, position.getErrorIndex());
+        assertEquals("tryParseRep(ByteBuffer) invalid", RepUtil.InvalidRep, fixed.tryParseRep(ByteBuffer.wrap(bytes).asReadOnlyBuffer(), position, bytes.length));
+        assertEquals("tryParseRep(ByteBuffer) index unchanged", 19, position.getIndex());
+
+        MutableDateTime dt = new MutableDateTime(new ImmutableDateTime(2000, 1, 1).rep());
+        assertFalse("MutableDateTime.tryParse() invalid", dt.tryParse("2014-03-0x", compact, position));
+        assertEquals("MutableDateTime.tryParse() unchanged", new ImmutableDateTime(2000, 1, 1).rep(), dt.rep());
+        assertTrue("MutableDateTime.tryParse()", dt.tryParse("20140305", compact, position));
+        assertEquals("MutableDateTime.tryParse() rep", new ImmutableDateTime(2014, 3, 5).rep(), dt.rep());
+    }
+
+    @Test
+    public void testRenderDefaults() throws Exception {
+        if (VERBOSE) System.out.println("testRenderDefaults");
+
+        final CompactDateTimeFormat compact = new CompactDateTimeFormat();
+        DateTimeFormat bufferOnly = new DateTimeFormat() {
+            public DateTime parseToDateTime(MutableDateTime dt, String dtString) throws ParseException { return compact.parseToDateTime(dt, dtString); }
+            public StringBuffer renderToBuffer(DateTime date, StringBuffer sb) { return compact.renderToBuffer(date, sb); }
+            public String format() { return compact.format(); }
+            public DaysAndMonths daysAndMonths() { return compact.daysAndMonths(); }
+        };
+        ImmutableDateTime dt = new ImmutableDateTime(2014, 3, 5, 9, 30, 15, 7);
+        String expected = compact.renderToBuffer(dt, new StringBuffer()).toString();
+        assertEquals("default renderToBuilder()", "<" + expected, bufferOnly.renderToBuilder(dt, new StringBuilder("<")).toString());
+        assertEquals("default renderToAppendable() Writer", expected, bufferOnly.renderToAppendable(dt, new StringWriter()).toString());
+        assertEquals("default renderToAppendable() StringBuffer", expected, bufferOnly.renderToAppendable(dt, new StringBuffer()).toString());
+
+        JavaDateParserRenderer javaFormat = new JavaDateParserRenderer(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.ENGLISH));
+        String javaExpected = "2014-03-05 09:30:15.007";
+        assertEquals("Java renderToBuffer()", javaExpected, javaFormat.renderToBuffer(dt, new StringBuffer()).toString());
+        assertEquals("Java renderToBuilder()", javaExpected + javaExpected, javaFormat.renderToBuilder(dt, javaFormat.renderToBuilder(dt, new StringBuilder())).toString());
+        StringWriter writer = new StringWriter();
+        javaFormat.renderToAppendable(dt, javaFormat.renderToAppendable(dt, writer).append('|'));
+        assertEquals("Java renderToAppendable() Writer", javaExpected + "|" + javaExpected, writer.toString());
+        assertEquals("Java renderToAppendable() CharBuffer", javaExpected, javaFormat.renderToAppendable(dt, java.nio.CharBuffer.allocate(32)).flip().toString());
+    }
+}
@@ -0,0 +1,104 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+public class Test4DateTimeRange extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    @Test
+    public void testShiftMatchesDateTime() {
+        if (VERBOSE) System.out.println("testShiftMatchesDateTime");
+
+        MutableDateTime lower = new MutableDateTime(2013, 12, 31, 22, 15, 0, 0);
+        MutableDateTime upper = new MutableDateTime(2014, 1, 1, 1, 45, 0, 0);
+        DateTimeRange range = new DateTimeRange(lower, upper);
+        int[] amounts = { -500, -37, -1, 1, 5, 90, 500 };
+
+        for(int amount : amounts) {
+            assertEquals("DateTimeRange.addMinutes()", new MutableDateTime(lower).addMinutes(amount).rep(), range.addMinutes(amount).lowerRep());
+            assertEquals("DateTimeRange.addHours()", new MutableDateTime(upper).addHours(amount).rep(), range.addHours(amount).upperRep());
+            assertEquals("DateTimeRange.addDays()", new MutableDateTime(lower).addDays(amount).rep(), range.addDays(amount).lowerRep());
+            assertEquals("DateTimeRange.addSeconds()", new MutableDateTime(upper).addSeconds(amount).rep(), range.addSeconds(amount).upperRep());
+            assertEquals("DateTimeRange.addMillis()", new MutableDateTime(lower).addMillis(amount).rep(), range.addMillis(amount).lowerRep());
+        }
+
+        DateTimeRange biz = range.addBusinessDays(1, AbstractDateTime.DefaultHolidays);
+        assertEquals("DateTimeRange.addBusinessDays()", new MutableDateTime(upper).addBusinessDays(1, AbstractDateTime.DefaultHolidays).rep(), biz.upperRep());
+        assertNotSame("DateTimeRange modifiers answer new range", range, range.addDays(1));
+        assertEquals("DateTimeRange unchanged", lower.rep(), range.lowerRep());
+    }
+
+    @Test
+    public void testFromUpToAndWiden() {
+        if (VERBOSE) System.out.println("testFromUpToAndWiden");
+
+        long lower = new ImmutableDateTime(2014, 3, 31, 23, 59, 59, 999).rep();
+        long upper = new ImmutableDateTime(2014, 4, 1).rep();
+        DateTimeRange range = DateTimeRange.fromUpTo(lower, upper);
+        assertEquals("DateTimeRange.fromUpTo()", RepUtil.addMillis(upper, 1), range.upperRep());
+
+        DateTimeRange day = new DateTimeRange(lower, lower).widenTo(DateTime.DAY, 1);
+        assertEquals("DateTimeRange.widenTo() lower", new ImmutableDateTime(2014, 3, 31).rep(), day.lowerRep());
+        assertEquals("DateTimeRange.widenTo() upper", lower, day.upperRep());
+        assertEquals("DateTimeRange.durationMillis()", DateTime.MillisInDay - 1, day.durationMillis());
+
+        DateTimeRange wide = new DateTimeRange(lower, upper).widen(1, DateTime.MillisInDay);
+        assertEquals("DateTimeRange.widen() lower", lower - 1, wide.lowerRep());
+        assertEquals("DateTimeRange.widen() upper", new ImmutableDateTime(2014, 4, 2).rep(), wide.upperRep());
+
+        MutableDateTime into = new MutableDateTime();
+        assertSame("DateTimeRange.lowerInto()", into, range.lowerInto(into));
+        assertEquals("DateTimeRange.lowerInto()", lower, into.rep());
+    }
+
+    @Test
+    public void testMutableRange() {
+        if (VERBOSE) System.out.println("testMutableRange");
+
+        long start = new ImmutableDateTime(2014, 6, 2, 9, 30, 0, 0).rep();
+        MutableDateTimeRange window = new MutableDateTimeRange(start, RepUtil.addMillis(start, 5 * DateTime.MillisInMinute - 1));
+        assertSame("MutableDateTimeRange.addMinutes()", window, window.addMinutes(5));
+        assertEquals("MutableDateTimeRange.addMinutes()", new ImmutableDateTime(2014, 6, 2, 9, 35, 0, 0).rep(), window.lowerRep());
+        assertEquals("MutableDateTimeRange.durationMillis()", 5 * DateTime.MillisInMinute - 1, window.durationMillis());
+
+        window.slideTo(new ImmutableDateTime(2014, 6, 2, 23, 58, 0, 0).rep());
+        assertEquals("MutableDateTimeRange.slideTo()", new ImmutableDateTime(2014, 6, 3, 0, 2, 59, 999).rep(), window.upperRep());
+
+        assertSame("MutableDateTimeRange.addBusinessDays()", window, window.addBusinessDays(1, AbstractDateTime.DefaultHolidays));
+        window.set(start + 10, start);
+        assertEquals("MutableDateTimeRange.set() orders bounds", start, window.lowerRep());
+        assertTrue("MutableDateTimeRange.union() answers new", window != window.union(window));
+    }
+}
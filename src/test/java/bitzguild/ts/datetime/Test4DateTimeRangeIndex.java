@@ -0,0 +1,143 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class Test4DateTimeRangeIndex extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    private static final long Base = new ImmutableDateTime(2014, 6, 2).rep();
+
+    private static DateTimeRangeIndex randomIndex(Random rnd, int count) {
+        DateTimeRange[] ranges = new DateTimeRange[count];
+        for(int i=0; i<count; i++) {
+            int from = rnd.nextInt(2000);
+            ranges[i] = new DateTimeRange(Base + from, Base + from + rnd.nextInt(rnd.nextBoolean() ? 10 : 300));
+        }
+        return DateTimeRangeIndex.of(ranges);
+    }
+
+    private static int[] sorted(int[] values, int count) {
+        int[] copy = Arrays.copyOf(values, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private static int[] bruteStab(DateTimeRangeIndex index, long rep) {
+        int[] out = new int[index.size()];
+        int n = 0;
+        for(int i=0; i<index.size(); i++) if (index.lowerRep(i) <= rep && rep <= index.upperRep(i)) out[n++] = i;
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] bruteOverlap(DateTimeRangeIndex index, long lower, long upper) {
+        int[] out = new int[index.size()];
+        int n = 0;
+        for(int i=0; i<index.size(); i++) if (index.lowerRep(i) <= upper && lower <= index.upperRep(i)) out[n++] = i;
+        return Arrays.copyOf(out, n);
+    }
+
+    @Test
+    public void testStab() {
+        if (VERBOSE) System.out.println("testStab");
+
+        Random rnd = new Random(30);
+        DateTimeRangeIndex index = randomIndex(rnd, 500);
+        int[] out = new int[index.size()];
+        for(int q=-20; q<2400; q+=7) {
+            long rep = Base + q;
+            int n = index.stab(rep, out);
+            assertTrue("DateTimeRangeIndex.stab()", Arrays.equals(bruteStab(index, rep), sorted(out, n)));
+            assertEquals("DateTimeRangeIndex.stab() count", n, index.stab(rep, (DateTimeRangeIndex.Visitor)null));
+        }
+    }
+
+    @Test
+    public void testOverlap() {
+        if (VERBOSE) System.out.println("testOverlap");
+
+        Random rnd = new Random(31);
+        DateTimeRangeIndex index = randomIndex(rnd, 400);
+        int[] out = new int[index.size()];
+        for(int q=0; q<300; q++) {
+            long lower = Base + rnd.nextInt(2400) - 20;
+            long upper = lower + rnd.nextInt(100);
+            int n = index.overlap(lower, upper, out);
+            assertTrue("DateTimeRangeIndex.overlap()", Arrays.equals(bruteOverlap(index, lower, upper), sorted(out, n)));
+        }
+    }
+
+    @Test
+    public void testSweep() {
+        if (VERBOSE) System.out.println("testSweep");
+
+        Random rnd = new Random(32);
+        DateTimeRangeIndex index = randomIndex(rnd, 300);
+        long[] ticks = new long[1000];
+        for(int i=0; i<ticks.length; i++) ticks[i] = Base + rnd.nextInt(2400) - 20;
+        Arrays.sort(ticks);
+
+        DateTimeRangeIndex.Sweep sweep = index.sweep();
+        for(long tick : ticks) {
+            int n = sweep.advance(tick);
+            int[] active = new int[n];
+            for(int i=0; i<n; i++) active[i] = sweep.active(i);
+            assertTrue("DateTimeRangeIndex.Sweep", Arrays.equals(bruteStab(index, tick), sorted(active, n)));
+        }
+
+        int[] counts = new int[ticks.length];
+        index.stab(ticks, 0, ticks.length, counts, 0);
+        for(int i=0; i<ticks.length; i++) assertEquals("DateTimeRangeIndex.stab(column)", bruteStab(index, ticks[i]).length, counts[i]);
+
+        try {
+            sweep.advance(ticks[0] - 1);
+            fail("DateTimeRangeIndex.Sweep descending");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        if (VERBOSE) System.out.println("testEmpty");
+
+        DateTimeRangeIndex index = DateTimeRangeIndex.of();
+        assertEquals("DateTimeRangeIndex.stab() empty", 0, index.stab(Base, new int[0]));
+        assertEquals("DateTimeRangeIndex.overlap() empty", 0, index.overlap(Base, Base + 10, new int[0]));
+        assertEquals("DateTimeRangeIndex.Sweep empty", 0, index.sweep().advance(Base));
+    }
+}
@@ -0,0 +1,157 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class Test4DateTimeRangePartitioner extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    private static void assertContiguous(String msg, long[] bounds, long lower, long upper) {
+        assertEquals(msg + " lower", lower, bounds[0]);
+        assertEquals(msg + " upper", upper, bounds[bounds.length-1]);
+        for(int i=0; i<bounds.length; i+=2) assertTrue(msg + " ordered", bounds[i] <= bounds[i+1]);
+        for(int i=2; i<bounds.length; i+=2) assertEquals(msg + " contiguous", RepUtil.addMillis(bounds[i-1], 1), bounds[i]);
+    }
+
+    @Test
+    public void testBalanced() {
+        if (VERBOSE) System.out.println("testBalanced");
+
+        long lower = new ImmutableDateTime(2013, 12, 30).rep();
+        long upper = new ImmutableDateTime(2014, 1, 3).rep();
+        long[] bounds = DateTimeRangePartitioner.balanced(lower, upper, 7);
+        assertEquals("balanced() parts", 14, bounds.length);
+        assertContiguous("balanced()", bounds, lower, upper);
+        for(int i=0; i<bounds.length; i+=2) {
+            long size = RepUtil.absoluteMillis(bounds[i+1]) - RepUtil.absoluteMillis(bounds[i]) + 1;
+            assertTrue("balanced() size", Math.abs(size - 4L * DateTime.MillisInDay / 7) <= 1);
+        }
+
+        assertEquals("balanced() tiny range", 6, DateTimeRangePartitioner.balanced(lower, lower + 2, 10).length);
+    }
+
+    @Test
+    public void testCalendar() {
+        if (VERBOSE) System.out.println("testCalendar");
+
+        long lower = new ImmutableDateTime(2014, 1, 15, 9, 30, 0, 0).rep();
+        long upper = new ImmutableDateTime(2014, 4, 2, 16, 0, 0, 0).rep();
+        long[] months = DateTimeRangePartitioner.calendar(lower, upper, DateTime.MONTH, 1);
+        assertEquals("calendar(MONTH) parts", 8, months.length);
+        assertContiguous("calendar(MONTH)", months, lower, upper);
+        assertEquals("calendar(MONTH) boundary", new ImmutableDateTime(2014, 2, 1).rep(), months[2]);
+
+        long[] days = DateTimeRangePartitioner.calendar(lower, upper, DateTime.DAY, 1);
+        assertContiguous("calendar(DAY)", days, lower, upper);
+        assertEquals("calendar(DAY) parts", 78, days.length / 2);
+
+        long[] one = DateTimeRangePartitioner.calendar(lower, lower + 10, DateTime.DAY, 1);
+        assertTrue("calendar() single", Arrays.equals(new long[] { lower, lower + 10 }, one));
+    }
+
+    @Test
+    public void testBusinessDays() {
+        if (VERBOSE) System.out.println("testBusinessDays");
+
+        final long holiday = new ImmutableDateTime(2014, 7, 4).rep();
+        DateTimePredicate holidays = new DateTimePredicate() {
+            public boolean apply(DateTime theDate) { return theDate.rep() == holiday; }
+        };
+        long lower = new ImmutableDateTime(2014, 6, 30, 12, 0, 0, 0).rep();
+        long upper = new ImmutableDateTime(2014, 7, 8).rep();
+        long[] bounds = DateTimeRangePartitioner.businessDays(lower, upper, holidays);
+
+        assertEquals("businessDays() parts", 6, bounds.length / 2);
+        assertEquals("businessDays() clipped lower", lower, bounds[0]);
+        assertEquals("businessDays() clipped upper", upper, bounds[bounds.length-1]);
+        for(int i=0; i<bounds.length; i+=2) {
+            assertEquals("businessDays() one day", RepUtil.dateOnly(bounds[i]), RepUtil.dateOnly(bounds[i+1]));
+            assertTrue("businessDays() weekday", RepUtil.dayOfWeek(bounds[i]) < 5);
+            assertTrue("businessDays() holiday", RepUtil.dateOnly(bounds[i]) != holiday);
+        }
+        assertEquals("businessDays() weekends only", 7, DateTimeRangePartitioner.businessDays(lower, upper, null).length / 2);
+    }
+
+    @Test
+    public void testByCost() {
+        if (VERBOSE) System.out.println("testByCost");
+
+        Random rnd = new Random(31);
+        long lower = new ImmutableDateTime(2014, 3, 3).rep();
+        long[] reps = new long[10000];
+        for(int i=0; i<reps.length; i++) reps[i] = lower + (long)Math.abs(rnd.nextGaussian() * 1000000);
+        Arrays.sort(reps);
+        long upper = reps[reps.length-1];
+
+        long[] bounds = DateTimeRangePartitioner.byCost(lower, upper, 4, reps, 0, reps.length);
+        assertEquals("byCost() parts", 8, bounds.length);
+        assertContiguous("byCost()", bounds, lower, upper);
+        for(int i=0; i<bounds.length; i+=2) {
+            int count = 0;
+            for(long rep : reps) if (bounds[i] <= rep && rep <= bounds[i+1]) count++;
+            assertTrue("byCost() balance " + count, Math.abs(count - 2500) < 50);
+        }
+
+        long[] whole = { lower, upper };
+        assertTrue("byCost() empty", Arrays.equals(whole, DateTimeRangePartitioner.byCost(lower, upper, 4, new long[0], 0, 0)));
+        assertTrue("byCost() empty slice", Arrays.equals(whole, DateTimeRangePartitioner.byCost(lower, upper, 4, reps, reps.length, 0)));
+    }
+
+    @Test
+    public void testForkJoin() {
+        if (VERBOSE) System.out.println("testForkJoin");
+
+        long lower = new ImmutableDateTime(2010, 1, 1).rep();
+        long upper = new ImmutableDateTime(2014, 12, 31).rep();
+        long[] days = DateTimeRangePartitioner.calendar(lower, upper, DateTime.DAY, 1);
+
+        DateTimeRangeTask.Work<Long> weekdays = new DateTimeRangeTask.Work<Long>() {
+            public Long compute(long lo, long hi) { return RepUtil.dayOfWeek(lo) < 5 ? 1L : 0L; }
+            public Long combine(Long earlier, Long later) { return earlier + later; }
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            long expected = DateTimeRangePartitioner.businessDays(lower, upper, null).length / 2;
+            assertEquals("DateTimeRangeTask.invoke()", Long.valueOf(expected), DateTimeRangeTask.invoke(pool, weekdays, days));
+            assertEquals("DateTimeRangeTask threshold", Long.valueOf(expected), pool.invoke(new DateTimeRangeTask<Long>(weekdays, days, 0, days.length / 2, 64)));
+            assertNull("DateTimeRangeTask empty", DateTimeRangeTask.invoke(pool, weekdays, new long[0]));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class Test4DateTimeRangeSet extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    private static final long Base = new ImmutableDateTime(2014, 6, 2).rep();
+
+    private static DateTimeRange millis(int from, int to) {
+        return new DateTimeRange(Base + from, Base + to);
+    }
+
+    private static DateTimeRangeSet randomSet(Random rnd, int count) {
+        DateTimeRange[] ranges = new DateTimeRange[count];
+        for(int i=0; i<count; i++) {
+            int from = rnd.nextInt(1000);
+            ranges[i] = millis(from, from + rnd.nextInt(40));
+        }
+        return DateTimeRangeSet.of(ranges);
+    }
+
+    private static boolean bruteWithin(DateTimeRangeSet set, long rep) {
+        for(int i=0; i<set.size(); i++) if (set.range(i).within(rep)) return true;
+        return false;
+    }
+
+    @Test
+    public void testCoalesce() {
+        if (VERBOSE) System.out.println("testCoalesce");
+
+        DateTimeRangeSet set = DateTimeRangeSet.of(millis(50, 60), millis(0, 10), millis(5, 20), millis(21, 30), millis(70, 70));
+        assertEquals("DateTimeRangeSet.size()", 3, set.size());
+        assertEquals("DateTimeRangeSet.lowerRep()", Base, set.lowerRep(0));
+        assertEquals("DateTimeRangeSet.upperRep()", Base + 30, set.upperRep(0));
+        assertEquals("DateTimeRangeSet.span()", millis(0, 70).toString(), set.span().toString());
+
+        assertTrue("DateTimeRangeSet.within()", set.within(Base + 21));
+        assertFalse("DateTimeRangeSet.within()", set.within(Base + 31));
+        assertTrue("DateTimeRangeSet.within()", set.within(Base + 70));
+        assertFalse("DateTimeRangeSet.within()", set.within(Base - 1));
+        assertTrue("DateTimeRangeSet.contains()", set.contains(millis(52, 60)));
+        assertFalse("DateTimeRangeSet.contains()", set.contains(millis(52, 61)));
+        assertTrue("DateTimeRangeSet.intersects()", set.intersects(millis(61, 70)));
+        assertFalse("DateTimeRangeSet.intersects()", set.intersects(millis(61, 69)));
+
+        assertEquals("DateTimeRangeSet.fromBounds()", set, DateTimeRangeSet.fromBounds(set.toBounds()));
+        assertTrue("DateTimeRangeSet.EMPTY", DateTimeRangeSet.of().isEmpty());
+    }
+
+    @Test
+    public void testCrossesMidnight() {
+        if (VERBOSE) System.out.println("testCrossesMidnight");
+
+        long lastMilli = new ImmutableDateTime(2014, 12, 31).rep() + DateTime.MillisInDay - 1;
+        long nextYear = new ImmutableDateTime(2015, 1, 1).rep();
+        DateTimeRangeSet set = DateTimeRangeSet.of(new DateTimeRange(lastMilli - 10, lastMilli), new DateTimeRange(nextYear, nextYear + 10));
+        assertEquals("DateTimeRangeSet touching ranges merge", 1, set.size());
+
+        DateTimeRangeSet cut = set.difference(DateTimeRangeSet.of(new DateTimeRange(nextYear, nextYear)));
+        assertEquals("DateTimeRangeSet.difference() size", 2, cut.size());
+        assertEquals("DateTimeRangeSet.difference() upper", lastMilli, cut.upperRep(0));
+        assertEquals("DateTimeRangeSet.difference() lower", nextYear + 1, cut.lowerRep(1));
+    }
+
+    @Test
+    public void testAgainstBruteForce() {
+        if (VERBOSE) System.out.println("testAgainstBruteForce");
+
+        Random rnd = new Random(29);
+        for(int trial=0; trial<50; trial++) {
+            DateTimeRangeSet a = randomSet(rnd, rnd.nextInt(20));
+            DateTimeRangeSet b = randomSet(rnd, rnd.nextInt(20));
+            DateTimeRangeSet union = a.union(b);
+            DateTimeRangeSet inter = a.intersection(b);
+            DateTimeRangeSet diff = a.difference(b);
+
+            long[] column = new long[1100];
+            for(int i=0; i<column.length; i++) column[i] = Base - 20 + i;
+            boolean[] flags = new boolean[column.length];
+            int hits = union.within(column, 0, column.length, flags, 0);
+            int expectHits = 0;
+
+            for(int i=0; i<column.length; i++) {
+                long rep = column[i];
+                boolean inA = bruteWithin(a, rep);
+                boolean inB = bruteWithin(b, rep);
+                assertEquals("DateTimeRangeSet.within()", inA, a.within(rep));
+                assertEquals("DateTimeRangeSet.union()", inA || inB, union.within(rep));
+                assertEquals("DateTimeRangeSet.intersection()", inA && inB, inter.within(rep));
+                assertEquals("DateTimeRangeSet.difference()", inA && !inB, diff.within(rep));
+                assertEquals("DateTimeRangeSet.within(column)", inA || inB, flags[i]);
+                if (inA || inB) expectHits++;
+            }
+            assertEquals("DateTimeRangeSet.within(column) hits", expectHits, hits);
+
+            for(int i=1; i<union.size(); i++) {
+                assertTrue("DateTimeRangeSet disjoint", union.upperRep(i-1) + 1 < union.lowerRep(i));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsortedColumn() {
+        if (VERBOSE) System.out.println("testUnsortedColumn");
+
+        DateTimeRangeSet set = DateTimeRangeSet.of(millis(0, 10), millis(100, 110));
+        long[] column = { Base + 105, Base + 5, Base + 50, Base + 110, Base };
+        boolean[] flags = new boolean[column.length];
+        assertEquals("DateTimeRangeSet.within(column)", 4, set.within(column, 0, column.length, flags, 0));
+        assertFalse("DateTimeRangeSet.within(column)", flags[2]);
+    }
+}
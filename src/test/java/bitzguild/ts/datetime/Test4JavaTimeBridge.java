@@ -0,0 +1,130 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+public class Test4JavaTimeBridge extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    private static long[] randomReps(int count) {
+        Random rnd = new Random(31);
+        long[] reps = new long[count];
+        for(int i=0; i<count; i++) {
+            int year = 1600 + rnd.nextInt(800);
+            int doy = 1 + rnd.nextInt(DateUtil.daysInYear(year));
+            reps[i] = RepUtil.rep(year, doy, rnd.nextInt(DateTime.MillisInDay));
+        }
+        return reps;
+    }
+
+    @Test
+    public void testLocalDate() {
+        if (VERBOSE) System.out.println("testLocalDate");
+
+        assertEquals("toLocalDate()", LocalDate.of(2016, 2, 29), JavaTimeBridge.toLocalDate(new ImmutableDateTime(2016, 2, 29, 13, 5, 0, 0)));
+        assertEquals("fromLocalDate()", new ImmutableDateTime(2016, 12, 31).rep(), JavaTimeBridge.fromLocalDate(LocalDate.of(2016, 12, 31)));
+
+        long[] reps = randomReps(500);
+        LocalDate[] dates = new LocalDate[reps.length + 2];
+        assertEquals("toLocalDates()", reps.length + 2, JavaTimeBridge.toLocalDates(reps, 0, reps.length, dates, 2));
+        long[] back = new long[reps.length];
+        JavaTimeBridge.fromLocalDates(dates, 2, reps.length, back, 0);
+        for(int i=0; i<reps.length; i++) {
+            ImmutableDateTime dt = new ImmutableDateTime(reps[i]);
+            assertEquals("toLocalDate() fields", LocalDate.of(dt.year(), dt.month(), dt.day()), dates[i + 2]);
+            assertEquals("fromLocalDates()", RepUtil.dateOnly(reps[i]), back[i]);
+        }
+    }
+
+    @Test
+    public void testLocalDateTime() {
+        if (VERBOSE) System.out.println("testLocalDateTime");
+
+        assertEquals("toLocalDateTime()", LocalDateTime.of(2014, 3, 9, 2, 30, 15, 7 * JavaTimeBridge.NanosInMilli), JavaTimeBridge.toLocalDateTime(new ImmutableDateTime(2014, 3, 9, 2, 30, 15, 7)));
+        assertEquals("fromLocalDateTime() truncates", new ImmutableDateTime(2014, 3, 9, 2, 30, 15, 7).rep(), JavaTimeBridge.fromLocalDateTime(LocalDateTime.of(2014, 3, 9, 2, 30, 15, 7999999)));
+
+        long[] reps = randomReps(500);
+        LocalDateTime[] ldts = new LocalDateTime[reps.length];
+        JavaTimeBridge.toLocalDateTimes(reps, 0, reps.length, ldts, 0);
+        long[] back = new long[reps.length];
+        assertEquals("fromLocalDateTimes()", reps.length, JavaTimeBridge.fromLocalDateTimes(ldts, 0, reps.length, back, 0));
+        for(int i=0; i<reps.length; i++) assertEquals("LocalDateTime round trip", reps[i], back[i]);
+    }
+
+    @Test
+    public void testInstant() {
+        if (VERBOSE) System.out.println("testInstant");
+
+        ZoneOffset est = ZoneOffset.ofHours(-5);
+        long rep = new ImmutableDateTime(2014, 1, 15, 9, 30, 0, 0).rep();
+        assertEquals("toInstant()", Instant.parse("2014-01-15T14:30:00Z"), JavaTimeBridge.toInstant(rep, est));
+        assertEquals("fromInstant()", rep, JavaTimeBridge.fromInstant(Instant.parse("2014-01-15T14:30:00.000999Z"), est));
+
+        long[] reps = randomReps(500);
+        ZoneOffset ist = ZoneOffset.ofHoursMinutes(5, 30);
+        Instant[] instants = new Instant[reps.length];
+        JavaTimeBridge.toInstants(reps, 0, reps.length, ist, instants, 0);
+        long[] back = new long[reps.length];
+        JavaTimeBridge.fromInstants(instants, 0, reps.length, ist, back, 0);
+        for(int i=0; i<reps.length; i++) {
+            assertEquals("toInstants()", JavaTimeBridge.toLocalDateTime(reps[i]).toInstant(ist), instants[i]);
+            assertEquals("Instant round trip", reps[i], back[i]);
+        }
+    }
+
+    @Test
+    public void testEpochDay() {
+        if (VERBOSE) System.out.println("testEpochDay");
+
+        assertEquals("toEpochDay() epoch", 0, JavaTimeBridge.toEpochDay(new ImmutableDateTime(1970, 1, 1, 23, 0, 0, 0).rep()));
+        assertEquals("fromEpochDay() -1", new ImmutableDateTime(1969, 12, 31).rep(), JavaTimeBridge.fromEpochDay(-1));
+
+        long[] reps = randomReps(500);
+        long[] days = new long[reps.length];
+        JavaTimeBridge.toEpochDays(reps, 0, reps.length, days, 0);
+        long[] back = new long[reps.length];
+        JavaTimeBridge.fromEpochDays(days, 0, reps.length, back, 0);
+        for(int i=0; i<reps.length; i++) {
+            assertEquals("toEpochDays()", JavaTimeBridge.toLocalDate(reps[i]).toEpochDay(), days[i]);
+            assertEquals("fromEpochDays()", RepUtil.dateOnly(reps[i]), back[i]);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class Test4RepBuckets extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    @Test
+    public void testRepFields() {
+        if (VERBOSE) System.out.println("testRepFields");
+
+        MutableDateTime dt = new MutableDateTime(1899, 12, 25);
+        for(int i=0; i<100000; i++) {
+            long rep = dt.rep();
+            assertEquals("RepUtil.month()", dt.month(), RepUtil.month(rep));
+            assertEquals("RepUtil.day()", dt.day(), RepUtil.day(rep));
+            assertEquals("RepUtil.dayOfWeek()", dt.dayOfWeek(), RepUtil.dayOfWeek(rep));
+            assertEquals("RepUtil.fromAbsoluteDays()", rep, RepUtil.fromAbsoluteDays(RepUtil.absoluteDays(rep), 0));
+            assertEquals("RepUtil.addDays(1)", new MutableDateTime(rep).addDays(1).rep(), RepUtil.addDays(rep, 1));
+            assertEquals("RepUtil.addDays(-400)", new MutableDateTime(rep).addDays(-400).rep(), RepUtil.addDays(rep, -400));
+            dt.addDays(1);
+        }
+    }
+
+    @Test
+    public void testAddMillis() {
+        if (VERBOSE) System.out.println("testAddMillis");
+
+        long rep = new MutableDateTime(2000, 12, 31, 23, 59, 59, 999).rep();
+        assertEquals("RepUtil.addMillis() year wrap", new MutableDateTime(2001, 1, 1).rep(), RepUtil.addMillis(rep, 1));
+        assertEquals("RepUtil.addMillis() back", rep, RepUtil.addMillis(new MutableDateTime(2001, 1, 1).rep(), -1));
+        assertEquals("RepUtil.addMillis() days", new MutableDateTime(2001, 1, 3, 23, 59, 59, 999).rep(),
+                RepUtil.addMillis(rep, 3L * DateTime.MillisInDay));
+    }
+
+    @Test
+    public void testFloor() {
+        if (VERBOSE) System.out.println("testFloor");
+
+        Random rnd = new Random(31);
+        for(int i=0; i<20000; i++) {
+            MutableDateTime dt = new MutableDateTime(1950 + rnd.nextInt(100), 1 + rnd.nextInt(12), 1 + rnd.nextInt(31),
+                    rnd.nextInt(24), rnd.nextInt(60), rnd.nextInt(60), rnd.nextInt(1000));
+            long rep = dt.rep();
+
+            MutableDateTime expect = new MutableDateTime(dt);
+            expect.setHoursMinutesSecondsMillis(dt.hours(), dt.minutes() - dt.minutes() % 15, 0, 0);
+            assertEquals("floor(MINUTE,15)", expect.rep(), RepBuckets.floor(rep, DateTime.MINUTE, 15));
+
+            expect.setHoursMinutesSecondsMillis(dt.hours(), 0, 0, 0);
+            assertEquals("floor(HOUR)", expect.rep(), RepBuckets.floor(rep, DateTime.HOUR));
+
+            expect.setMillisSinceMidnight(0);
+            assertEquals("floor(DAY)", expect.rep(), RepBuckets.floor(rep, DateTime.DAY));
+
+            expect.rollbackToDayOfWeek(DaysAndMonths.MONDAY);
+            assertEquals("floor(WEEK)", expect.rep(), RepBuckets.floor(rep, DateTime.WEEK));
+
+            expect = new MutableDateTime(dt.year(), dt.month(), 1);
+            assertEquals("floor(MONTH)", expect.rep(), RepBuckets.floor(rep, DateTime.MONTH));
+
+            expect = new MutableDateTime(dt.year(), dt.month() - (dt.month() - 1) % 3, 1);
+            assertEquals("floor(QUARTER)", expect.rep(), RepBuckets.floor(rep, DateTime.QUARTER));
+
+            expect = new MutableDateTime(dt.year(), 1, 1);
+            assertEquals("floor(YEAR)", expect.rep(), RepBuckets.floor(rep, DateTime.YEAR));
+        }
+    }
+
+    @Test
+    public void testCeilAndIndex() {
+        if (VERBOSE) System.out.println("testCeilAndIndex");
+
+        int[] units = { DateTime.MINUTE, DateTime.HOUR, DateTime.DAY, DateTime.WEEK, DateTime.MONTH, DateTime.QUARTER, DateTime.YEAR };
+        int[] lengths = { 7, 5, 3, 2, 2, 1, 10 };
+
+        Random rnd = new Random(5);
+        long[] reps = new long[5000];
+        long rep = new MutableDateTime(1999, 11, 20).rep();
+        for(int i=0; i<reps.length; i++) {
+            rep = RepUtil.addMillis(rep, rnd.nextInt(DateTime.MillisInDay * 3));
+            reps[i] = rep;
+        }
+
+        long[] floors = new long[reps.length];
+        long[] indexes = new long[reps.length];
+        for(int u=0; u<units.length; u++) {
+            RepBuckets.floor(reps, 0, reps.length, units[u], lengths[u], floors, 0);
+            RepBuckets.bucketIndex(reps, 0, reps.length, units[u], lengths[u], indexes, 0);
+            for(int i=0; i<reps.length; i++) {
+                long ceil = RepBuckets.ceil(reps[i], units[u], lengths[u]);
+                assertTrue("floor <= rep", floors[i] <= reps[i]);
+                assertTrue("rep <= ceil", reps[i] <= ceil);
+                assertEquals("floor(floor)", floors[i], RepBuckets.floor(floors[i], units[u], lengths[u]));
+                assertEquals("index(floor)", indexes[i], RepBuckets.bucketIndex(floors[i], units[u], lengths[u]));
+                long next = RepBuckets.next(floors[i], units[u], lengths[u]);
+                assertEquals("index(next)", indexes[i] + 1, RepBuckets.bucketIndex(next, units[u], lengths[u]));
+                if (i > 0) assertEquals("same bucket", floors[i] == floors[i-1], indexes[i] == indexes[i-1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+public class Test4RepCodec extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    private static long[] ticks(int count) {
+        Random rnd = new Random(5);
+        long[] reps = new long[count];
+        long rep = new ImmutableDateTime(2014, 12, 30, 9, 30, 0, 0).rep();
+        for(int i=0; i<count; i++) {
+            rep = RepUtil.addMillis(rep, rnd.nextInt(5000));
+            reps[i] = rep;
+        }
+        return reps;
+    }
+
+    private static byte[] column(byte encoding, int count, int payload, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(RepCodec.HeaderBytes + data.length);
+        buffer.putInt(RepCodec.Magic).put(RepCodec.Version).put(encoding).putInt(count).putInt(payload).put(data);
+        return buffer.array();
+    }
+
+    private static void assertCorrupt(String label, byte[] bytes) throws Exception {
+        try {
+            RepCodec.readColumn(new DataInputStream(new ByteArrayInputStream(bytes)));
+            fail("readColumn() " + label);
+        } catch(StreamCorruptedException e) {
+            // expected
+        }
+        try {
+            RepCodec.getColumn(ByteBuffer.wrap(bytes));
+            fail("getColumn() " + label);
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static long[] drain(RepCursor cursor) {
+        long[] reps = new long[16];
+        int count = 0;
+        while(cursor.next()) {
+            if (count == reps.length) reps = Arrays.copyOf(reps, count * 2);
+            reps[count++] = cursor.rep();
+        }
+        return Arrays.copyOf(reps, count);
+    }
+
+    @Test
+    public void testRepsAndRanges() throws Exception {
+        if (VERBOSE) System.out.println("testRepsAndRanges");
+
+        long rep = new ImmutableDateTime(2014, 3, 9, 2, 30, 15, 7).rep();
+        DateTimeRange range = new DateTimeRange(rep, RepUtil.addDays(rep, 3));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        RepCodec.writeRep(out, rep);
+        RepCodec.writeRange(out, range);
+        out.close();
+        assertEquals("stream size", 24, bytes.size());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals("readRep()", rep, RepCodec.readRep(in));
+        DateTimeRange back = RepCodec.readRange(in);
+        assertEquals("readRange() lower", range.lowerRep(), back.lowerRep());
+        assertEquals("readRange() upper", range.upperRep(), back.upperRep());
+
+        ByteBuffer buffer = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        RepCodec.putRep(buffer, rep);
+        RepCodec.putRange(buffer, range);
+        assertEquals("put position", 24, buffer.position());
+        assertTrue("same bytes as stream", Arrays.equals(bytes.toByteArray(), buffer.array()));
+        buffer.flip();
+        assertEquals("getRep()", rep, RepCodec.getRep(buffer));
+        assertEquals("getRange() upper", range.upperRep(), RepCodec.getRange(buffer).upperRep());
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        if (VERBOSE) System.out.println("testColumns");
+
+        long[] reps = ticks(20000);
+        long[] mixed = { 0L, RepUtil.rep(1, 1, 0), new ImmutableDateTime(2014, 1, 1).rep(), RepUtil.rep(1900, 1, 5), Long.MAX_VALUE, Long.MIN_VALUE, -1L };
+        for(long[] column : new long[][] { reps, mixed, new long[0] }) {
+            for(byte encoding : new byte[] { RepCodec.RawEncoding, RepCodec.DeltaEncoding }) {
+                String label = "encoding " + encoding + ", count " + column.length;
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                RepCodec.writeColumn(out, column, 0, column.length, encoding);
+                out.close();
+                assertEquals(label + " columnBytes()", RepCodec.columnBytes(column, 0, column.length, encoding), bytes.size());
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+                assertTrue(label + " readColumn()", Arrays.equals(column, RepCodec.readColumn(in)));
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(RepCodec.maxColumnBytes(column.length, encoding) + 8);
+                buffer.putInt(42);
+                RepCodec.putColumn(buffer, column, 0, column.length, encoding);
+                buffer.putInt(43);
+                assertEquals(label + " put position", bytes.size() + 8, buffer.position());
+                buffer.flip();
+                assertEquals(label + " prefix", 42, buffer.getInt());
+                int start = buffer.position();
+                assertTrue(label + " getColumn()", Arrays.equals(column, RepCodec.getColumn(buffer)));
+                assertEquals(label + " suffix", 43, buffer.getInt());
+                buffer.position(start);
+                assertTrue(label + " cursor()", Arrays.equals(column, drain(RepCodec.cursor(buffer))));
+                assertEquals(label + " cursor suffix", 43, buffer.getInt());
+            }
+        }
+
+        int raw = RepCodec.columnBytes(reps, 0, reps.length, RepCodec.RawEncoding);
+        int delta = RepCodec.columnBytes(reps, 0, reps.length, RepCodec.DeltaEncoding);
+        if (VERBOSE) System.out.println("raw " + raw + ", delta " + delta);
+        assertTrue("delta compresses ticks", delta * 3 < raw);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RepCodec.maxColumnBytes(10, RepCodec.DeltaEncoding));
+        RepCodec.putColumn(buffer, reps, 100, 10, RepCodec.DeltaEncoding);
+        buffer.flip();
+        assertTrue("putColumn() offset", Arrays.equals(Arrays.copyOfRange(reps, 100, 110), RepCodec.getColumn(buffer)));
+    }
+
+    @Test
+    public void testBadHeader() throws Exception {
+        if (VERBOSE) System.out.println("testBadHeader");
+
+        ByteBuffer buffer = ByteBuffer.allocate(RepCodec.maxColumnBytes(3, RepCodec.RawEncoding));
+        RepCodec.putColumn(buffer, new long[] { 1, 2, 3 }, 0, 3, RepCodec.RawEncoding);
+        byte[] bytes = buffer.array();
+        bytes[4] = 9;
+        try {
+            RepCodec.getColumn(ByteBuffer.wrap(bytes));
+            fail("getColumn() bad version");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            RepCodec.readColumn(new DataInputStream(new ByteArrayInputStream(bytes)));
+            fail("readColumn() bad version");
+        } catch(StreamCorruptedException e) {
+            // expected
+        }
+        try {
+            RepCodec.putColumn(ByteBuffer.allocate(64), new long[1], 0, 1, (byte)7);
+            fail("putColumn() bad encoding");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBadPayload() throws Exception {
+        if (VERBOSE) System.out.println("testBadPayload");
+
+        assertCorrupt("huge count", column(RepCodec.DeltaEncoding, 100000000, 1000000000, new byte[] { 2, 2, 2 }));
+        assertCorrupt("huge raw count", column(RepCodec.RawEncoding, 100000000, 800000000, new byte[16]));
+        assertCorrupt("delta payload too short", column(RepCodec.DeltaEncoding, 4, 3, new byte[] { 2, 2, 2 }));
+        byte[] ones = new byte[11];
+        Arrays.fill(ones, (byte)0xFF);
+        assertCorrupt("varint too long", column(RepCodec.DeltaEncoding, 2, 11, ones));
+        assertCorrupt("varint cut off", column(RepCodec.DeltaEncoding, 2, 2, new byte[] { 2, (byte)0x80 }));
+        assertCorrupt("trailing bytes", column(RepCodec.DeltaEncoding, 1, 2, new byte[] { 2, 2 }));
+
+        byte[][] cursorCases = {
+                column(RepCodec.DeltaEncoding, 2, 11, ones),
+                column(RepCodec.DeltaEncoding, 2, 2, new byte[] { 2, (byte)0x80, 2, 2 })      // next column's bytes follow
+        };
+        for(byte[] bad : cursorCases) {
+            RepCursor cursor = RepCodec.cursor(ByteBuffer.wrap(bad));
+            try {
+                drain(cursor);
+                fail("cursor() past payload");
+            } catch(IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        long[] reps = ticks(100);
+        int bytes = RepCodec.columnBytes(reps, 0, reps.length, RepCodec.DeltaEncoding);
+        for(byte encoding : new byte[] { RepCodec.RawEncoding, RepCodec.DeltaEncoding }) {
+            ByteBuffer buffer = ByteBuffer.allocate(RepCodec.columnBytes(reps, 0, reps.length, encoding) - 1);
+            try {
+                RepCodec.putColumn(buffer, reps, 0, reps.length, encoding);
+                fail("putColumn() overflow, encoding " + encoding);
+            } catch(BufferOverflowException e) {
+                // expected
+            }
+            assertEquals("putColumn() overflow position", 0, buffer.position());
+            assertTrue("putColumn() overflow writes nothing", Arrays.equals(new byte[buffer.capacity()], buffer.array()));
+        }
+        ByteBuffer exact = ByteBuffer.allocate(bytes);
+        RepCodec.putColumn(exact, reps, 0, reps.length, RepCodec.DeltaEncoding);
+        assertEquals("putColumn() exact fit", bytes, exact.position());
+    }
+}
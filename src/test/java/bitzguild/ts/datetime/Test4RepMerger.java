@@ -0,0 +1,103 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class Test4RepMerger extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    @Test
+    public void testMergeOrder() {
+        if (VERBOSE) System.out.println("testMergeOrder");
+
+        Random rnd = new Random(17);
+        long base = new ImmutableDateTime(2014, 3, 3).rep();
+        long[][] columns = new long[7][];
+        int total = 0;
+        for(int c=0; c<columns.length; c++) {
+            columns[c] = new long[rnd.nextInt(50)];
+            for(int i=0; i<columns[c].length; i++) columns[c][i] = base + rnd.nextInt(1000);
+            Arrays.sort(columns[c]);
+            total += columns[c].length;
+        }
+
+        long[] merged = new long[total];
+        int[] sources = new int[total];
+        int count = RepMerger.ofColumns(columns).drain(merged, sources, 0, total);
+        assertEquals("RepMerger.drain() count", total, count);
+
+        for(int i=1; i<total; i++) {
+            assertTrue("RepMerger sorted", merged[i-1] <= merged[i]);
+            if (merged[i-1] == merged[i]) assertTrue("RepMerger stable", sources[i-1] <= sources[i]);
+        }
+    }
+
+    @Test
+    public void testMixedCursors() {
+        if (VERBOSE) System.out.println("testMixedCursors");
+
+        long[] a = { 1, 4, 4, 9 };
+        LongBuffer b = LongBuffer.wrap(new long[] { 0, 4, 10 });
+        RepMerger merger = new RepMerger(new ArrayRepCursor(a), new LongBufferRepCursor(b), new ArrayRepCursor(new long[0]));
+
+        long[] expectReps = { 0, 1, 4, 4, 4, 9, 10 };
+        int[] expectSources = { 1, 0, 0, 0, 1, 0, 1 };
+        int i = 0;
+        while(merger.next()) {
+            assertEquals("RepMerger.rep()", expectReps[i], merger.rep());
+            assertEquals("RepMerger.source()", expectSources[i], merger.source());
+            i++;
+        }
+        assertEquals("RepMerger exhausted", expectReps.length, i);
+        assertFalse("RepMerger stays exhausted", merger.next());
+    }
+
+    @Test
+    public void testEdgeWidths() {
+        if (VERBOSE) System.out.println("testEdgeWidths");
+
+        assertFalse("RepMerger no sources", new RepMerger().next());
+
+        RepMerger single = RepMerger.ofColumns(new long[] { 3, 5 });
+        assertTrue(single.next());
+        assertEquals(3L, single.rep());
+        assertTrue(single.next());
+        assertEquals(5L, single.rep());
+        assertFalse(single.next());
+    }
+}
@@ -0,0 +1,113 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Base64;
+
+public class Test4SerialRep extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    /**
+     * MutableDateTime(2014,3,9,2,30,15,7) and ImmutableDateTime(1999,12,31,23,59,59,999)
+     * written with default serialization, before SerialRep
+     */
+    public static final String FieldStream = "rO0ABXNyACViaXR6Z3VpbGQudHMuZGF0ZXRpbWUuTXV0YWJsZURhdGVUaW1lAAAAAAAAAAECAAB4cgAmYml0emd1aWxkLnRzLmRhdGV0aW1lLkFic3RyYWN0RGF0ZVRpbWUAAAAAAAAAAQIAA0kACl9kYXlPZlllYXJJAAVfdGltZUkABV95ZWFyeHAAAABEAImO3wAAB95zcgAnYml0emd1aWxkLnRzLmRhdGV0aW1lLkltbXV0YWJsZURhdGVUaW1lAAAAAAAAAAECAAB4cQB+AAEAAAFtBSZb/wAAB88=";
+
+    private static byte[] write(Object... objects) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for(Object o : objects) out.writeObject(o);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object[] read(byte[] bytes, int count) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        Object[] objects = new Object[count];
+        for(int i=0; i<count; i++) objects[i] = in.readObject();
+        in.close();
+        return objects;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        if (VERBOSE) System.out.println("testRoundTrip");
+
+        MutableDateTime mdt = new MutableDateTime(2014, 3, 9, 2, 30, 15, 7);
+        ImmutableDateTime idt = new ImmutableDateTime(1999, 12, 31, 23, 59, 59, 999);
+        DateTimeRange range = new DateTimeRange(idt, mdt);
+        MutableDateTimeRange mrange = new MutableDateTimeRange(mdt, idt);
+
+        Object[] back = read(write(mdt, idt, range, mrange), 4);
+        assertEquals("MutableDateTime class", MutableDateTime.class, back[0].getClass());
+        assertEquals("MutableDateTime", mdt.rep(), ((DateTime)back[0]).rep());
+        assertEquals("ImmutableDateTime class", ImmutableDateTime.class, back[1].getClass());
+        assertEquals("ImmutableDateTime", idt.rep(), ((DateTime)back[1]).rep());
+        assertEquals("DateTimeRange class", DateTimeRange.class, back[2].getClass());
+        assertEquals("DateTimeRange lower", range.lowerRep(), ((DateTimeRange)back[2]).lowerRep());
+        assertEquals("DateTimeRange upper", range.upperRep(), ((DateTimeRange)back[2]).upperRep());
+        assertEquals("MutableDateTimeRange class", MutableDateTimeRange.class, back[3].getClass());
+        assertEquals("MutableDateTimeRange upper", mrange.upperRep(), ((DateTimeRange)back[3]).upperRep());
+    }
+
+    @Test
+    public void testFieldStream() throws Exception {
+        if (VERBOSE) System.out.println("testFieldStream");
+
+        Object[] back = read(Base64.getDecoder().decode(FieldStream), 2);
+        assertEquals("MutableDateTime class", MutableDateTime.class, back[0].getClass());
+        assertEquals("MutableDateTime", new MutableDateTime(2014, 3, 9, 2, 30, 15, 7).rep(), ((DateTime)back[0]).rep());
+        assertEquals("ImmutableDateTime class", ImmutableDateTime.class, back[1].getClass());
+        assertEquals("ImmutableDateTime", new ImmutableDateTime(1999, 12, 31, 23, 59, 59, 999).rep(), ((DateTime)back[1]).rep());
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        if (VERBOSE) System.out.println("testCompact");
+
+        byte[] fields = Base64.getDecoder().decode(FieldStream);
+        byte[] single = write(new MutableDateTime(2014, 3, 9, 2, 30, 15, 7));
+        byte[] pair = write(new MutableDateTime(2014, 3, 9, 2, 30, 15, 7), new ImmutableDateTime(1999, 12, 31, 23, 59, 59, 999));
+        if (VERBOSE) System.out.println("single " + single.length + ", pair " + pair.length + ", field pair " + fields.length);
+        assertTrue("single size " + single.length, single.length < 80);
+        assertTrue("pair size " + pair.length, pair.length * 2 < fields.length);
+    }
+}
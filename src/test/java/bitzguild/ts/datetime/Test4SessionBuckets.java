@@ -0,0 +1,89 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+public class Test4SessionBuckets extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    @Test
+    public void testDaySession() {
+        if (VERBOSE) System.out.println("testDaySession");
+
+        SessionBuckets rth = new SessionBuckets(9, 30, 16, 0, 5);
+        assertEquals("barsPerSession", 78, rth.barsPerSession());
+
+        long beforeOpen = new MutableDateTime(2014, 6, 2, 9, 29, 59, 999).rep();
+        long open = new MutableDateTime(2014, 6, 2, 9, 30, 0, 0).rep();
+        long tick = new MutableDateTime(2014, 6, 2, 9, 41, 12, 5).rep();
+        long close = new MutableDateTime(2014, 6, 2, 16, 0, 0, 0).rep();
+
+        assertEquals("before open", -1, rth.barIndex(beforeOpen));
+        assertEquals("at open", 0, rth.barIndex(open));
+        assertEquals("tick", 2, rth.barIndex(tick));
+        assertEquals("at close", -1, rth.barIndex(close));
+        assertEquals("floor", new MutableDateTime(2014, 6, 2, 9, 40, 0, 0).rep(), rth.floor(tick));
+        assertEquals("next day", rth.bucketIndex(tick) + 78, rth.bucketIndex(RepUtil.addDays(tick, 1)));
+    }
+
+    @Test
+    public void testOvernightSession() {
+        if (VERBOSE) System.out.println("testOvernightSession");
+
+        SessionBuckets globex = new SessionBuckets(17, 0, 16, 0, 24 * 60);
+        assertTrue("overnight", globex.isOvernight());
+        assertEquals("daily bar", 1, globex.barsPerSession());
+
+        long sundayEvening = new MutableDateTime(2014, 6, 1, 18, 15, 0, 0).rep();
+        long mondayMorning = new MutableDateTime(2014, 6, 2, 8, 0, 0, 0).rep();
+        long mondayBreak = new MutableDateTime(2014, 6, 2, 16, 30, 0, 0).rep();
+        long monday = new MutableDateTime(2014, 6, 2).rep();
+
+        assertEquals("evening trades for next day", monday, globex.tradingDay(sundayEvening));
+        assertEquals("same bar", globex.bucketIndex(sundayEvening), globex.bucketIndex(mondayMorning));
+        assertEquals("maintenance break", -1L, globex.bucketIndex(mondayBreak));
+        assertEquals("bar opens prior evening", new MutableDateTime(2014, 6, 1, 17, 0, 0, 0).rep(), globex.floor(mondayMorning));
+
+        DateTimeRange bounds = globex.boundsForSession(mondayMorning);
+        assertEquals("session lower", new MutableDateTime(2014, 6, 1, 17, 0, 0, 0).rep(), bounds.lowerRep());
+        assertEquals("session upper", new MutableDateTime(2014, 6, 2, 15, 59, 59, 999).rep(), bounds.upperRep());
+
+        long[] reps = { sundayEvening, mondayMorning, mondayBreak };
+        long[] indexes = new long[3];
+        globex.bucketIndex(reps, 0, 3, indexes, 0);
+        assertEquals(globex.bucketIndex(sundayEvening), indexes[0]);
+        assertEquals(indexes[0], indexes[1]);
+        assertEquals(-1L, indexes[2]);
+    }
+}
@@ -0,0 +1,137 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ *
+ * Copyright (c) 2001-2014, Kevin Sven Berg
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package bitzguild.ts.datetime;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class Test4ZoneOffsetTable extends TestCase {
+
+    public static final boolean VERBOSE = false;
+
+    public static final String[] Zones = { "UTC", "America/New_York", "Europe/London", "Australia/Sydney", "Asia/Kolkata", "America/Sao_Paulo" };
+
+    private static long[] sortedMillis(Random rnd, long from, long to, int count) {
+        long[] millis = new long[count];
+        for(int i=0; i<count; i++) millis[i] = from + (long)(rnd.nextDouble() * (to - from));
+        Arrays.sort(millis);
+        return millis;
+    }
+
+    @Test
+    public void testTransitions() {
+        if (VERBOSE) System.out.println("testTransitions");
+
+        TimeZone ny = TimeZone.getTimeZone("America/New_York");
+        ZoneOffsetTable table = new ZoneOffsetTable(ny, 2014, 2014);
+        long spring = new ImmutableDateTime(2014, 3, 9, 7, 0, 0, 0).toEpochMillis();
+        long fall = new ImmutableDateTime(2014, 11, 2, 6, 0, 0, 0).toEpochMillis();
+        assertEquals("transitions()", 2, table.transitions());
+        assertEquals("transitionAt(0)", spring, table.transitionAt(0));
+        assertEquals("offsetAfter(0)", -4 * DateTime.MillisInHour, table.offsetAfter(0));
+        assertEquals("transitionAt(1)", fall, table.transitionAt(1));
+        assertEquals("offsetAfter(1)", -5 * DateTime.MillisInHour, table.offsetAfter(1));
+        assertEquals("offsetAt() before", -5 * DateTime.MillisInHour, table.offsetAt(spring - 1));
+        assertEquals("offsetAt() at", -4 * DateTime.MillisInHour, table.offsetAt(spring));
+
+        assertEquals("localRepToUtc() skipped", new ImmutableDateTime(2014, 3, 9, 7, 30, 0, 0).toEpochMillis(), table.localRepToUtc(new ImmutableDateTime(2014, 3, 9, 2, 30, 0, 0).rep()));
+        assertEquals("localRepToUtc() repeated", new ImmutableDateTime(2014, 11, 2, 6, 30, 0, 0).toEpochMillis(), table.localRepToUtc(new ImmutableDateTime(2014, 11, 2, 1, 30, 0, 0).rep()));
+
+        try {
+            new ZoneOffsetTable(ny, 2015, 2014);
+            fail("ZoneOffsetTable(zone, 2015, 2014)");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUtcToLocal() {
+        if (VERBOSE) System.out.println("testUtcToLocal");
+
+        Random rnd = new Random(7);
+        long from = new ImmutableDateTime(1965, 1, 1).toEpochMillis();
+        long to = new ImmutableDateTime(2030, 1, 1).toEpochMillis();
+        for(String id : Zones) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            ZoneOffsetTable table = new ZoneOffsetTable(zone, 1970, 2025);
+            long[] millis = sortedMillis(rnd, from, to, 20000);
+            long[] reps = new long[millis.length];
+            assertEquals("utcToLocalRep() count", millis.length, table.utcToLocalRep(millis, 0, millis.length, reps, 0));
+            for(int i=0; i<millis.length; i++) {
+                long expected = RepUtil.fromEpochMillis(millis[i], zone.getOffset(millis[i]));
+                assertEquals(id + " utcToLocalRep() column", expected, reps[i]);
+                assertEquals(id + " utcToLocalRep()", expected, table.utcToLocalRep(millis[i]));
+            }
+
+            long day = new ImmutableDateTime(2014, 1, 1).toEpochMillis();
+            long[] ticks = new long[2 * 365 * 24 * 4];
+            for(int i=0; i<ticks.length; i++) ticks[i] = day + i * 15L * DateTime.MillisInMinute + rnd.nextInt(1000);
+            table.utcToLocalRep(ticks, 0, ticks.length, reps = new long[ticks.length], 0);
+            for(int i=0; i<ticks.length; i++) assertEquals(id + " utcToLocalRep() ticks", RepUtil.fromEpochMillis(ticks[i], zone.getOffset(ticks[i])), reps[i]);
+        }
+    }
+
+    @Test
+    public void testLocalToUtc() {
+        if (VERBOSE) System.out.println("testLocalToUtc");
+
+        Random rnd = new Random(11);
+        long from = new ImmutableDateTime(1965, 1, 1).toEpochMillis();
+        long to = new ImmutableDateTime(2030, 1, 1).toEpochMillis();
+        for(String id : Zones) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            ZoneOffsetTable table = new ZoneOffsetTable(zone, 1970, 2025);
+            long[] local = sortedMillis(rnd, from, to, 20000);
+            long[] reps = new long[local.length];
+            for(int i=0; i<local.length; i++) reps[i] = RepUtil.fromEpochMillis(local[i]);
+
+            long start = new ImmutableDateTime(2014, 1, 1).toEpochMillis();
+            long[] ticks = new long[365 * 24 * 4];
+            for(int i=0; i<ticks.length; i++) ticks[i] = RepUtil.fromEpochMillis(start + i * 15L * DateTime.MillisInMinute + rnd.nextInt(1000));
+
+            for(long[] column : new long[][] { reps, ticks }) {
+                long[] millis = new long[column.length + 1];
+                assertEquals("localRepToUtc() count", column.length + 1, table.localRepToUtc(column, 0, column.length, millis, 1));
+                for(int i=0; i<column.length; i++) {
+                    long expected = RepUtil.toEpochMillis(column[i], RepUtil.offsetOfLocal(column[i], zone));
+                    assertEquals(id + " localRepToUtc() column", expected, millis[i + 1]);
+                    assertEquals(id + " localRepToUtc()", expected, table.localRepToUtc(column[i]));
+                }
+            }
+        }
+    }
+}